@@ -0,0 +1,100 @@
+package pushrock.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import pushrock.fxui.SaveHandler;
+
+//Builds the level files the benchmarks run on, either by reading one of the bundled levels or by generating a synthetic one.
+//Levels are returned as the full text of a level file, so the same fixture can be used to benchmark loading as well as playing.
+final class BenchmarkLevels {
+
+    //Synthetic levels are named "synthetic-N", where N is the width and height of the map.
+    static final String SYNTHETIC_PREFIX = "synthetic-";
+
+    private BenchmarkLevels() {
+    }
+
+    //Returns the level file text of the given bundled level or synthetic level. The densities are only used for synthetic levels.
+    static String getLevelFile(String level, double rockDensity, double portalWallDensity, double teleporterDensity) throws IOException {
+        if (level.startsWith(SYNTHETIC_PREFIX)) {
+            int size = Integer.parseInt(level.substring(SYNTHETIC_PREFIX.length()));
+            return generateLevelFile(size, rockDensity, portalWallDensity, teleporterDensity);
+        }
+        return Files.readString(new SaveHandler().getResourceFoldersPath("levels").resolve(level + ".txt"));
+    }
+
+    //Generates an N×N level surrounded by walls, where every inner cell independently becomes a rock, a wall or a teleporter with
+    //the given densities. Every wall can hold a portal, so the portal wall density decides how many placement targets there are.
+    //The player starts in the middle of the map facing right. The generator is seeded, so a given set of parameters always gives
+    //the same level.
+    static String generateLevelFile(int size, double rockDensity, double portalWallDensity, double teleporterDensity) {
+        if (size < 3) {
+            throw new IllegalArgumentException("Synthetic levels must be at least 3 wide to fit the player inside the walls. Size was: " + size);
+        }
+        Random random = new Random(size);
+        char[][] map = new char[size][size];
+        int rockCount = 0;
+        int teleporterCount = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (x == 0 || y == 0 || x == size - 1 || y == size - 1) {
+                    map[y][x] = 'w';
+                    continue;
+                }
+                double roll = random.nextDouble();
+                if (roll < rockDensity) {
+                    map[y][x] = 'r';
+                    rockCount++;
+                }
+                else if (roll < rockDensity + portalWallDensity) {
+                    map[y][x] = 'w';
+                }
+                else if (roll < rockDensity + portalWallDensity + teleporterDensity) {
+                    map[y][x] = 't';
+                    teleporterCount++;
+                }
+                else {
+                    map[y][x] = ' ';
+                }
+            }
+        }
+        int center = size / 2;
+        if (map[center][center] == 'r') {
+            rockCount--;
+        }
+        if (map[center][center] == 't') {
+            teleporterCount--;
+        }
+        map[center][center] = 'p';
+        //Teleporter i connects to teleporter (s / n, s % n) when s pressure plates are active, so there may be at most n² - 1 plates.
+        int pressurePlateCount = Math.max(1, rockCount);
+        if (teleporterCount >= 2) {
+            pressurePlateCount = Math.min(pressurePlateCount, teleporterCount * teleporterCount - 1);
+        }
+        for (int y = 1; y < size - 1 && pressurePlateCount > 0; y++) {
+            for (int x = 1; x < size - 1 && pressurePlateCount > 0; x++) {
+                if (map[y][x] == ' ') {
+                    map[y][x] = 'd';
+                    pressurePlateCount--;
+                }
+            }
+        }
+
+        StringBuilder mapLayout = new StringBuilder(size * (size + 2));
+        StringBuilder directionLayout = new StringBuilder(rockCount + 2);
+        for (char[] row : map) {
+            for (char type : row) {
+                mapLayout.append(type);
+                if (type == 'p' || type == 'r') {
+                    directionLayout.append('r');
+                }
+            }
+            mapLayout.append("@\n");
+        }
+        directionLayout.append('g');
+        return "#File type:\nLevel\n\n#Level name:\n" + SYNTHETIC_PREFIX + size + "\n\n#Level map layout:\n" + mapLayout
+            + "\n#Level direction layout:\n" + directionLayout + "\n";
+    }
+}
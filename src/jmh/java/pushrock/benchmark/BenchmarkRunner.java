@@ -0,0 +1,25 @@
+package pushrock.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+//Entry point of target/benchmarks.jar. Runs the benchmarks with the GC profiler attached, so every result also reports the
+//allocation rate. Accepts the regular JMH command line options, for example:
+//java -jar target/benchmarks.jar movePlayer -p level=synthetic-256 -p rockDensity=0.3
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLineOptions);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            options.include(PushRockBenchmark.class.getSimpleName());
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
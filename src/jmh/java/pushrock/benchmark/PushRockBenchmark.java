@@ -0,0 +1,137 @@
+package pushrock.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pushrock.fxui.BinarySaveHandler;
+import pushrock.fxui.SaveHandler;
+import pushrock.model.Direction;
+import pushrock.model.IDiagnosticsSink;
+import pushrock.model.PushRock;
+
+//Benchmarks of the model hot paths: moving the player, pushing chains of rocks, building the world, loading a level file and
+//saving and loading a binary save.
+//Every benchmark reports both throughput and average time. Run through BenchmarkRunner to also get the allocation rate.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PushRockBenchmark {
+
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT};
+
+    //A game of one of the bundled levels, or of a synthetic level (see BenchmarkLevels). The densities only apply to synthetic levels.
+    @State(Scope.Thread)
+    public static class LevelFixture {
+        @Param({"Level PushRock", "Level size larger than window", "synthetic-32", "synthetic-128"})
+        public String level;
+        @Param({"0.1"})
+        public double rockDensity;
+        @Param({"0.05"})
+        public double portalWallDensity;
+        @Param({"0.01"})
+        public double teleporterDensity;
+
+        byte[] levelFile;
+        String mapLayout;
+        String directionLayout;
+        PushRock pushRock;
+        int[] startState;
+        int moveIndex;
+        BinarySaveHandler binarySaveHandler = new BinarySaveHandler();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            PushRock.setDefaultDiagnosticsSink(IDiagnosticsSink.silent());
+            this.levelFile = BenchmarkLevels.getLevelFile(this.level, this.rockDensity, this.portalWallDensity, this.teleporterDensity).getBytes(StandardCharsets.UTF_8);
+            this.pushRock = new SaveHandler().loadGame(new ByteArrayInputStream(this.levelFile));
+            this.mapLayout = this.pushRock.getLevelMapLayout();
+            this.directionLayout = this.pushRock.getLevelDirectionLayout();
+            this.startState = this.pushRock.getCompactState();
+        }
+    }
+
+    //A single row with the player facing a chain of rocks. A player can push at most two rocks at once, so chains of one and two rocks
+    //are pushed one step to the right, while longer chains are measured and found too heavy to push.
+    @State(Scope.Thread)
+    public static class ChainFixture {
+        @Param({"1", "2", "8", "32"})
+        public int chainLength;
+
+        PushRock pushRock;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            PushRock.setDefaultDiagnosticsSink(IDiagnosticsSink.silent());
+            String mapLayout = "p" + "r".repeat(this.chainLength) + "  d@";
+            String directionLayout = "r".repeat(this.chainLength + 1) + "g";
+            this.pushRock = new PushRock("chain", mapLayout, directionLayout);
+        }
+    }
+
+    //Moves the player around in a fixed cycle of directions. Levels completed along the way are restored to their start state.
+    @Benchmark
+    public boolean movePlayer(LevelFixture fixture) {
+        PushRock pushRock = fixture.pushRock;
+        if (pushRock.isGameOver()) {
+            pushRock.setCompactState(fixture.startState);
+        }
+        fixture.moveIndex = (fixture.moveIndex + 1) & 3;
+        return pushRock.movePlayer(DIRECTIONS[fixture.moveIndex]);
+    }
+
+    //Pushes the chain one step and undoes the push, which exercises finding the block chain and pushing every block in it. A chain
+    //too heavy to push is left where it is, which exercises finding the chain and refusing the push, and there is nothing to undo.
+    @Benchmark
+    public long pushChain(ChainFixture fixture) {
+        PushRock pushRock = fixture.pushRock;
+        if (pushRock.movePlayer(Direction.RIGHT)) {
+            pushRock.undo();
+        }
+        return pushRock.stateHash();
+    }
+
+    //Rebuilds the world of the level from its layouts.
+    @Benchmark
+    public PushRock buildWorld(LevelFixture fixture) {
+        return new PushRock(fixture.level, fixture.mapLayout, fixture.directionLayout);
+    }
+
+    //Rebuilds the world of an existing game, without allocating a new game.
+    @Benchmark
+    public int resetLevel(LevelFixture fixture) {
+        fixture.pushRock.resetLevel();
+        return fixture.pushRock.getMoveCount();
+    }
+
+    //Parses the level file and builds the game it describes.
+    @Benchmark
+    public PushRock loadGame(LevelFixture fixture) {
+        return new SaveHandler().loadGame(new ByteArrayInputStream(fixture.levelFile));
+    }
+
+    //Saves the game in the binary format and loads it back.
+    @Benchmark
+    public PushRock binarySaveRoundTrip(LevelFixture fixture) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
+        fixture.binarySaveHandler.saveGame(fixture.pushRock, outputStream);
+        return fixture.binarySaveHandler.loadGame(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+}
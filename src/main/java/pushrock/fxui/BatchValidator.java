@@ -0,0 +1,224 @@
+package pushrock.fxui;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+import pushrock.model.IDiagnosticsSink;
+import pushrock.model.PushRock;
+
+//Loads and validates every level file, save file, binary save and level pack under a folder tree, in parallel on a ForkJoinPool.
+//Validating a file runs the same checks as loading it in the game: the file is parsed into its sections, and the game is built,
+//which checks that the layouts are valid and, for saves, that the save is compatible with its level. The time taken by each of the
+//two is reported for every file.
+//The files are found up front, and then split in halves until a task holds a single file, so that idle workers steal the files of
+//busy ones, and a few large files do not hold up the rest.
+public class BatchValidator {
+
+    private final ForkJoinPool pool;
+
+    //Validates on the common pool, which has a worker per core.
+    public BatchValidator() {
+        this(ForkJoinPool.commonPool());
+    }
+    public BatchValidator(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool can not be null.");
+        }
+        this.pool = pool;
+    }
+
+    //A file to validate, or a single level of a level pack if the pack is not null.
+    private static class Entry {
+        private final Path file;
+        private final String path;
+        private final LevelPack pack;
+        private final String packLevelName;
+
+        private Entry(Path file, String path, LevelPack pack, String packLevelName) {
+            this.file = file;
+            this.path = path;
+            this.pack = pack;
+            this.packLevelName = packLevelName;
+        }
+    }
+
+    private class ValidationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Entry> entries;
+        private final ValidationResult[] results;
+        //Binary saves are restored on their level, which a task looks up with a handler no other task is using, as handlers are not
+        //thread safe. A task takes an idle handler when it needs one, or makes a new one if there is none, and returns it when done.
+        //The handlers, and the levels they hold, belong to a single run, so they are let go of once the run is over.
+        private final ConcurrentLinkedQueue<BinarySaveHandler> idleBinarySaveHandlers;
+        private final int from;
+        private final int to;
+
+        private ValidationTask(List<Entry> entries, ValidationResult[] results, ConcurrentLinkedQueue<BinarySaveHandler> idleBinarySaveHandlers, int from, int to) {
+            this.entries = entries;
+            this.results = results;
+            this.idleBinarySaveHandlers = idleBinarySaveHandlers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from == 1) {
+                this.results[this.from] = validate(this.entries.get(this.from), this.idleBinarySaveHandlers);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new ValidationTask(this.entries, this.results, this.idleBinarySaveHandlers, this.from, middle),
+                new ValidationTask(this.entries, this.results, this.idleBinarySaveHandlers, middle, this.to));
+        }
+    }
+
+    //Validates every file in the levels and saves resource folders. Paths are given relative to the folder holding the two.
+    public ValidationReport validateResources() throws IOException {
+        Path levelsFolder = new SaveHandler().getResourceFoldersPath("levels");
+        return this.validate(List.of(levelsFolder, levelsFolder.resolveSibling("saves")), levelsFolder.getParent());
+    }
+    //Validates every file in the given folder and its subfolders. Paths are given relative to the folder.
+    public ValidationReport validate(Path folder) throws IOException {
+        return this.validate(List.of(folder), folder);
+    }
+
+    private ValidationReport validate(List<Path> folders, Path relativeTo) throws IOException {
+        long startTime = System.nanoTime();
+        List<Entry> entries = new ArrayList<>();
+        List<ValidationResult> packErrors = new ArrayList<>();
+        for (Path file : this.findFiles(folders)) {
+            String path = relativeTo.relativize(file).toString();
+            if (!file.toString().endsWith(LevelPack.FILE_EXTENSION)) {
+                entries.add(new Entry(file, path, null, null));
+                continue;
+            }
+            //A pack is opened here, so that its levels can be validated on their own.
+            LevelPack pack;
+            try {
+                pack = LevelPack.open(file);
+            } catch (IOException | IllegalArgumentException e) {
+                packErrors.add(new ValidationResult(path, "pack", e.getMessage(), 0, 0, null, 0, 0));
+                continue;
+            }
+            for (String name : pack.getNames()) {
+                entries.add(new Entry(file, path + "!" + name, pack, name));
+            }
+        }
+        ValidationResult[] results = new ValidationResult[entries.size()];
+        if (!entries.isEmpty()) {
+            this.pool.invoke(new ValidationTask(entries, results, new ConcurrentLinkedQueue<>(), 0, results.length));
+        }
+        List<ValidationResult> allResults = new ArrayList<>(packErrors);
+        Collections.addAll(allResults, results);
+        allResults.sort((one, two) -> one.getPath().compareTo(two.getPath()));
+        return new ValidationReport(allResults, this.pool.getParallelism(), System.nanoTime() - startTime);
+    }
+
+    private List<Path> findFiles(List<Path> folders) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path folder : folders) {
+            if (!Files.isDirectory(folder)) {
+                throw new IllegalArgumentException("Could not find the folder: " + folder);
+            }
+            try (Stream<Path> folderStream = Files.walk(folder)) {
+                folderStream.filter(Files::isRegularFile).forEach(files::add);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private ValidationResult validate(Entry entry, ConcurrentLinkedQueue<BinarySaveHandler> idleBinarySaveHandlers) {
+        if (entry.file.toString().endsWith(".sav") && entry.pack == null) {
+            return this.validateBinarySave(entry, idleBinarySaveHandlers);
+        }
+        String type = entry.pack != null ? "pack level" : "unknown";
+        long parseNanos = -1;
+        long startTime = System.nanoTime();
+        try (InputStream inputStream = entry.pack == null ? new BufferedInputStream(Files.newInputStream(entry.file)) : null) {
+            GameFileParser parser = entry.pack != null ? entry.pack.openLevel(entry.packLevelName)
+                : new GameFileParser(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            parser.parse();
+            parseNanos = System.nanoTime() - startTime;
+            if (entry.pack == null) {
+                type = parser.isSave() ? "save" : "level";
+            }
+            startTime = System.nanoTime();
+            PushRock pushRock = parser.buildGame();
+            return new ValidationResult(entry.path, type, null, parseNanos, System.nanoTime() - startTime, pushRock.getLevelName(), pushRock.getWidth(), pushRock.getHeight());
+        } catch (IOException | RuntimeException e) {
+            //Any exception makes the file invalid, so that one file the game fails on in an unexpected way does not stop the run.
+            //Errors in parsing are timed as parse time, and errors in building as build time.
+            long errorNanos = System.nanoTime() - startTime;
+            if (parseNanos == -1) {
+                return new ValidationResult(entry.path, type, e.getMessage(), errorNanos, 0, null, 0, 0);
+            }
+            return new ValidationResult(entry.path, type, e.getMessage(), parseNanos, errorNanos, null, 0, 0);
+        }
+    }
+    private ValidationResult validateBinarySave(Entry entry, ConcurrentLinkedQueue<BinarySaveHandler> idleBinarySaveHandlers) {
+        long startTime = System.nanoTime();
+        BinarySaveHandler binarySaveHandler = idleBinarySaveHandlers.poll();
+        if (binarySaveHandler == null) {
+            binarySaveHandler = new BinarySaveHandler();
+        }
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(entry.file))) {
+            PushRock pushRock = binarySaveHandler.loadGame(inputStream);
+            return new ValidationResult(entry.path, "binary save", null, System.nanoTime() - startTime, 0, pushRock.getLevelName(), pushRock.getWidth(), pushRock.getHeight());
+        } catch (IOException | RuntimeException e) {
+            return new ValidationResult(entry.path, "binary save", e.getMessage(), System.nanoTime() - startTime, 0, null, 0, 0);
+        }
+        finally {
+            idleBinarySaveHandlers.add(binarySaveHandler);
+        }
+    }
+
+    //Validates the folders given as arguments, or the levels and saves resource folders if none are given, and prints the report as
+    //JSON lines, see ValidationReport.writeJson(..). The option --parallelism=N validates on a pool of N workers instead of the common
+    //pool. Exits with status 1 if a file was invalid.
+    public static void main(String[] args) throws IOException {
+        PushRock.setDefaultDiagnosticsSink(IDiagnosticsSink.silent());
+        List<Path> folders = new ArrayList<>();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (String argument : args) {
+            if (argument.startsWith("--parallelism=")) {
+                pool = new ForkJoinPool(Integer.parseInt(argument.substring("--parallelism=".length())));
+            }
+            else {
+                folders.add(Path.of(argument));
+            }
+        }
+        BatchValidator validator = new BatchValidator(pool);
+        PrintStream out = System.out;
+        boolean isEveryFileValid = true;
+        if (folders.isEmpty()) {
+            ValidationReport report = validator.validateResources();
+            report.writeJson(out);
+            isEveryFileValid = report.getInvalidCount() == 0;
+        }
+        for (Path folder : folders) {
+            ValidationReport report = validator.validate(folder);
+            report.writeJson(out);
+            isEveryFileValid &= report.getInvalidCount() == 0;
+        }
+        out.flush();
+        if (!isEveryFileValid) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package pushrock.fxui;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import pushrock.model.PushRock;
+
+//Saves and loads games in a compact binary format. Unlike the text format written by SaveHandler, a binary save does not hold the
+//layouts of its level, only a reference to the level and the game's compact state (see PushRock.getCompactState()), which keeps
+//saves small. A save is restored on a copy of its level's game, which is built and validated from the level's layouts like any new
+//game, and the saved state is checked by PushRock.setCompactState(..) before it is restored. Levels themselves are still text files,
+//and are loaded through SaveHandler.
+//The format, written with DataOutputStream, is:
+//  magic         4 bytes, "PRSB"
+//  version       1 byte, FORMAT_VERSION
+//  level name    modified UTF-8, as written by writeUTF(..)
+//  level hash    8 bytes, see PushRock.levelHash()
+//  move count    4 bytes
+//  state length  4 bytes, followed by that many 4 byte values of the compact state
+//  checksum      4 bytes, the CRC32 of every byte before it
+public class BinarySaveHandler implements ISaveHandler {
+
+    private static final int MAGIC = 0x50525342;
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".sav";
+
+    private final SaveHandler textSaveHandler = new SaveHandler();
+    //Games in the start state of every level seen so far, by the hash of their level. A save is restored on a copy of its level's game.
+    private final Map<Long, PushRock> levels = new HashMap<>();
+    private boolean isLevelsFolderLoaded;
+
+    @Override
+    public List<String> getLevelNames() {
+        return this.textSaveHandler.getLevelNames();
+    }
+
+    @Override
+    public Path getResourceFoldersPath(String folderName) {
+        return this.textSaveHandler.getResourceFoldersPath(folderName);
+    }
+
+    @Override
+    public PushRock loadGame(InputStream inputStream) throws IllegalArgumentException {
+        var checkedInputStream = new CheckedInputStream(inputStream, new CRC32());
+        var dataInputStream = new DataInputStream(checkedInputStream);
+        try {
+            if (dataInputStream.readInt() != MAGIC) {
+                throw new IllegalArgumentException("File is not a binary save: the file does not start with the expected header.");
+            }
+            int version = dataInputStream.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Binary save format version " + version + " is not supported, expected version " + FORMAT_VERSION + ".");
+            }
+            String levelName = dataInputStream.readUTF();
+            long levelHash = dataInputStream.readLong();
+            int moveCount = dataInputStream.readInt();
+            int stateLength = dataInputStream.readInt();
+            if (stateLength < 0) {
+                throw new IllegalArgumentException("Binary save is corrupted: the state length was negative.");
+            }
+            PushRock level = this.getLevel(levelName, levelHash);
+            if (stateLength != level.getCompactStateLength()) {
+                throw new IllegalArgumentException("Binary save is corrupted: the state length does not match the level '" + levelName + "'.");
+            }
+            int[] state = new int[stateLength];
+            for (int i = 0; i < stateLength; i++) {
+                state[i] = dataInputStream.readInt();
+            }
+            int expectedChecksum = (int) checkedInputStream.getChecksum().getValue();
+            if (dataInputStream.readInt() != expectedChecksum) {
+                throw new IllegalArgumentException("Binary save is corrupted: the checksum does not match its content.");
+            }
+            PushRock pushRock = level.getCopy();
+            pushRock.setCompactState(state);
+            pushRock.setMoveCount(moveCount);
+            return pushRock;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Binary save is corrupted: the file ended unexpectedly.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Levels are text files, and are loaded as such.
+    @Override
+    public PushRock loadGame(String fileName, boolean isSave) throws FileNotFoundException, IOException {
+        if (!isSave) {
+            return this.textSaveHandler.loadGame(fileName, false);
+        }
+        if (!fileName.endsWith(FILE_EXTENSION)) {
+            fileName = fileName + FILE_EXTENSION;
+        }
+        return this.loadGame(this.getResourceFoldersPath("saves").resolve(fileName));
+    }
+    @Override
+    public PushRock loadGame(Path filePath) throws FileNotFoundException, IOException {
+        if (filePath.toString().length() < 1) {
+            throw new IllegalArgumentException("A file path or a file name of at least one character is needed to load.");
+        }
+        if (!filePath.toString().contains("\\")) {
+            Path savePathOld = filePath;
+            if (!savePathOld.toString().endsWith(FILE_EXTENSION)) {
+                savePathOld = Paths.get(filePath.toString() + FILE_EXTENSION);
+            }
+            filePath = this.getResourceFoldersPath("saves").resolve(savePathOld);
+        }
+        try (var inputStream = new FileInputStream(filePath.toFile())) {
+            return this.loadGame(inputStream);
+        }
+    }
+
+    //Completed games can be saved as well, as the compact state includes whether the game is over. This lets a save be written after every move.
+    @Override
+    public void saveGame(PushRock pushRock, OutputStream outputStream) {
+        long levelHash = pushRock.levelHash();
+        if (!this.levels.containsKey(levelHash)) {
+            this.levels.put(levelHash, new PushRock(pushRock.getLevelName(), pushRock.getLevelMapLayout(), pushRock.getLevelDirectionLayout()));
+        }
+        var checkedOutputStream = new CheckedOutputStream(outputStream, new CRC32());
+        var dataOutputStream = new DataOutputStream(checkedOutputStream);
+        try {
+            dataOutputStream.writeInt(MAGIC);
+            dataOutputStream.writeByte(FORMAT_VERSION);
+            dataOutputStream.writeUTF(pushRock.getLevelName());
+            dataOutputStream.writeLong(levelHash);
+            dataOutputStream.writeInt(pushRock.getMoveCount());
+            int[] state = pushRock.getCompactState();
+            dataOutputStream.writeInt(state.length);
+            for (int value : state) {
+                dataOutputStream.writeInt(value);
+            }
+            dataOutputStream.writeInt((int) checkedOutputStream.getChecksum().getValue());
+            dataOutputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    @Override
+    public void saveGame(PushRock pushRock, Path savePath) throws IOException {
+        if (savePath.toString().length() < 1) {
+            throw new IllegalArgumentException("A file path or a file name of at least one character is needed to save.");
+        }
+        if (!savePath.toString().contains("\\")) {
+            Path savePathOld = savePath;
+            savePath = this.getResourceFoldersPath("saves").resolve(savePathOld + FILE_EXTENSION);
+        }
+        try (var outputStream = new FileOutputStream(savePath.toFile())) {
+            this.saveGame(pushRock, outputStream);
+        }
+    }
+
+    //Returns the start state game of the level with the given hash. Levels of games saved by this handler are already known, any
+    //other level is looked for among the levels of the levels folder, which are then all loaded once.
+    private PushRock getLevel(String levelName, long levelHash) {
+        if (!this.levels.containsKey(levelHash) && !this.isLevelsFolderLoaded) {
+            this.isLevelsFolderLoaded = true;
+            for (String levelFileName : this.getLevelNames()) {
+                try {
+                    PushRock level = this.textSaveHandler.loadGame(levelFileName, false);
+                    this.levels.putIfAbsent(level.levelHash(), level);
+                } catch (IOException | IllegalArgumentException e) {
+                    //Files that are not valid levels can not be referenced by a save, and are skipped.
+                }
+            }
+        }
+        PushRock level = this.levels.get(levelHash);
+        if (level == null) {
+            throw new IllegalArgumentException("Could not find the level '" + levelName + "' of the binary save, or the level has been changed since the game was saved.");
+        }
+        return level;
+    }
+}
@@ -0,0 +1,123 @@
+package pushrock.fxui;
+
+import pushrock.model.Direction;
+
+//The colors and borders blocks are drawn with, shared by the map renderers. Colors are given as CSS hex colors.
+//A block is drawn as its background color, with a border on one side for directed blocks, or on every side for pressure plates.
+final class BlockStyle {
+
+    private BlockStyle() {
+    }
+
+    static String getBackgroundColor(char type, boolean state) {
+        switch(type) {
+            //Floor
+            case ' ':
+                return "#168c4d";
+            //Wall
+            case 'w':
+                return "#b5b5b5";
+            //PressurePlate
+            case 'd':
+                return "#21cc70";
+            //Teleporter
+            case 't':
+                if (state) {
+                    return "#d973ff";
+                }
+                else {
+                    return "#bd0dff";
+                }
+            //Player
+            case 'p':
+                if (state) {
+                    return "#356bc6";
+                }
+                else {
+                    return "#2d5aa6";
+                }
+            //Rock
+            case 'r':
+                if (state) {
+                    return "#5b5b5b";
+                }
+                else {
+                    return "#454545";
+                }
+            //Portal1
+            case 'v':
+                if (state) {
+                    return "#00adef";
+                }
+                else {
+                    return "#282bfc";
+                }
+            //Portal2
+            case 'u':
+                if (state) {
+                    return "#ff6a00";
+                }
+                else {
+                    return "#c95604";
+                }
+            //A default color is set for any other type, which should only be used in the case that a new type has been introduced
+            //and the renderers have yet to assign it a color of its own.
+            default:
+                return "#84786a";
+        }
+    }
+
+    static String getBorderColor(char type, boolean state) {
+        if (type == 'd') {
+            return "#5b5b5b";
+        }
+        else if (type == 'v' || type == 'u') {
+            return "#b5b5b5";
+        }
+        else if (type == 'p') {
+            if (state) {
+                return "#245097";
+            }
+            else {
+                return "#204683";
+            }
+        }
+        return "#24d628";
+    }
+
+    static int getBorderWidth(char type, int blockSize) {
+        switch(type) {
+            case 'd':
+                return blockSize * 1/8;
+            //Player
+            case 'p':
+                return blockSize * 3/4;
+            //Portal1
+            case 'v':
+                return blockSize * 1/2;
+            //Portal2
+            case 'u':
+                return blockSize * 1/2;
+            //Other
+            default:
+                return 0;
+        }
+    }
+
+    //Returns the border widths of a directed block facing the given direction, as {top, right, bottom, left}. The border is drawn
+    //on the side opposite of the direction the block is facing.
+    static int[] getDirectedBorderWidths(Direction direction, int borderWidth) {
+        switch (direction) {
+            case UP:
+                return new int[] {0, 0, borderWidth, 0};
+            case DOWN:
+                return new int[] {borderWidth, 0, 0, 0};
+            case LEFT:
+                return new int[] {0, borderWidth, 0, 0};
+            case RIGHT:
+                return new int[] {0, 0, 0, borderWidth};
+            default:
+                throw new IllegalArgumentException("Unknown direction: " + direction);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package pushrock.fxui;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import pushrock.model.BoardView;
+import pushrock.model.Direction;
+import pushrock.model.PushRock;
+
+//Draws the map onto a single Canvas. The colors and border widths of every block type and state are looked up in tables built up
+//front, so drawing a block is a few rectangle fills, without any CSS being parsed or any nodes being styled.
+public class CanvasMapRenderer implements IMapRenderer {
+
+    //Block types are characters, and the tables hold an entry for both states of every character below TYPE_COUNT.
+    private static final int TYPE_COUNT = 128;
+
+    private final Color[] backgroundColors = new Color[TYPE_COUNT * 2];
+    private final Color[] borderColors = new Color[TYPE_COUNT * 2];
+    private final int[] borderWidths = new int[TYPE_COUNT];
+
+    private Canvas canvas;
+    private GraphicsContext graphicsContext;
+    private PushRock pushRock;
+    private int blockSize;
+
+    public CanvasMapRenderer() {
+        for (char type = 0; type < TYPE_COUNT; type++) {
+            for (int state = 0; state < 2; state++) {
+                this.backgroundColors[getStyleIndex(type, state == 1)] = Color.web(BlockStyle.getBackgroundColor(type, state == 1));
+                this.borderColors[getStyleIndex(type, state == 1)] = Color.web(BlockStyle.getBorderColor(type, state == 1));
+            }
+        }
+    }
+
+    private static int getStyleIndex(char type, boolean state) {
+        return (type << 1) | (state ? 1 : 0);
+    }
+
+    @Override
+    public void createMap(Pane map, PushRock pushRock, int blockSize) {
+        this.pushRock = pushRock;
+        this.blockSize = blockSize;
+        for (char type = 0; type < TYPE_COUNT; type++) {
+            this.borderWidths[type] = BlockStyle.getBorderWidth(type, blockSize);
+        }
+        this.canvas = new Canvas(pushRock.getWidth() * blockSize, pushRock.getHeight() * blockSize);
+        this.graphicsContext = this.canvas.getGraphicsContext2D();
+        map.getChildren().setAll(this.canvas);
+    }
+
+    @Override
+    public void drawMap() {
+        for (int y = 0; y < this.pushRock.getHeight(); y++) {
+            for (int x = 0; x < this.pushRock.getWidth(); x++) {
+                this.drawBlock(x, y);
+            }
+        }
+    }
+
+    @Override
+    public void drawChangedBlocks() {
+        if (this.pushRock.isEveryCellChanged()) {
+            this.drawMap();
+            return;
+        }
+        for (int i = 0; i < this.pushRock.getChangedCellCount(); i++) {
+            int cell = this.pushRock.getChangedCell(i);
+            this.drawBlock(cell % this.pushRock.getWidth(), cell / this.pushRock.getWidth());
+        }
+    }
+
+    //Draws the block at the given column and row of the map, where rows are counted downwards from the top of the map.
+    private void drawBlock(int column, int row) {
+        BoardView boardView = this.pushRock.getBoardView();
+        char type = boardView.typeAt(column, -row);
+        //Types outside of the tables are drawn with the default style, which every type without a style of its own has.
+        int styleIndex = type < TYPE_COUNT ? getStyleIndex(type, boardView.stateAt(column, -row)) : getStyleIndex('?', false);
+        int borderWidth = type < TYPE_COUNT ? this.borderWidths[type] : 0;
+        double left = column * this.blockSize;
+        double top = row * this.blockSize;
+
+        this.graphicsContext.setFill(this.backgroundColors[styleIndex]);
+        this.graphicsContext.fillRect(left, top, this.blockSize, this.blockSize);
+        if (borderWidth == 0) {
+            return;
+        }
+        this.graphicsContext.setFill(this.borderColors[styleIndex]);
+        Direction direction = boardView.directionAt(column, -row);
+        if (direction != null) {
+            //The border is on the side opposite of the direction the block is facing, see BlockStyle.getDirectedBorderWidths(..).
+            if (direction == Direction.UP) {
+                this.fillBorder(left, top, 0, 0, borderWidth, 0);
+            }
+            else if (direction == Direction.DOWN) {
+                this.fillBorder(left, top, borderWidth, 0, 0, 0);
+            }
+            else if (direction == Direction.LEFT) {
+                this.fillBorder(left, top, 0, borderWidth, 0, 0);
+            }
+            else if (direction == Direction.RIGHT) {
+                this.fillBorder(left, top, 0, 0, 0, borderWidth);
+            }
+        }
+        else if (type == 'd') {
+            this.fillBorder(left, top, borderWidth, borderWidth, borderWidth, borderWidth);
+        }
+    }
+    //Fills the border of the block at the given position, with the given widths for its top, right, bottom and left side.
+    private void fillBorder(double left, double top, int topWidth, int rightWidth, int bottomWidth, int leftWidth) {
+        if (topWidth > 0) {
+            this.graphicsContext.fillRect(left, top, this.blockSize, topWidth);
+        }
+        if (rightWidth > 0) {
+            this.graphicsContext.fillRect(left + this.blockSize - rightWidth, top, rightWidth, this.blockSize);
+        }
+        if (bottomWidth > 0) {
+            this.graphicsContext.fillRect(left, top + this.blockSize - bottomWidth, this.blockSize, bottomWidth);
+        }
+        if (leftWidth > 0) {
+            this.graphicsContext.fillRect(left, top, leftWidth, this.blockSize);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package pushrock.fxui;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+import pushrock.model.PushRock;
+
+//Reads a level or save file and builds the game it describes. A file is made out of sections, where each section starts with a
+//title line of the form "#Title:" and holds the lines that follow it, up until the next title line. Lines may be separated by
+//either "\n" or "\r\n".
+//The file is read in a single pass over the given reader, and the lines of a section are copied straight into its content, with
+//the line separators PushRock stores its layouts with. Format errors are reported with the line and column they were found at.
+class GameFileParser {
+
+    private static final int FILE_TYPE = 0;
+    private static final int LEVEL_NAME = 1;
+    private static final int LEVEL_MAP_LAYOUT = 2;
+    private static final int LEVEL_DIRECTION_LAYOUT = 3;
+    private static final int SAVE_MAP_LAYOUT = 4;
+    private static final int SAVE_DIRECTION_LAYOUT = 5;
+    private static final int SAVE_MOVE_COUNT = 6;
+    private static final String[] SECTION_TITLES = {
+        "File type", "Level name", "Level map layout", "Level direction layout", "Save map layout", "Save direction layout", "Save move count"
+    };
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int bufferLength;
+    private int bufferIndex;
+    //Line and column of the next character to be read, both counted from 1.
+    private int line = 1;
+    private int column = 1;
+
+    private final String[] sections = new String[SECTION_TITLES.length];
+    private int saveMoveCount;
+    private final int[] sectionLines = new int[SECTION_TITLES.length];
+    private final StringBuilder content = new StringBuilder();
+    private final StringBuilder title = new StringBuilder();
+
+    GameFileParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    //Reads the whole file and builds the game it describes.
+    PushRock parseGame() {
+        this.parse();
+        return this.buildGame();
+    }
+
+    //Reads the whole file and checks that it has the sections of its file type, without building the game, which checks the layouts.
+    //Reading and building are kept apart so that they can be timed on their own, see BatchValidator.
+    void parse() {
+        this.readSections();
+        String fileType = this.sections[FILE_TYPE];
+        if (fileType == null) {
+            throw new IllegalArgumentException("File is not formated correctly: could not find file type");
+        }
+        if (this.sections[LEVEL_NAME] == null) {
+            throw new IllegalArgumentException("File is not formated correctly: could not find level name");
+        }
+        if (this.sections[LEVEL_MAP_LAYOUT] == null) {
+            throw new IllegalArgumentException("File is not formated correctly: could not find level map layout");
+        }
+        if (this.sections[LEVEL_DIRECTION_LAYOUT] == null) {
+            throw new IllegalArgumentException("File is not formated correctly: could not find level direction layout");
+        }
+        if (fileType.equals("Level")) {
+            for (int section = SAVE_MAP_LAYOUT; section <= SAVE_MOVE_COUNT; section++) {
+                if (this.sections[section] != null) {
+                    throw this.createSectionException(section, "a level-file should not contain a section titled '" + SECTION_TITLES[section] + "'");
+                }
+            }
+            return;
+        }
+        else if (fileType.equals("Save")) {
+            if (this.sections[SAVE_MAP_LAYOUT] == null) {
+                throw new IllegalArgumentException("File is not formated correctly: could not find save map layout");
+            }
+            if (this.sections[SAVE_DIRECTION_LAYOUT] == null) {
+                throw new IllegalArgumentException("File is not formated correctly: could not find save direction layout");
+            }
+            if (this.sections[SAVE_MOVE_COUNT] == null) {
+                throw new IllegalArgumentException("File is not formated correctly: could not find save move count");
+            }
+            try {
+                this.saveMoveCount = Integer.parseInt(this.sections[SAVE_MOVE_COUNT]);
+            } catch (NumberFormatException e) {
+                throw new NumberFormatException("File is not formated correctly at line " + this.sectionLines[SAVE_MOVE_COUNT] + ", column 1: save move count must be a whole number, but was: '" + this.sections[SAVE_MOVE_COUNT] + "'");
+            }
+            return;
+        }
+        throw this.createSectionException(FILE_TYPE, "file type must be either 'Level' or 'Save', but was: " + fileType);
+    }
+    //Builds the game of a file that has been parsed, which throws IllegalArgumentException if its layouts are not valid, or if the
+    //layouts of a save are not compatible with its level.
+    //The sections are handed over as strings instead of being filled into the game's grids here, as a game keeps the layouts of its
+    //level as strings anyway, to reset the level, make copies and hash the level with. Filling the grids here as well would duplicate
+    //the layout checks PushRock makes before filling its grids from those strings.
+    PushRock buildGame() {
+        if (this.isSave()) {
+            return new PushRock(this.sections[LEVEL_NAME], this.sections[LEVEL_MAP_LAYOUT], this.sections[LEVEL_DIRECTION_LAYOUT],
+                this.sections[SAVE_MAP_LAYOUT], this.sections[SAVE_DIRECTION_LAYOUT], this.saveMoveCount);
+        }
+        return new PushRock(this.sections[LEVEL_NAME], this.sections[LEVEL_MAP_LAYOUT], this.sections[LEVEL_DIRECTION_LAYOUT]);
+    }
+    boolean isSave() {
+        return "Save".equals(this.sections[FILE_TYPE]);
+    }
+
+    //Reads every section of the file into sections, stripped of trailing white space.
+    private void readSections() {
+        int currentSection = -1;
+        boolean isLineStart = true;
+        int character;
+        while ((character = this.read()) != -1) {
+            if (isLineStart && character == '#') {
+                this.endSection(currentSection);
+                currentSection = this.readTitle();
+                continue;
+            }
+            isLineStart = false;
+            if (character == '\r' && this.peek() == '\n') {
+                continue;
+            }
+            if (character == '\n') {
+                isLineStart = true;
+                if (currentSection != -1) {
+                    this.content.append(System.lineSeparator());
+                }
+                continue;
+            }
+            if (currentSection != -1) {
+                this.content.append((char) character);
+            }
+            else if (!Character.isWhitespace(character)) {
+                throw this.createException(this.line, this.column - 1, "expected a section title starting with '#'");
+            }
+        }
+        this.endSection(currentSection);
+    }
+    //Reads the rest of a title line, right after its '#', and returns the section it starts. The next character read afterwards
+    //is the first character of the section's content.
+    private int readTitle() {
+        int titleLine = this.line;
+        int titleColumn = this.column;
+        this.title.setLength(0);
+        int character;
+        while ((character = this.read()) != ':') {
+            if (character == -1 || character == '\n' || character == '\r') {
+                throw this.createException(titleLine, titleColumn + this.title.length(), "the section title must end with ':'");
+            }
+            this.title.append((char) character);
+        }
+        int section = -1;
+        for (int i = 0; i < SECTION_TITLES.length; i++) {
+            if (SECTION_TITLES[i].contentEquals(this.title)) {
+                section = i;
+            }
+        }
+        if (section == -1) {
+            throw this.createException(titleLine, titleColumn, "unknown section title '" + this.title + "'");
+        }
+        if (this.sections[section] != null) {
+            throw this.createException(titleLine, titleColumn, "the section '" + this.title + "' is given more than once");
+        }
+        //Nothing but white space may follow the title on its line.
+        while ((character = this.read()) != -1 && character != '\n') {
+            if (!Character.isWhitespace(character)) {
+                throw this.createException(this.line, this.column - 1, "unexpected character '" + (char) character + "' after the section title");
+            }
+        }
+        this.sections[section] = "";
+        this.sectionLines[section] = this.line;
+        this.content.setLength(0);
+        return section;
+    }
+    private void endSection(int section) {
+        if (section == -1) {
+            return;
+        }
+        int length = this.content.length();
+        while (length > 0 && Character.isWhitespace(this.content.charAt(length - 1))) {
+            length--;
+        }
+        this.content.setLength(length);
+        this.sections[section] = this.content.toString();
+    }
+
+    //Returns the next character of the file, or -1 at the end of the file, and moves the line and column past it.
+    private int read() {
+        int character = this.peek();
+        if (character == -1) {
+            return -1;
+        }
+        this.bufferIndex++;
+        if (character == '\n') {
+            this.line++;
+            this.column = 1;
+        }
+        else {
+            this.column++;
+        }
+        return character;
+    }
+    //Returns the next character of the file without reading it, or -1 at the end of the file.
+    private int peek() {
+        if (this.bufferIndex == this.bufferLength) {
+            try {
+                this.bufferLength = this.reader.read(this.buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.bufferIndex = 0;
+            if (this.bufferLength <= 0) {
+                this.bufferLength = 0;
+                return -1;
+            }
+        }
+        return this.buffer[this.bufferIndex];
+    }
+
+    private IllegalArgumentException createSectionException(int section, String message) {
+        return this.createException(this.sectionLines[section], 1, message);
+    }
+    private IllegalArgumentException createException(int line, int column, String message) {
+        return new IllegalArgumentException("File is not formated correctly at line " + line + ", column " + column + ": " + message);
+    }
+}
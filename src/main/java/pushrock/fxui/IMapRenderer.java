@@ -0,0 +1,17 @@
+package pushrock.fxui;
+
+import javafx.scene.layout.Pane;
+import pushrock.model.PushRock;
+
+public interface IMapRenderer {
+
+    //Replaces the contents of the map pane with what is needed to draw the given game, with every block being blockSize pixels wide.
+    public void createMap(Pane map, PushRock pushRock, int blockSize);
+
+    //Draws the current state of the game the map was last created for.
+    public void drawMap();
+
+    //Draws only the blocks the game reports as changed since its observers were last notified, see AbstractObservablePushRock.
+    public void drawChangedBlocks();
+
+}
@@ -0,0 +1,225 @@
+package pushrock.fxui;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pushrock.model.PushRock;
+
+//A single file holding many level files, so that listing and loading levels does not have to open a file per level.
+//The pack is memory-mapped when opened, and only its table of contents is read up front. Loading a level parses its level file
+//straight from the mapped pack, without reading any of the other levels.
+//The format, written with DataOutputStream, is:
+//  magic         4 bytes, "PRLP"
+//  version       1 byte, FORMAT_VERSION
+//  level count   4 bytes, followed by a table of contents entry for each level:
+//    name          modified UTF-8, the name the level is listed and loaded by, which is its file name without ".txt"
+//    level name    modified UTF-8, the name given in the level file
+//    width         4 bytes
+//    height        4 bytes
+//    offset        8 bytes, of the level file from the end of the table of contents
+//    length        4 bytes, of the level file in bytes
+//  level files   the UTF-8 level files, back to back
+public class LevelPack {
+
+    public static final String FILE_EXTENSION = ".pack";
+    private static final int MAGIC = 0x50524C50;
+    private static final int FORMAT_VERSION = 1;
+
+    private final MappedByteBuffer buffer;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<String> levelNames = new ArrayList<>();
+    private final List<int[]> dimensions = new ArrayList<>();
+    private final List<long[]> ranges = new ArrayList<>();
+
+    private LevelPack(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("File is not a level pack: the file does not start with the expected header.");
+        }
+        int version = buffer.get() & 0xFF;
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Level pack format version " + version + " is not supported, expected version " + FORMAT_VERSION + ".");
+        }
+        int levelCount = buffer.getInt();
+        if (levelCount < 0) {
+            throw new IllegalArgumentException("Level pack is corrupted: the level count was negative.");
+        }
+        for (int i = 0; i < levelCount; i++) {
+            String name = readUTF(buffer);
+            this.levelNames.add(readUTF(buffer));
+            this.dimensions.add(new int[] {buffer.getInt(), buffer.getInt()});
+            this.ranges.add(new long[] {buffer.getLong(), buffer.getInt()});
+            if (this.indices.putIfAbsent(name, i) != null) {
+                throw new IllegalArgumentException("Level pack is corrupted: the level '" + name + "' is given more than once.");
+            }
+            this.names.add(name);
+        }
+        //The offsets are made relative to the start of the pack, now that the end of the table of contents is known.
+        int levelFilesStart = buffer.position();
+        for (int i = 0; i < levelCount; i++) {
+            long[] range = this.ranges.get(i);
+            range[0] += levelFilesStart;
+            if (range[0] < levelFilesStart || range[1] < 0 || range[0] + range[1] > buffer.capacity()) {
+                throw new IllegalArgumentException("Level pack is corrupted: the level '" + this.names.get(i) + "' lies outside of the pack.");
+            }
+        }
+    }
+
+    //Maps the pack at the given path and reads its table of contents.
+    public static LevelPack open(Path packPath) throws FileNotFoundException, IOException {
+        if (!Files.exists(packPath)) {
+            throw new FileNotFoundException("Could not find the level pack " + packPath);
+        }
+        try (var channel = FileChannel.open(packPath, StandardOpenOption.READ)) {
+            //The mapping stays valid after the channel is closed.
+            return new LevelPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Level pack is corrupted: the table of contents ended unexpectedly.", e);
+        }
+    }
+
+    //Writes a pack of the given level files. Every level is loaded once, so that a pack only ever holds valid levels.
+    public static void write(List<Path> levelFilePaths, OutputStream outputStream) throws IOException {
+        SaveHandler saveHandler = new SaveHandler();
+        List<String> names = new ArrayList<>();
+        List<byte[]> levelFiles = new ArrayList<>();
+        List<PushRock> levels = new ArrayList<>();
+        for (Path levelFilePath : levelFilePaths) {
+            String fileName = levelFilePath.getFileName().toString();
+            names.add(fileName.endsWith(".txt") ? fileName.substring(0, fileName.lastIndexOf(".")) : fileName);
+            byte[] levelFile = Files.readAllBytes(levelFilePath);
+            levelFiles.add(levelFile);
+            levels.add(saveHandler.loadGame(new ByteArrayInputStream(levelFile)));
+        }
+        var dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeByte(FORMAT_VERSION);
+        dataOutputStream.writeInt(levels.size());
+        long offset = 0;
+        for (int i = 0; i < levels.size(); i++) {
+            dataOutputStream.writeUTF(names.get(i));
+            dataOutputStream.writeUTF(levels.get(i).getLevelName());
+            dataOutputStream.writeInt(levels.get(i).getWidth());
+            dataOutputStream.writeInt(levels.get(i).getHeight());
+            dataOutputStream.writeLong(offset);
+            dataOutputStream.writeInt(levelFiles.get(i).length);
+            offset += levelFiles.get(i).length;
+        }
+        for (byte[] levelFile : levelFiles) {
+            dataOutputStream.write(levelFile);
+        }
+        dataOutputStream.flush();
+    }
+
+    //Packs every level file of the folder given as the first argument into the pack file given as the second argument.
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: LevelPack <levels folder> <pack file>");
+            return;
+        }
+        List<Path> levelFilePaths = new ArrayList<>();
+        try (var folderStream = Files.newDirectoryStream(Path.of(args[0]), "*.txt")) {
+            folderStream.forEach(levelFilePaths::add);
+        }
+        Collections.sort(levelFilePaths);
+        try (var outputStream = new BufferedOutputStream(Files.newOutputStream(Path.of(args[1])))) {
+            write(levelFilePaths, outputStream);
+        }
+    }
+
+    //Returns the names of the levels in the pack, in the order they were packed.
+    public List<String> getNames() {
+        return Collections.unmodifiableList(this.names);
+    }
+    public boolean containsLevel(String name) {
+        return this.indices.containsKey(name);
+    }
+    //Returns the name given in the level file of the level with the given name, as read from the table of contents.
+    public String getLevelName(String name) {
+        return this.levelNames.get(this.getIndex(name));
+    }
+    public int getWidth(String name) {
+        return this.dimensions.get(this.getIndex(name))[0];
+    }
+    public int getHeight(String name) {
+        return this.dimensions.get(this.getIndex(name))[1];
+    }
+
+    //Loads the level with the given name, reading only its level file from the mapped pack.
+    public PushRock loadLevel(String name) {
+        return this.openLevel(name).parseGame();
+    }
+    //Returns a parser reading the level file of the level with the given name straight from the mapped pack.
+    GameFileParser openLevel(String name) {
+        long[] range = this.ranges.get(this.getIndex(name));
+        ByteBuffer levelFile = this.buffer.slice((int) range[0], (int) range[1]);
+        return new GameFileParser(new InputStreamReader(new ByteBufferInputStream(levelFile), StandardCharsets.UTF_8));
+    }
+
+    private int getIndex(String name) {
+        Integer index = this.indices.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("The level pack does not contain a level named '" + name + "'.");
+        }
+        return index;
+    }
+
+    //Reads a string written by DataOutputStream.writeUTF(..). Level names are expected to not contain characters outside of
+    //those modified UTF-8 encodes the same way as UTF-8, which holds for every character but '\0' and supplementary characters.
+    private static String readUTF(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String string = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    //Reads the bytes of a buffer without copying them out of it first.
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, length);
+            return length;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pushrock.fxui;
+
+import javafx.scene.layout.Pane;
+import pushrock.model.BoardView;
+import pushrock.model.Direction;
+import pushrock.model.PushRock;
+
+//Draws the map as one Pane per block, styled through CSS. Every draw sets the style of every block, which makes JavaFX parse the
+//CSS of the whole map again. Kept as a fallback for CanvasMapRenderer.
+public class PaneMapRenderer implements IMapRenderer {
+
+    private Pane map;
+    private PushRock pushRock;
+    private int blockSize;
+
+    //Code inspired by Snakebird project: GameController.java method createBoard()
+    @Override
+    public void createMap(Pane map, PushRock pushRock, int blockSize) {
+        this.map = map;
+        this.pushRock = pushRock;
+        this.blockSize = blockSize;
+        //Clears out all current children objects of the map-Pane, so
+        //that the map can be rebuilt into the updated version
+        map.getChildren().clear();
+        for (int y = 0; y < pushRock.getHeight(); y++) {
+            for (int x = 0; x < pushRock.getWidth(); x++) {
+                //creates a new pane that will represent a given block
+                Pane block = new Pane();
+                //determines the positioning of the pane
+                block.setTranslateX(x * blockSize);
+                block.setTranslateY(y * blockSize);
+                //determines the size of the pane
+                block.setPrefWidth(blockSize);
+                block.setPrefHeight(blockSize);
+                //adds the pane represenation of the given block to the map-pane
+                map.getChildren().add(block);
+            }
+        }
+    }
+
+    @Override
+    public void drawMap() {
+        //for every possible block coordinate, set the background color according the block
+        //representing that specific coordinate
+        for (int y = 0; y < this.pushRock.getHeight(); y++) {
+            for (int x = 0; x < this.pushRock.getWidth(); x++) {
+                this.drawBlock(y * this.pushRock.getWidth() + x);
+            }
+        }
+    }
+
+    @Override
+    public void drawChangedBlocks() {
+        if (this.pushRock.isEveryCellChanged()) {
+            this.drawMap();
+            return;
+        }
+        for (int i = 0; i < this.pushRock.getChangedCellCount(); i++) {
+            this.drawBlock(this.pushRock.getChangedCell(i));
+        }
+    }
+
+    //Styles the pane of the block at the given cell, which is given as row * width + column.
+    private void drawBlock(int cell) {
+        String style = this.getBlockStyle(cell % this.pushRock.getWidth(), -(cell / this.pushRock.getWidth()));
+        this.map.getChildren().get(cell).setStyle(style);
+    }
+
+    private String getBlockStyle(int x, int y) {
+        BoardView boardView = this.pushRock.getBoardView();
+        char type = boardView.typeAt(x, y);
+        boolean state = boardView.stateAt(x, y);
+        Direction direction = boardView.directionAt(x, y);
+        String style = "-fx-background-color: " + BlockStyle.getBackgroundColor(type, state) + ";";
+
+        if (direction != null) {
+            style += "-fx-border-color: " + BlockStyle.getBorderColor(type, state) + ";";
+            int[] borderWidths = BlockStyle.getDirectedBorderWidths(direction, BlockStyle.getBorderWidth(type, this.blockSize));
+            style += "-fx-border-width: " + borderWidths[0] + " " + borderWidths[1] + " " + borderWidths[2] + " " + borderWidths[3] + ";";
+        }
+        else if (type == 'd') {
+            style += "-fx-border-color: " + BlockStyle.getBorderColor(type, state) + ";";
+            int borderWidth = BlockStyle.getBorderWidth(type, this.blockSize);
+            style += "-fx-border-width: " + borderWidth + " " + borderWidth + " " + borderWidth + " " + borderWidth + ";";
+        }
+        return style;
+    }
+}
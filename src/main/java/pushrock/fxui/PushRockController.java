@@ -7,6 +7,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import javafx.animation.AnimationTimer;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -26,17 +27,39 @@ import javafx.scene.layout.RowConstraints;
 import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
-import pushrock.model.BlockAbstract;
-import pushrock.model.DirectedBlock;
 import pushrock.model.AbstractObservablePushRock;
+import pushrock.model.Direction;
+import pushrock.model.GameCommand;
+import pushrock.model.GameLoop;
+import pushrock.model.GameSnapshot;
+import pushrock.model.IDiagnosticsSink;
 import pushrock.model.IObserverPushRock;
+import pushrock.model.IntervalNotifier;
 import pushrock.model.PushRock;
 
 public class PushRockController implements IObserverPushRock {
 
+    //The game shown, which mirrors the game owned by the game loop, see startGame(..). It is only ever changed on the JavaFX application
+    //thread, by applying the snapshots of the loop.
     private PushRock pushRock;
     private ISaveHandler saveHandler = new SaveHandler();
     private int blockSize;
+    //Every input is submitted as a command to the game loop, which applies it to the game it owns on a thread of its own.
+    private GameLoop gameLoop;
+    private GameSnapshot shownSnapshot;
+    //Polls the snapshots of the game loop once every frame, see showLatestSnapshot().
+    private final AnimationTimer snapshotTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            showLatestSnapshot();
+        }
+    };
+    //Queues the interval ticks of the current game, see startGame(..).
+    private IntervalNotifier gravityNotifier;
+    private static final int GRAVITY_INTERVAL = 1000;
+    //The map is drawn on a canvas, unless the system property "pushrock.paneRenderer" is set to true, in which case the map is drawn
+    //as one styled pane per block.
+    private IMapRenderer mapRenderer = Boolean.getBoolean("pushrock.paneRenderer") ? new PaneMapRenderer() : new CanvasMapRenderer();
 
     //APP
     @FXML 
@@ -136,19 +159,52 @@ public class PushRockController implements IObserverPushRock {
         levelList.addAll(this.saveHandler.getLevelNames());
         menuLevelChoiceBox.setItems(levelList);
         
-		pushRock = new PushRock(levelName, levelLayout1, directionLayout1);
-        pushRock.addObserver(this);
+        startGame(new PushRock(levelName, levelLayout1, directionLayout1));
 		createMap();
 		drawMap();
         updateLevelText();
+        snapshotTimer.start();
 	}
 
 
-	//Code inspired by Snakebird project: GameController.java method createBoard()
+    //Hands the game to a new game loop, which from then on is the only one to change it, and stops the loop and the interval ticks of
+    //the game it replaced. The game shown is a copy of the game, which follows it through the snapshots of the loop. Only the game
+    //owned by the loop logs its diagnostics, so they are not printed twice.
+    private void startGame(PushRock game) {
+        if (this.gravityNotifier != null) {
+            this.gravityNotifier.stop();
+        }
+        if (this.gameLoop != null) {
+            this.gameLoop.stop();
+        }
+        this.pushRock = game.getCopy();
+        this.pushRock.setDiagnosticsSink(IDiagnosticsSink.silent());
+        this.pushRock.addObserver(this);
+        this.gameLoop = new GameLoop(game);
+        this.shownSnapshot = this.gameLoop.getSnapshot();
+        this.gameLoop.submit(GameCommand.pauseIntervalGravity(!this.mapPage.isVisible() || this.mapPage.isDisabled()));
+        this.gravityNotifier = new IntervalNotifier(GRAVITY_INTERVAL);
+        this.gravityNotifier.addObserver(this.gameLoop);
+        this.gameLoop.start();
+        this.gravityNotifier.start();
+    }
+
+    //Brings the game shown into the state of the latest snapshot of the game loop, if it has not been shown already. The game shown
+    //then notifies this controller, which draws the blocks that changed.
+    private void showLatestSnapshot() {
+        GameSnapshot snapshot = this.gameLoop.getSnapshot();
+        if (snapshot == this.shownSnapshot) {
+            return;
+        }
+        this.shownSnapshot = snapshot;
+        snapshot.applyTo(this.pushRock);
+        if (snapshot.getErrorMessage() != null) {
+            this.appInformationText.setText(snapshot.getErrorMessage());
+            this.appInformationText.setVisible(true);
+        }
+    }
+
 	private void createMap() {
-		//Clears out all current children objects of the map-Pane, so 
-		//that the map can be rebuilt into the updated version
-		map.getChildren().clear();
         this.blockSize = 25;
         int mapWidth;
         int mapHeight; 
@@ -171,154 +227,9 @@ public class PushRockController implements IObserverPushRock {
         anchorPane.setMaxHeight(mapHeight*blockSize+controlBoxRowConstraints.getMaxHeight());
         anchorPane.setMinHeight(mapHeight*blockSize+controlBoxRowConstraints.getMaxHeight());
 
-		for (int y = 0; y < pushRock.getHeight(); y++) {
-            for (int x = 0; x < pushRock.getWidth(); x++) {
-				//creates a new pane that will represent a given block 
-                Pane block = new Pane();
-				//determines the positioning of the pane 
-                block.setTranslateX(x * blockSize);
-                block.setTranslateY(y * blockSize);
-                //determines the size of the pane 
-                block.setPrefWidth(blockSize);
-                block.setPrefHeight(blockSize);
-				//adds the pane represenation of the given block to the map-pane
-                map.getChildren().add(block);
-            }
-        }
-	}
-
-    private String getBackgroundColor(char type, boolean state) {
-        switch(type) {
-            //Floor
-            case ' ':
-                return "#168c4d";
-            //Wall
-            case 'w':
-                return "#b5b5b5";
-            //PressurePlate
-            case 'd':   
-                return "#21cc70";
-            //Teleporter
-            case 't':   
-                if (state) {
-                    return "#d973ff";
-                }
-                else {
-                    return "#bd0dff";
-                }
-            //Player
-            case 'p':   
-                if (state) {
-                    return "#356bc6";
-                }
-                else {
-                    return "#2d5aa6";
-                }
-            //Rock
-            case 'r':   
-                if (state) {
-                    return "#5b5b5b";
-                }
-                else {
-                    return "#454545";
-                }
-            //Portal1
-            case 'v':   
-                if (state) {
-                    return "#00adef";
-                }
-                else {
-                    return "#282bfc";
-                }
-            //Portal2
-            case 'u':   
-                if (state) {
-                    return "#ff6a00";
-                }
-                else {
-                    return "#c95604";
-                }
-                //A default color is set for any other type, which should only be used in the case that a new type has been introduced 
-                //and the controller has yet to assign it a color of its own.
-            default:
-                return "#84786a"; 
-        }
+        this.mapRenderer.createMap(map, pushRock, blockSize);
 	}
 
-    private String getBorderColor(char type, boolean state) {
-        if (type == 'd') {
-            return "#5b5b5b";
-        }
-        else if (type == 'v' || type == 'u') {
-            return "#b5b5b5";
-        }
-        else if (type == 'p') {
-			if (state) {
-                return "#245097";
-				
-			}
-			else {
-                return "#204683";
-			}
-		}
-        return "#24d628";
-    }
-
-    private int getBorderWidth(char type) {
-        switch(type) {
-            case 'd':
-                return this.blockSize * 1/8;
-            //Player
-            case 'p':
-                return this.blockSize * 3/4;
-            //Portal1
-            case 'v':
-                return this.blockSize * 1/2;
-            //Portal2
-            case 'u':
-                return this.blockSize * 1/2;
-            //Other
-            default:
-                return 0;
-        }
-    }
-
-    private String getBlockStyle(int x, int y) {
-        BlockAbstract blockCopy = pushRock.getTopBlockCopy(x, y);
-        char type = blockCopy.getType();
-        boolean state = blockCopy.getState();
-        String style = "-fx-background-color: " + getBackgroundColor(type, state) + ";";
-
-        if (blockCopy instanceof DirectedBlock) {
-            String direction = ((DirectedBlock) blockCopy).getDirection();
-            if (direction != null) {
-                style += "-fx-border-color: " + getBorderColor(type, state) + ";";
-                int borderWidth = getBorderWidth(type);
-    
-                switch (direction) {
-                    case "up":
-                        style += "-fx-border-width: 0 0 " + borderWidth + " 0;";
-                        break;
-                    case "down":
-                        style += "-fx-border-width: " + borderWidth + " 0 0 0;";
-                        break;
-                    case "left":
-                        style += "-fx-border-width: 0 " + borderWidth + " 0 0;";
-                        break;
-                    case "right":
-                        style += "-fx-border-width: 0 0 0 " + borderWidth + ";";
-                        break;
-                }
-            }
-        }
-        else if (type == 'd') {
-            style += "-fx-border-color: " + getBorderColor(type, state) + ";";
-            int borderWidth = getBorderWidth(type);
-            style += "-fx-border-width: " + borderWidth + " " + borderWidth + " " + borderWidth + " " + borderWidth + ";";
-        }
-        return style;
-    }
-
     //APP
     @FXML
     private void handleInformationClick() {
@@ -365,33 +276,34 @@ public class PushRockController implements IObserverPushRock {
             else if (keyEvent.getCode() == KeyCode.R) {
                 handleActionButton();
             }
+            else if (keyEvent.getCode() == KeyCode.Z) {
+                handleUndo();
+            }
+            else if (keyEvent.getCode() == KeyCode.Y) {
+                handleRedo();
+            }
         }
     }
-    private void movePlayer(String direction) {
-        try {
-            pushRock.movePlayer(direction);
-        } catch (Exception e) {
-            this.appInformationText.setText(e.getMessage());
-            this.appInformationText.setVisible(true);
-        }
+    //Inputs are applied by the game loop, which shows the commands it refused through its snapshots, see showLatestSnapshot().
+    private void submit(GameCommand command) {
+        this.gameLoop.submit(command);
     }
 
 	@FXML
     private void handleUp() {
-        this.movePlayer("up");
-        
+        this.submit(GameCommand.move(Direction.UP));
     }
     @FXML
     private void handleDown() {
-        this.movePlayer("down"); 
+        this.submit(GameCommand.move(Direction.DOWN));
     }
     @FXML
     private void handleLeft() {
-        this.movePlayer("left");
+        this.submit(GameCommand.move(Direction.LEFT));
     }
     @FXML
     private void handleRight() {
-        this.movePlayer("right");
+        this.submit(GameCommand.move(Direction.RIGHT));
     }
 
     @FXML
@@ -404,32 +316,38 @@ public class PushRockController implements IObserverPushRock {
     }
 
     @FXML private void placePortal(boolean isPortalOne) {
-        try {
-            pushRock.placePortal(isPortalOne);
-        } catch (IllegalStateException e) {
-            this.appInformationText.setVisible(true);
-            this.appInformationText.setText(e.getMessage());
-        }
+        this.submit(GameCommand.placePortal(isPortalOne));
     }
 
     @FXML
     private void handleResetLevel() {
-        pushRock.resetLevel();
+        this.submit(GameCommand.resetLevel());
         appInformationText.setText("Level reset.");
     }
 
+    @FXML
+    private void handleUndo() {
+        this.submit(GameCommand.undo());
+    }
+    @FXML
+    private void handleRedo() {
+        this.submit(GameCommand.redo());
+    }
+
     @FXML
     private void handleActionButton() {
         appInformationText.setText("This button is a placeholder that does nothing.");
     }
 
     private void pause() {
+        this.submit(GameCommand.pauseIntervalGravity(true));
         mapPage.setVisible(false);
         mapPage.setDisable(true);
         menuPage.setVisible(false);
         statusPage.setVisible(false);
     }
     private void unpause() {
+        this.submit(GameCommand.pauseIntervalGravity(false));
         mapPage.setVisible(true);
         mapPage.setDisable(false);
         menuPage.setVisible(false);
@@ -485,7 +403,7 @@ public class PushRockController implements IObserverPushRock {
             return;
         }
         try {
-            this.pushRock = this.saveHandler.loadGame(levelFileName, false);
+            startGame(this.saveHandler.loadGame(levelFileName, false));
             loadSuccessful = true;
         } catch (FileNotFoundException e) {
             this.appInformationText.setVisible(true);
@@ -498,7 +416,6 @@ public class PushRockController implements IObserverPushRock {
             this.appInformationText.setText(e.getMessage());
         }
         if (loadSuccessful) {
-            pushRock.addObserver(this);
             appInformationText.setText(levelFileName + " was loaded successfully!");
             createMap();
             drawMap();
@@ -527,9 +444,8 @@ public class PushRockController implements IObserverPushRock {
         System.out.println("Load path:" + filePath);
         if (filePath != null) {
             try {
-                this.pushRock = this.saveHandler.loadGame(filePath);
+                startGame(this.saveHandler.loadGame(filePath));
                 this.appInformationText.setText("Level-load successful.");
-                pushRock.addObserver(this);
                 createMap();
                 drawMap();
                 appInformationText.setText("Game-save loaded successfully!");
@@ -635,14 +551,11 @@ public class PushRockController implements IObserverPushRock {
     }
 
 	private void drawMap() {
-		//for every possible block coordinate, set the background color according the block
-		//representing that specific coordinate
-		for (int y = 0; y < pushRock.getHeight(); y++) {
-            for (int x = 0; x < pushRock.getWidth(); x++) {
-                String style = getBlockStyle(x, -y);
-                map.getChildren().get(y * pushRock.getWidth() + x).setStyle(style);
-            }
-        }
+        this.mapRenderer.drawMap();
+        this.updateGameStatus();
+    }
+
+    private void updateGameStatus() {
         this.updateScore();
         if (this.pushRock.isGameOver()) {
             this.handleScore();
@@ -654,8 +567,10 @@ public class PushRockController implements IObserverPushRock {
 
     @Override
     public void update(AbstractObservablePushRock observable) {
+        //Only the blocks that changed since the last update are drawn again.
         if (observable == this.pushRock) {
-            this.drawMap();
+            this.mapRenderer.drawChangedBlocks();
+            this.updateGameStatus();
         }
     }
 }   
@@ -6,21 +6,35 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
-import pushrock.model.BlockAbstract;
-import pushrock.model.DirectedBlock;
+import pushrock.model.BoardSerializer;
+import pushrock.model.IDiagnosticsSink;
 import pushrock.model.PushRock;
 
 public class SaveHandler implements ISaveHandler {
 
+    //The level packs in the levels folder, opened the first time they are needed. See LevelPack.
+    private List<LevelPack> levelPacks;
+    //Receives the reports of level packs that could not be opened, as PushRock games report their diagnostics.
+    private IDiagnosticsSink diagnosticsSink = IDiagnosticsSink.console();
+
+    public void setDiagnosticsSink(IDiagnosticsSink diagnosticsSink) {
+        if (diagnosticsSink == null) {
+            throw new IllegalArgumentException("Diagnostics sink can not be null, use IDiagnosticsSink.silent() to discard diagnostic output.");
+        }
+        this.diagnosticsSink = diagnosticsSink;
+    }
+
+    //Levels are both the level files in the levels folder and the levels of the level packs in it.
     @Override
     public List<String> getLevelNames() {
         Path levelsFolderPath = getResourceFoldersPath("levels");
@@ -32,102 +46,47 @@ public class SaveHandler implements ISaveHandler {
                 levelFileNames.add(fileName.substring(0, fileName.lastIndexOf(".")));
             }
         }
+        for (LevelPack levelPack : this.getLevelPacks()) {
+            for (String levelName : levelPack.getNames()) {
+                if (!levelFileNames.contains(levelName)) {
+                    levelFileNames.add(levelName);
+                }
+            }
+        }
         return levelFileNames;
     }
+    //Level packs that can not be read are left out and reported to the diagnostics sink, so that one broken pack does not hide the
+    //levels of the others.
+    private List<LevelPack> getLevelPacks() {
+        if (this.levelPacks == null) {
+            this.levelPacks = new ArrayList<LevelPack>();
+            File[] packFiles = getResourceFoldersPath("levels").toFile().listFiles((folder, fileName) -> fileName.endsWith(LevelPack.FILE_EXTENSION));
+            if (packFiles != null) {
+                for (File packFile : packFiles) {
+                    try {
+                        this.levelPacks.add(LevelPack.open(packFile.toPath()));
+                    } catch (IOException | IllegalArgumentException e) {
+                        this.diagnosticsSink.log(() -> "Could not open the level pack " + packFile + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return this.levelPacks;
+    }
 
     @Override
     public Path getResourceFoldersPath(String folderName) {
         return Path.of(System.getProperty("user.dir"), "src", "main", "resources", "pushrock", folderName);
     }
 
+    //Level and save files are read by GameFileParser, see its description of the file format.
     @Override
     public PushRock loadGame(InputStream inputStream) throws IllegalArgumentException, NumberFormatException {
-        PushRock pushRock = null;
-        try (var scanner = new Scanner(inputStream)) {
-            scanner.useDelimiter("#");
-            String fileType = null;      //Save or Level
-            String levelName = null;     //Name of the level
-            String levelMapLayout = null;
-            String levelDirectionLayout = null;
-            
-            String saveMapLayout = null;
-            String saveDirectionLayout = null;
-            int saveMoveCount = -1;
-            
-            while (scanner.hasNext()) {
-                String nextScan = scanner.next();
-                if (!nextScan.contains(":")) {
-                    throw new IllegalArgumentException("Save format is invalid, missing ':' in title.");
-                }
-                String fieldName = nextScan.substring(0, nextScan.indexOf(":"));
-                String fieldData = nextScan.substring(fieldName.length()+3).stripTrailing(); 
-
-                if (fieldName.equals("File type")) {
-                    fileType = fieldData.stripTrailing();
-                }
-                else if (fieldName.equals("Level name")) {
-                    levelName = fieldData.stripTrailing();
-                }
-                else if (fieldName.equals("Level map layout")) {
-                    levelMapLayout = fieldData.stripTrailing();
-                }
-                else if (fieldName.equals("Level direction layout")) {
-                    levelDirectionLayout = fieldData.stripTrailing();
-                }
-                else if (fieldName.equals("Save map layout")) {
-                    saveMapLayout = fieldData.stripTrailing();
-                }
-                else if (fieldName.equals("Save direction layout")) {
-                    saveDirectionLayout = fieldData.stripTrailing();
-                }
-                else if (fieldName.equals("Save move count")) {
-                    String saveMoveCountString = fieldData.stripTrailing();
-                    saveMoveCount = Integer.parseInt(saveMoveCountString);
-                }
-            }
-            
-            if (fileType == null) {
-                throw new IllegalArgumentException("File is not formated correctly: could not find file type");
-            }
-            if (levelName == null) {
-                throw new IllegalArgumentException("File is not formated correctly: could not find level name");
-            }
-            if (levelMapLayout == null) {
-                throw new IllegalArgumentException("File is not formated correctly: could not find level map layout");
-            }
-            if (levelDirectionLayout == null) {
-                throw new IllegalArgumentException("File is not formated correctly: could not find level direction layout");
-            }
-
-            if (fileType.equals("Level")) {
-                if (saveMapLayout != null) {
-                    throw new IllegalArgumentException("File is not formated correctly: a level-file should not contain a save map layout");
-                }
-                if (saveDirectionLayout != null) {
-                    throw new IllegalArgumentException("File is not formated correctly: a level-file should not contain a save direction layout");
-                }
-                if (saveMoveCount != -1) {
-                    throw new IllegalArgumentException("File is not formated correctly: a level-file should not contain a save move count");
-                }
-                pushRock = new PushRock(levelName, levelMapLayout, levelDirectionLayout);
-            }
-            else if (fileType.equals("Save")) {
-                if (saveMapLayout == null) {
-                    throw new IllegalArgumentException("File is not formated correctly: could not find save map layout");
-                }
-                if (saveDirectionLayout == null) {
-                    throw new IllegalArgumentException("File is not formated correctly: could not find save direction layout");
-                }
-                if (saveMoveCount == -1) {
-                    throw new IllegalArgumentException("File is not formated correctly: could not find save move count");
-                }
-                pushRock = new PushRock(levelName, levelMapLayout, levelDirectionLayout, saveMapLayout, saveDirectionLayout, saveMoveCount);
-            }
-            else {
-                throw new IllegalArgumentException("fileType must be either 'Level' or 'Save', but was: " + fileType);
-            }
+        try (var reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            return new GameFileParser(reader).parseGame();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return pushRock;
     }
 
     @Override
@@ -143,6 +102,15 @@ public class SaveHandler implements ISaveHandler {
             fileName = fileName + ".txt";
         }
         Path filePath = folderPath.resolve(fileName);
+        //A level that is not a level file of its own is loaded from the level pack holding it, if any.
+        if (!isSave && !filePath.toFile().exists()) {
+            String levelName = fileName.substring(0, fileName.lastIndexOf("."));
+            for (LevelPack levelPack : this.getLevelPacks()) {
+                if (levelPack.containsLevel(levelName)) {
+                    return levelPack.loadLevel(levelName);
+                }
+            }
+        }
 
         try (var inputStream = new FileInputStream(filePath.toFile())) {
             return loadGame(inputStream);
@@ -211,26 +179,10 @@ public class SaveHandler implements ISaveHandler {
         if (pushRock.isGameOver()) {
             throw new IllegalArgumentException("Can not save a completed game.");
         }
-        String mapLayoutSave = pushRock.toString();
-        //Accents will be removed, as they are only used as to visualize connected transporters, and connected
-        //transporters will be connected automatically when the game map is built, as such it is redunant for the format.
-        mapLayoutSave = Normalizer.normalize(mapLayoutSave, Normalizer.Form.NFD);
-        mapLayoutSave = mapLayoutSave.replaceAll("[\\p{InCombiningDiacriticalMarks}]", "");
-        String directionLayoutSave = "";
-        int width = pushRock.getWidth();
-
-        String typeSequence = mapLayoutSave.toLowerCase().replaceAll("\\n|\\r\\n|@","").stripTrailing();
-        for (int i = 0; i < typeSequence.length(); i++) {
-            String type = typeSequence.toLowerCase().charAt(i) + "";
-            //these types are directed types, and as such should have their directions saved.
-            if ("pqrovu".contains(type)) {
-                int x = Math.floorMod(i, width);
-                int y = - i / width;
-                BlockAbstract directedBlock = pushRock.getTopBlockCopy(x, y);
-                String direction = ((DirectedBlock) directedBlock).getDirection();
-                directionLayoutSave += direction.charAt(0);
-            }
-        }
+        //The serializer writes the save format characters directly, connected transporters are written without the marks used to
+        //visualize their connection, as they will be connected automatically when the game map is built.
+        String mapLayoutSave = BoardSerializer.mapLayoutToString(pushRock, true);
+        String directionLayoutSave = BoardSerializer.directionLayoutToString(pushRock);
         List<String> layoutList = new ArrayList<String>();
         layoutList.add(mapLayoutSave);
         layoutList.add(directionLayoutSave);
@@ -0,0 +1,51 @@
+package pushrock.fxui;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+
+//The results of a BatchValidator run, in order of path, along with totals for the whole run.
+public class ValidationReport {
+
+    private final List<ValidationResult> results;
+    private final int parallelism;
+    private final long elapsedNanos;
+
+    public ValidationReport(List<ValidationResult> results, int parallelism, long elapsedNanos) {
+        this.results = Collections.unmodifiableList(results);
+        this.parallelism = parallelism;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<ValidationResult> getResults() {
+        return this.results;
+    }
+    public int getValidCount() {
+        return (int) this.results.stream().filter(ValidationResult::isValid).count();
+    }
+    public int getInvalidCount() {
+        return this.results.size() - this.getValidCount();
+    }
+    //Returns the number of workers of the pool the files were validated on.
+    public int getParallelism() {
+        return this.parallelism;
+    }
+    //Returns the wall clock time of the whole run, including finding the files.
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+    //Returns the sum of the parse and build times of every file, which is the time a sequential run would have spent validating.
+    public long getTotalValidationNanos() {
+        return this.results.stream().mapToLong(result -> result.getParseNanos() + result.getBuildNanos()).sum();
+    }
+
+    //Writes the report as JSON lines: a line with the JSON object of every result (see ValidationResult.toJson()), followed by a
+    //summary line of the form {"summary":{...}}.
+    public void writeJson(PrintStream out) {
+        for (ValidationResult result : this.results) {
+            out.println(result.toJson());
+        }
+        out.println("{\"summary\":{\"files\":" + this.results.size() + ",\"valid\":" + this.getValidCount() + ",\"invalid\":" + this.getInvalidCount()
+            + ",\"parallelism\":" + this.parallelism + ",\"elapsedNanos\":" + this.elapsedNanos + ",\"totalValidationNanos\":" + this.getTotalValidationNanos() + "}}");
+    }
+}
@@ -0,0 +1,113 @@
+package pushrock.fxui;
+
+//The outcome of validating a single file, or a single level of a level pack, see BatchValidator.
+public class ValidationResult {
+
+    private final String path;
+    private final String type;
+    private final String error;
+    private final long parseNanos;
+    private final long buildNanos;
+    private final String levelName;
+    private final int width;
+    private final int height;
+
+    public ValidationResult(String path, String type, String error, long parseNanos, long buildNanos, String levelName, int width, int height) {
+        this.path = path;
+        this.type = type;
+        this.error = error;
+        this.parseNanos = parseNanos;
+        this.buildNanos = buildNanos;
+        this.levelName = levelName;
+        this.width = width;
+        this.height = height;
+    }
+
+    //Returns the path of the file relative to the folder it was found in. Levels of a level pack are given as "<pack path>!<level name>".
+    public String getPath() {
+        return this.path;
+    }
+    //Returns one of "level", "save", "binary save", "pack level" and "pack", or "unknown" if the file could not be read far enough to tell.
+    public String getType() {
+        return this.type;
+    }
+    public boolean isValid() {
+        return this.error == null;
+    }
+    //Returns the message of the error that made the file invalid, or null if the file is valid.
+    public String getError() {
+        return this.error;
+    }
+    //Returns the time spent reading the file into its sections. Binary saves are read and restored in one go, which is all given as parse time.
+    public long getParseNanos() {
+        return this.parseNanos;
+    }
+    //Returns the time spent building the game, which is where the layouts are checked, or 0 if the file was not read far enough to build it.
+    public long getBuildNanos() {
+        return this.buildNanos;
+    }
+    //Returns the level name of the game, or null if it was not built.
+    public String getLevelName() {
+        return this.levelName;
+    }
+    public int getWidth() {
+        return this.width;
+    }
+    public int getHeight() {
+        return this.height;
+    }
+
+    //Returns the result as a single line JSON object.
+    public String toJson() {
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"path\":");
+        appendJsonString(json, this.path);
+        json.append(",\"type\":");
+        appendJsonString(json, this.type);
+        json.append(",\"valid\":").append(this.isValid());
+        json.append(",\"error\":");
+        appendJsonString(json, this.error);
+        json.append(",\"parseNanos\":").append(this.parseNanos);
+        json.append(",\"buildNanos\":").append(this.buildNanos);
+        json.append(",\"levelName\":");
+        appendJsonString(json, this.levelName);
+        json.append(",\"width\":").append(this.width);
+        json.append(",\"height\":").append(this.height);
+        return json.append('}').toString();
+    }
+
+    static void appendJsonString(StringBuilder json, String string) {
+        if (string == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char character = string.charAt(i);
+            if (character == '"' || character == '\\') {
+                json.append('\\').append(character);
+            }
+            else if (character == '\n') {
+                json.append("\\n");
+            }
+            else if (character == '\r') {
+                json.append("\\r");
+            }
+            else if (character == '\t') {
+                json.append("\\t");
+            }
+            else if (character < 0x20) {
+                json.append(String.format("\\u%04x", (int) character));
+            }
+            else {
+                json.append(character);
+            }
+        }
+        json.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return this.path + ": " + (this.isValid() ? "valid " + this.type : "invalid " + this.type + ", " + this.error);
+    }
+}
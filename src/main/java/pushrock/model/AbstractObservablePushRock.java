@@ -5,11 +5,27 @@ import java.util.List;
 
 public abstract class AbstractObservablePushRock {
     private List<IObserverPushRock> observers = new ArrayList<>();
+    private List<IObserverPushRockEvents> eventObservers = new ArrayList<>();
+
+    //The events of the operation in progress, delivered to the event observers as one batch when observers are notified. Events are
+    //only recorded while there are event observers. Once a reset is recorded, the other events of the batch are left out.
+    private List<PushRockEvent> events = new ArrayList<>();
+    private boolean isResetRecorded;
+
+    //The cells that have changed since the observers were last notified. A cell is given as row * width + column, where rows are
+    //counted downwards from the top of the map. Each changed cell is listed once, and the list is cleared once every observer has
+    //been notified.
+    private int[] changedCells = new int[0];
+    private boolean[] isCellChanged = new boolean[0];
+    private int changedCellCount;
+    private boolean isEveryCellChanged = true;
 
 
     public void addObserver(IObserverPushRock observer) {
         if (!this.observers.contains(observer)) {
             this.observers.add(observer);
+            //A new observer has not seen any of the cells yet.
+            this.markEveryCellChanged();
         }
     }
     public void removeObserver(IObserverPushRock observer) {
@@ -17,7 +33,94 @@ public abstract class AbstractObservablePushRock {
             this.observers.remove(observer);
         }
     }
+    //Event observers are told about the changes themselves, see PushRockEvent, rather than having to read the whole game again.
+    public void addEventObserver(IObserverPushRockEvents observer) {
+        if (!this.eventObservers.contains(observer)) {
+            this.eventObservers.add(observer);
+            //A new observer has not seen any of the game yet.
+            this.recordReset();
+        }
+    }
+    public void removeEventObserver(IObserverPushRockEvents observer) {
+        this.eventObservers.remove(observer);
+    }
     public void notifyObservers() {
-        this.observers.forEach(observer -> observer.update(this));
-    } 
+        this.completeEventBatch();
+        for (int i = 0; i < this.observers.size(); i++) {
+            this.observers.get(i).update(this);
+        }
+        if (!this.events.isEmpty()) {
+            List<PushRockEvent> batch = List.copyOf(this.events);
+            for (int i = 0; i < this.eventObservers.size(); i++) {
+                this.eventObservers.get(i).update(this, batch);
+            }
+        }
+        this.events.clear();
+        this.isResetRecorded = false;
+        for (int i = 0; i < this.changedCellCount; i++) {
+            this.isCellChanged[this.changedCells[i]] = false;
+        }
+        this.changedCellCount = 0;
+        this.isEveryCellChanged = false;
+    }
+
+    //Returns true if every cell should be considered changed since the last notification, in which case the changed cells are not listed.
+    public boolean isEveryCellChanged() {
+        return this.isEveryCellChanged;
+    }
+    public int getChangedCellCount() {
+        return this.changedCellCount;
+    }
+    public int getChangedCell(int index) {
+        if (index < 0 || index >= this.changedCellCount) {
+            throw new IndexOutOfBoundsException("Changed cell index " + index + " is out of bounds for " + this.changedCellCount + " changed cells.");
+        }
+        return this.changedCells[index];
+    }
+
+    protected boolean hasEventObservers() {
+        return !this.eventObservers.isEmpty();
+    }
+    protected void recordEvent(PushRockEvent event) {
+        if (this.eventObservers.isEmpty() || this.isResetRecorded) {
+            return;
+        }
+        this.events.add(event);
+    }
+    //Records that the whole game may have changed, which replaces every other event of the batch.
+    protected void recordReset() {
+        this.events.clear();
+        if (!this.eventObservers.isEmpty()) {
+            this.events.add(PushRockEvent.reset());
+            this.isResetRecorded = true;
+        }
+    }
+    //Called right before observers are notified, to record the events that are only known once the operation is complete.
+    protected void completeEventBatch() {
+    }
+
+    //Sets the number of cells of the map, which makes every cell count as changed.
+    protected void setCellCount(int cellCount) {
+        if (this.isCellChanged.length != cellCount) {
+            this.changedCells = new int[cellCount];
+            this.isCellChanged = new boolean[cellCount];
+        }
+        else {
+            for (int i = 0; i < this.changedCellCount; i++) {
+                this.isCellChanged[this.changedCells[i]] = false;
+            }
+        }
+        this.changedCellCount = 0;
+        this.markEveryCellChanged();
+    }
+    protected void markCellChanged(int cell) {
+        if (this.isEveryCellChanged || this.isCellChanged[cell]) {
+            return;
+        }
+        this.isCellChanged[cell] = true;
+        this.changedCells[this.changedCellCount++] = cell;
+    }
+    protected void markEveryCellChanged() {
+        this.isEveryCellChanged = true;
+    }
 }
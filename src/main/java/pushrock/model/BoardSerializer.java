@@ -0,0 +1,97 @@
+package pushrock.model;
+
+//Writes the map and direction layouts of a game in a single pass over the board, straight into a pre-sized buffer.
+//The map layout can be written in two forms: the display form used by PushRock.toString(), where connected transporters
+//are marked with a dot below their letter, and the save form, which only uses the characters the layout formats accept.
+//In both forms, blocks in the gravity plane (cells that are not seen in bird view) are written in upper case, with air as '-'.
+public final class BoardSerializer {
+
+    //Character representations of connected transporters in the display form.
+    private static final char CONNECTED_TELEPORTER = 'ṭ';
+    private static final char CONNECTED_PORTAL_ONE = 'ṿ';
+    private static final char CONNECTED_PORTAL_TWO = 'ụ';
+
+    private BoardSerializer() {
+    }
+
+    //Every row holds one character per block followed by the width marker '@' and a line break.
+    public static int getMapLayoutLength(PushRock pushRock) {
+        return pushRock.getHeight() * (pushRock.getWidth() + 2);
+    }
+
+    public static String mapLayoutToString(PushRock pushRock, boolean isSaveFormat) {
+        StringBuilder mapLayout = new StringBuilder(getMapLayoutLength(pushRock));
+        writeMapLayout(pushRock, mapLayout, isSaveFormat);
+        return mapLayout.toString();
+    }
+
+    public static String directionLayoutToString(PushRock pushRock) {
+        //A direction layout can at most hold one direction per block, plus the gravity direction at the end.
+        StringBuilder directionLayout = new StringBuilder(pushRock.getWidth() * pushRock.getHeight() + 1);
+        writeDirectionLayout(pushRock, directionLayout);
+        return directionLayout.toString();
+    }
+
+    //Appends the map layout row by row, starting at the top row (y = 0) and moving downwards.
+    public static void writeMapLayout(PushRock pushRock, StringBuilder output, boolean isSaveFormat) {
+        int width = pushRock.getWidth();
+        int height = pushRock.getHeight();
+        for (int y = 0; y > -height; y--) {
+            for (int x = 0; x < width; x++) {
+                BlockAbstract block = pushRock.getTopBlock(x, y);
+                char character = isSaveFormat ? getSaveTypeCharacter(block) : getDisplayTypeCharacter(block);
+                output.append(getViewCharacter(character, pushRock.getTraversableBlock(x, y).isBirdView()));
+            }
+            output.append('@').append('\n');
+        }
+    }
+
+    //Appends the first letter of the direction of every player, rock and portal in the same order as the map layout lists them,
+    //followed by the gravity direction: 'g' for gravity pulling downwards, and 'G' for inverted gravity pulling upwards.
+    public static void writeDirectionLayout(PushRock pushRock, StringBuilder output) {
+        int width = pushRock.getWidth();
+        int height = pushRock.getHeight();
+        for (int y = 0; y > -height; y--) {
+            for (int x = 0; x < width; x++) {
+                BlockAbstract block = pushRock.getTopBlock(x, y);
+                if (block instanceof MoveableBlock || (block instanceof PortalWallBlock && ((PortalWallBlock) block).isPortal())) {
+                    output.append(((DirectedBlock) block).getDirectionValue().getLayoutCharacter());
+                }
+            }
+        }
+        output.append(pushRock.isGravityInverted() ? 'G' : 'g');
+    }
+
+    //Returns the given type character as it is written for a cell with the given view, see the format description above.
+    static char getViewCharacter(char character, boolean isBirdView) {
+        if (isBirdView) {
+            return character;
+        }
+        return character == ' ' ? '-' : Character.toUpperCase(character);
+    }
+
+    //The character that represents the given block in the save format. Moveable blocks standing on a pressure plate are written
+    //as 'q' (player) and 'o' (rock), as the pressure plate underneath them would otherwise be lost.
+    static char getSaveTypeCharacter(BlockAbstract block) {
+        char type = block.getType();
+        if (block instanceof MoveableBlock && block.getState()) {
+            return ((MoveableBlock) block).isPlayer() ? 'q' : 'o';
+        }
+        return type;
+    }
+
+    //The character that represents the given block in the display form, which also marks transporters that are connected.
+    static char getDisplayTypeCharacter(BlockAbstract block) {
+        if (block instanceof TransferBlock && block.getState()) {
+            switch (block.getType()) {
+                case 't':
+                    return CONNECTED_TELEPORTER;
+                case 'v':
+                    return CONNECTED_PORTAL_ONE;
+                case 'u':
+                    return CONNECTED_PORTAL_TWO;
+            }
+        }
+        return getSaveTypeCharacter(block);
+    }
+}
@@ -0,0 +1,66 @@
+package pushrock.model;
+
+//A read-only view of the board of a game, for consumers that scan the whole board, such as renderers. Unlike getTopBlockCopy(..)
+//and getTraversableBlockCopy(..) of PushRock, the view hands out the values of the blocks as primitives and enums instead of copies
+//of the blocks, so reading it allocates nothing, while the blocks themselves stay out of reach.
+//The view reads the game directly, so it always shows the game's current state. Coordinates are given as in PushRock, with x
+//counting columns to the right and y counting rows upwards from the top row, so that y is 0 or negative.
+public final class BoardView {
+
+    private final PushRock pushRock;
+
+    BoardView(PushRock pushRock) {
+        this.pushRock = pushRock;
+    }
+
+    public int getWidth() {
+        return this.pushRock.getWidth();
+    }
+    public int getHeight() {
+        return this.pushRock.getHeight();
+    }
+
+    //Returns the type of the top-most block at the given coordinates, as returned by getType() of the block.
+    public char typeAt(int x, int y) {
+        return this.getTopBlock(x, y).getType();
+    }
+    //Returns the type of the traversable block at the given coordinates, which is ' ' for floor and 'd' for pressure plates.
+    public char groundTypeAt(int x, int y) {
+        this.checkCoordinates(x, y);
+        return this.pushRock.getTraversableBlock(x, y).getType();
+    }
+    //Returns the direction of the top-most block at the given coordinates, or null if it does not have one.
+    public Direction directionAt(int x, int y) {
+        BlockAbstract block = this.getTopBlock(x, y);
+        if (block instanceof DirectedBlock) {
+            return ((DirectedBlock) block).getDirectionValue();
+        }
+        return null;
+    }
+    //Returns the state of the top-most block at the given coordinates, as returned by getState() of the block.
+    public boolean stateAt(int x, int y) {
+        return this.getTopBlock(x, y).getState();
+    }
+    //Returns the cell of the transporter that the transporter at the given coordinates is connected to, given as row * width + column,
+    //or -1 if the top-most block is not a connected transporter.
+    public int connectionAt(int x, int y) {
+        BlockAbstract block = this.getTopBlock(x, y);
+        if (block instanceof TransferBlock) {
+            TransferBlock connection = ((TransferBlock) block).getConnection();
+            if (connection != null) {
+                return -connection.getY() * this.pushRock.getWidth() + connection.getX();
+            }
+        }
+        return -1;
+    }
+
+    private BlockAbstract getTopBlock(int x, int y) {
+        this.checkCoordinates(x, y);
+        return this.pushRock.getTopBlock(x, y);
+    }
+    private void checkCoordinates(int x, int y) {
+        if (x < 0 || x >= this.pushRock.getWidth() || -y < 0 || -y >= this.pushRock.getHeight()) {
+            throw new IllegalArgumentException("Coordinates are out of bounds for the map: (" + x + ", " + y + ").");
+        }
+    }
+}
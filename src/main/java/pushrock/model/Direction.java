@@ -0,0 +1,82 @@
+package pushrock.model;
+
+//The four directions a block can face and move in. Every direction holds its coordinate change and its opposite, so moving
+//or turning a block never has to look a direction up by name. The names ("up", "down", "left", "right") are only used where
+//directions cross the boundary to the user interface and the save files, see fromString(..) and toString().
+//The order of the constants is part of the compact state format, see PushRock.getCompactState().
+public enum Direction {
+    UP(0, 1, "up"),
+    DOWN(0, -1, "down"),
+    LEFT(-1, 0, "left"),
+    RIGHT(1, 0, "right");
+
+    private final int dx;
+    private final int dy;
+    private final String name;
+    private Direction opposite;
+    //values() returns a new array on every call, so the lookups share this one instead.
+    private static final Direction[] VALUES = values();
+
+    static {
+        UP.opposite = DOWN;
+        DOWN.opposite = UP;
+        LEFT.opposite = RIGHT;
+        RIGHT.opposite = LEFT;
+    }
+
+    private Direction(int dx, int dy, String name) {
+        this.dx = dx;
+        this.dy = dy;
+        this.name = name;
+    }
+
+    //The change in x-coordinate of a single step in this direction.
+    public int getDX() {
+        return this.dx;
+    }
+    //The change in y-coordinate of a single step in this direction. As y-coordinates decrease downwards, up is +1.
+    public int getDY() {
+        return this.dy;
+    }
+    public Direction getOpposite() {
+        return this.opposite;
+    }
+    //The character that represents this direction in a direction layout.
+    public char getLayoutCharacter() {
+        return this.name.charAt(0);
+    }
+
+    //Returns the direction with the given name, ignoring case. Null is returned as null, which blocks without a direction use.
+    public static Direction fromString(String direction) {
+        if (direction == null) {
+            return null;
+        }
+        for (Direction value : VALUES) {
+            if (value.name.equalsIgnoreCase(direction)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Direction must be one of: up, down, left or right, but was: " + direction + ".");
+    }
+    //Returns the direction represented by the given direction layout character.
+    public static Direction fromLayoutCharacter(char direction) {
+        switch (direction) {
+            case 'u':
+                return UP;
+            case 'd':
+                return DOWN;
+            case 'l':
+                return LEFT;
+            case 'r':
+                return RIGHT;
+            default:
+                throw new IllegalArgumentException("Direction layout only supports a character representation of the following directions: up 'u', down 'd', left 'l', right 'r'.");
+        }
+    }
+
+    //Returns the lower case name of this direction, as used by the user interface and the save files.
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
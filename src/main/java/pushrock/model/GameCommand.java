@@ -0,0 +1,129 @@
+package pushrock.model;
+
+//One input to a game, such as a move or a portal placement, as a value that can be queued, passed between threads and applied to
+//a game later, see GameLoop. Applying the same commands in the same order to games of the same level in the same state always
+//leaves them in the same state, as the game itself depends on nothing but its inputs.
+public final class GameCommand {
+
+    public enum Type {
+        MOVE,
+        PLACE_PORTAL,
+        UNDO,
+        REDO,
+        RESET_LEVEL,
+        INVERT_GRAVITY,
+        INTERVAL_TICK,
+        PAUSE_INTERVAL_GRAVITY
+    }
+
+    //Commands without parameters are shared, as are the moves and portal placements, so that submitting commands never allocates.
+    private static final GameCommand[] MOVES = new GameCommand[Direction.values().length];
+    private static final GameCommand PORTAL_ONE = new GameCommand(Type.PLACE_PORTAL, null, true);
+    private static final GameCommand PORTAL_TWO = new GameCommand(Type.PLACE_PORTAL, null, false);
+    private static final GameCommand UNDO = new GameCommand(Type.UNDO, null, false);
+    private static final GameCommand REDO = new GameCommand(Type.REDO, null, false);
+    private static final GameCommand RESET_LEVEL = new GameCommand(Type.RESET_LEVEL, null, false);
+    private static final GameCommand INVERT_GRAVITY = new GameCommand(Type.INVERT_GRAVITY, null, false);
+    private static final GameCommand INTERVAL_TICK = new GameCommand(Type.INTERVAL_TICK, null, false);
+    private static final GameCommand PAUSE_INTERVAL_GRAVITY = new GameCommand(Type.PAUSE_INTERVAL_GRAVITY, null, true);
+    private static final GameCommand RESUME_INTERVAL_GRAVITY = new GameCommand(Type.PAUSE_INTERVAL_GRAVITY, null, false);
+    static {
+        for (Direction direction : Direction.values()) {
+            MOVES[direction.ordinal()] = new GameCommand(Type.MOVE, direction, false);
+        }
+    }
+
+    private final Type type;
+    private final Direction direction;
+    private final boolean flag;
+
+    private GameCommand(Type type, Direction direction, boolean flag) {
+        this.type = type;
+        this.direction = direction;
+        this.flag = flag;
+    }
+
+    public static GameCommand move(Direction direction) {
+        if (direction == null) {
+            throw new IllegalArgumentException("A move must be made in a direction.");
+        }
+        return MOVES[direction.ordinal()];
+    }
+    public static GameCommand placePortal(boolean isPortalOne) {
+        return isPortalOne ? PORTAL_ONE : PORTAL_TWO;
+    }
+    public static GameCommand undo() {
+        return UNDO;
+    }
+    public static GameCommand redo() {
+        return REDO;
+    }
+    public static GameCommand resetLevel() {
+        return RESET_LEVEL;
+    }
+    public static GameCommand invertGravity() {
+        return INVERT_GRAVITY;
+    }
+    public static GameCommand intervalTick() {
+        return INTERVAL_TICK;
+    }
+    public static GameCommand pauseIntervalGravity(boolean isPaused) {
+        return isPaused ? PAUSE_INTERVAL_GRAVITY : RESUME_INTERVAL_GRAVITY;
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+    //The direction of a move, or null for every other type of command.
+    public Direction getDirection() {
+        return this.direction;
+    }
+    //Whether the portal placed is portal one, or whether interval gravity is paused. False for every other type of command.
+    public boolean getFlag() {
+        return this.flag;
+    }
+
+    //Applies the command to the given game. Commands the game refuses throw the same exceptions as the game's own methods.
+    public void applyTo(PushRock pushRock) {
+        switch (this.type) {
+            case MOVE:
+                pushRock.movePlayer(this.direction);
+                break;
+            case PLACE_PORTAL:
+                pushRock.placePortal(this.flag);
+                break;
+            case UNDO:
+                pushRock.undo();
+                break;
+            case REDO:
+                pushRock.redo();
+                break;
+            case RESET_LEVEL:
+                pushRock.resetLevel();
+                break;
+            case INVERT_GRAVITY:
+                pushRock.gravityInverter();
+                break;
+            case INTERVAL_TICK:
+                pushRock.intervalTick();
+                break;
+            case PAUSE_INTERVAL_GRAVITY:
+                pushRock.pauseIntervalGravity(this.flag);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (this.type) {
+            case MOVE:
+                return "MOVE " + this.direction;
+            case PLACE_PORTAL:
+                return "PLACE_PORTAL " + (this.flag ? "one" : "two");
+            case PAUSE_INTERVAL_GRAVITY:
+                return "PAUSE_INTERVAL_GRAVITY " + this.flag;
+            default:
+                return this.type.toString();
+        }
+    }
+}
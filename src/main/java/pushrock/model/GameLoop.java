@@ -0,0 +1,171 @@
+package pushrock.model;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+//Owns a game and is the only one to ever change it. Commands, such as the moves of the player and the ticks of an interval notifier,
+//may be submitted from any thread. They are put in a lock-free queue, so submitting never blocks, and are applied in the order they
+//were submitted by the loop's steps, which run at a fixed timestep on a scheduler. After each step that applied a command, the state
+//of the game is published as an immutable GameSnapshot, which other threads read instead of the game.
+//As the game only ever changes through the commands, applying the same commands in the same order to the same level always gives the
+//same states, which lets the applied commands be recorded and replayed, see IObserverGameCommands.
+public class GameLoop implements IObserverIntervalNotifier {
+    public static final int DEFAULT_TIMESTEP = 16;
+
+    //The scheduler used by start(). Its single thread is a daemon thread, so that started loops never keep the application running.
+    private static ScheduledExecutorService defaultScheduler;
+
+    private final PushRock pushRock;
+    private final int timestep;
+    private final ConcurrentLinkedQueue<GameCommand> commands = new ConcurrentLinkedQueue<GameCommand>();
+    private final CopyOnWriteArrayList<IObserverGameCommands> commandObservers = new CopyOnWriteArrayList<IObserverGameCommands>();
+    private final AtomicReference<GameSnapshot> snapshot = new AtomicReference<GameSnapshot>();
+    //Steps hold this lock while changing the game, so that steps made from different threads never overlap and each sees the changes
+    //of the last. It is only ever contended by a step made while the loop is started, which is refused anyway.
+    private final Object stepLock = new Object();
+    private long stepCount;
+    private ScheduledFuture<?> scheduledSteps;
+
+    //The game is owned by the loop from here on, and must not be used by anyone else. A ReplayRecorder of the game is the one exception,
+    //and must be made before the loop makes its first step.
+    public GameLoop(PushRock pushRock) {
+        this(pushRock, DEFAULT_TIMESTEP);
+    }
+    public GameLoop(PushRock pushRock, int timestep) {
+        if (pushRock == null) {
+            throw new IllegalArgumentException("Game can not be null.");
+        }
+        if (timestep < 1) {
+            throw new IllegalArgumentException("Timestep must be at least 1 millisecond.");
+        }
+        if (timestep > 1000) {
+            throw new IllegalArgumentException("Timestep must be at most 1000 milliseconds.");
+        }
+        this.pushRock = pushRock;
+        this.timestep = timestep;
+        this.snapshot.set(new GameSnapshot(0, pushRock, null));
+    }
+
+    private static synchronized ScheduledExecutorService getDefaultScheduler() {
+        if (defaultScheduler == null) {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "GameLoop");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            defaultScheduler = scheduler;
+        }
+        return defaultScheduler;
+    }
+
+    public int getTimestep() {
+        return this.timestep;
+    }
+    public synchronized boolean isActive() {
+        return this.scheduledSteps != null;
+    }
+    //The number of steps made so far, including the steps that had no commands to apply.
+    public long getStepCount() {
+        synchronized (this.stepLock) {
+            return this.stepCount;
+        }
+    }
+    //The state of the game after the last step that changed it or had a command refused, or the state it was given in if there was no such step.
+    public GameSnapshot getSnapshot() {
+        return this.snapshot.get();
+    }
+
+    //Queues the command to be applied by the next step. Never blocks, and may be called from any thread.
+    public void submit(GameCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("Command can not be null.");
+        }
+        this.commands.add(command);
+    }
+
+    //Queues an interval tick each time the observed interval notifier notifies. A notification with the parameter set to null tells
+    //that the notifier was stopped, and is ignored.
+    @Override
+    public void update(IObservableIntervalNotifier observable) {
+        if (observable == null) {
+            return;
+        }
+        this.submit(GameCommand.intervalTick());
+    }
+
+    public void addCommandObserver(IObserverGameCommands observer) {
+        if (observer == null) {
+            return;
+        }
+        this.commandObservers.addIfAbsent(observer);
+    }
+    public void removeCommandObserver(IObserverGameCommands observer) {
+        this.commandObservers.remove(observer);
+    }
+
+    //Starts making a step once every timestep, on the scheduler shared by all loops.
+    public void start() {
+        this.start(getDefaultScheduler());
+    }
+    //Starts making a step once every timestep, on the given scheduler. The first step is made right away.
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        if (scheduler == null) {
+            throw new IllegalArgumentException("Scheduler can not be null.");
+        }
+        if (this.isActive()) {
+            throw new IllegalStateException("Game loop is already started.");
+        }
+        this.scheduledSteps = scheduler.scheduleAtFixedRate(this::makeStep, 0, this.timestep, TimeUnit.MILLISECONDS);
+    }
+    //Stops making steps. A step that is already being made is allowed to finish, and commands still queued are kept for the next step.
+    //Does nothing if the loop is not started.
+    public synchronized void stop() {
+        if (!this.isActive()) {
+            return;
+        }
+        this.scheduledSteps.cancel(false);
+        this.scheduledSteps = null;
+    }
+
+    //Makes a single step on the calling thread, applying every command queued so far. Used to drive loops that are not started,
+    //such as when running games headless or in tests.
+    public void step() {
+        if (this.isActive()) {
+            throw new IllegalStateException("Steps can not be made by hand while the game loop is started.");
+        }
+        this.makeStep();
+    }
+
+    private void makeStep() {
+        synchronized (this.stepLock) {
+            this.stepCount++;
+            boolean hasApplied = false;
+            String errorMessage = null;
+            GameCommand command;
+            //Commands submitted while the step is being made are applied by this same step, so that input is never held back a step.
+            while ((command = this.commands.poll()) != null) {
+                hasApplied = true;
+                try {
+                    command.applyTo(this.pushRock);
+                } catch (RuntimeException e) {
+                    //Commands the game refuses, such as moving after the game is over, leave the game unchanged. Any other exception would
+                    //make the scheduler stop the loop without a word, so it is reported the same way, and the loop goes on.
+                    errorMessage = e.getMessage();
+                }
+                for (IObserverGameCommands observer : this.commandObservers) {
+                    observer.commandApplied(this.stepCount, command);
+                }
+            }
+            //Interval ticks mostly leave the game as it was, and readers are only handed a new snapshot when there is something new to see.
+            if (hasApplied && (errorMessage != null || !this.snapshot.get().isStateOf(this.pushRock))) {
+                this.snapshot.set(new GameSnapshot(this.stepCount, this.pushRock, errorMessage));
+            }
+        }
+    }
+}
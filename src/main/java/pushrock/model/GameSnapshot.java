@@ -0,0 +1,60 @@
+package pushrock.model;
+
+//The state of a game owned by a GameLoop as it was after one of the loop's steps, published for other threads to read. A snapshot
+//is immutable, so it can be read from any thread while the loop keeps changing the game itself.
+public final class GameSnapshot {
+    private final long step;
+    private final int[] compactState;
+    private final int moveCount;
+    private final long stateHash;
+    private final boolean canUndo;
+    private final boolean canRedo;
+    private final String errorMessage;
+
+    GameSnapshot(long step, PushRock pushRock, String errorMessage) {
+        this.step = step;
+        this.compactState = pushRock.getCompactState();
+        this.moveCount = pushRock.getMoveCount();
+        this.stateHash = pushRock.stateHash();
+        this.canUndo = pushRock.canUndo();
+        this.canRedo = pushRock.canRedo();
+        this.errorMessage = errorMessage;
+    }
+
+    //The number of the loop step the snapshot was taken after.
+    public long getStep() {
+        return this.step;
+    }
+    public int[] getCompactState() {
+        return this.compactState.clone();
+    }
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+    public long stateHash() {
+        return this.stateHash;
+    }
+    public boolean canUndo() {
+        return this.canUndo;
+    }
+    public boolean canRedo() {
+        return this.canRedo;
+    }
+    //The message of the last command of the step that the game refused, or null if every command of the step was applied.
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
+    //Whether the given game is in the state of the snapshot, as far as the state hash, move count and journal tell.
+    boolean isStateOf(PushRock pushRock) {
+        return this.stateHash == pushRock.stateHash() && this.moveCount == pushRock.getMoveCount() && this.canUndo == pushRock.canUndo() && this.canRedo == pushRock.canRedo();
+    }
+
+    //Brings the given game of the same level into the state of the snapshot, which notifies its observers of the changed cells.
+    public void applyTo(PushRock pushRock) {
+        if (pushRock.getMoveCount() != this.moveCount) {
+            pushRock.setMoveCount(this.moveCount);
+        }
+        pushRock.setCompactState(this.compactState);
+    }
+}
@@ -0,0 +1,18 @@
+package pushrock.model;
+
+import java.util.function.Supplier;
+
+//Receives the diagnostic output of a PushRock game, such as the rendered board after every move. Messages are passed as suppliers,
+//so that a sink which discards them never has to pay for building the message in the first place.
+public interface IDiagnosticsSink {
+    public void log(Supplier<String> messageSupplier);
+
+    //A sink that discards every message without evaluating it, used when running games headless.
+    public static IDiagnosticsSink silent() {
+        return messageSupplier -> {};
+    }
+    //A sink that evaluates every message and prints it to the console.
+    public static IDiagnosticsSink console() {
+        return messageSupplier -> System.out.println(messageSupplier.get());
+    }
+}
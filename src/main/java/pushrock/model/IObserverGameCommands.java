@@ -0,0 +1,7 @@
+package pushrock.model;
+
+public interface IObserverGameCommands {
+    //Receives every command applied by a game loop, in the order they were applied, along with the number of the step that applied it.
+    //Called on the loop's thread, also for commands the game refused.
+    public void commandApplied(long step, GameCommand command);
+}
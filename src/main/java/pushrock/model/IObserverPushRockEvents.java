@@ -0,0 +1,8 @@
+package pushrock.model;
+
+import java.util.List;
+
+public interface IObserverPushRockEvents {
+    //Receives the changes made by one operation of the observed game, in the order they were made. The list can be kept.
+    public void update(AbstractObservablePushRock observable, List<PushRockEvent> events);
+}
@@ -1,38 +1,91 @@
 package pushrock.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-public class IntervalNotifier implements Runnable, IObservableIntervalNotifier{
-    private List<IObserverIntervalNotifier> observers = new ArrayList<IObserverIntervalNotifier>();
-    private int interval;
-    private boolean isActive;
+//Notifies its observers once every interval while started. The notifications are scheduled at a fixed rate on a
+//ScheduledExecutorService, so the time the observers take to update does not add up over the intervals, and any number of
+//notifiers can share the threads of one scheduler instead of each holding a thread of its own while sleeping.
+//Observers are kept in a copy-on-write list, so they can be added and removed from any thread, also while being notified.
+public class IntervalNotifier implements IObservableIntervalNotifier{
+    //The scheduler used by start(). Its single thread is a daemon thread, so that started notifiers never keep the application running.
+    private static ScheduledExecutorService defaultScheduler;
+
+    private final CopyOnWriteArrayList<IObserverIntervalNotifier> observers = new CopyOnWriteArrayList<IObserverIntervalNotifier>();
+    private final int interval;
+    private ScheduledFuture<?> scheduledNotifications;
 
     public IntervalNotifier(int interval) {
         if (interval < 500) {
-            throw new IllegalArgumentException("Interval must be at least 250 milliseconds.");
+            throw new IllegalArgumentException("Interval must be at least 500 milliseconds.");
         }
         if (interval > 10000) {
             throw new IllegalArgumentException("Interval must be at most 10,000 milliseconds.");
         }
         this.interval = interval;
-        this.isActive = false;
     }
 
-    @Override
-    public void run() {
-        this.isActive = true;
-        while (this.isActive) {
-            try {
-                Thread.sleep(this.interval);
-                this.notifyObservers();
-            } catch (InterruptedException e) {
-                //notify all observers that the the class was interrupted by issuing them to update with the parameter set to null;
-                this.observers.forEach(observer -> observer.update(null));
-                this.isActive = false;
-                this.observers.clear();
+    private static synchronized ScheduledExecutorService getDefaultScheduler() {
+        if (defaultScheduler == null) {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "IntervalNotifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+            //Stopped notifiers should not leave their cancelled notifications behind in the queue of the shared scheduler.
+            scheduler.setRemoveOnCancelPolicy(true);
+            defaultScheduler = scheduler;
+        }
+        return defaultScheduler;
+    }
+
+    public int getInterval() {
+        return this.interval;
+    }
+    public synchronized boolean isActive() {
+        return this.scheduledNotifications != null;
+    }
+
+    //Starts notifying the observers once every interval, on the scheduler shared by all notifiers.
+    public void start() {
+        this.start(getDefaultScheduler());
+    }
+    //Starts notifying the observers once every interval, on the given scheduler. The first notification is made one interval from now.
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        if (scheduler == null) {
+            throw new IllegalArgumentException("Scheduler can not be null.");
+        }
+        if (this.isActive()) {
+            throw new IllegalStateException("Interval notifier is already started.");
+        }
+        this.scheduledNotifications = scheduler.scheduleAtFixedRate(this::notifyScheduled, this.interval, this.interval, TimeUnit.MILLISECONDS);
+    }
+    //Stops the notifications, and notifies all observers that the notifier was stopped by issuing them to update with the parameter
+    //set to null, after which they are removed as observers. A notification that is already being made is allowed to finish.
+    //Does nothing if the notifier is not started.
+    public void stop() {
+        synchronized (this) {
+            if (!this.isActive()) {
                 return;
             }
+            this.scheduledNotifications.cancel(false);
+            this.scheduledNotifications = null;
+        }
+        this.observers.forEach(observer -> observer.update(null));
+        this.observers.clear();
+    }
+
+    private void notifyScheduled() {
+        try {
+            this.notifyObservers();
+        } catch (RuntimeException e) {
+            //The scheduler silently stops a task that throws, so the notifier is stopped to let its observers know, before the
+            //exception is left to the scheduler.
+            this.stop();
+            throw e;
         }
     }
 
@@ -41,16 +94,13 @@ public class IntervalNotifier implements Runnable, IObservableIntervalNotifier{
         if (observer == null) {
             return;
         }
-        if (!this.observers.contains(observer)) {
-            this.observers.add(observer);
-        }
+        //Adding is done atomically, so that an observer added from two threads at once is still only added once.
+        this.observers.addIfAbsent(observer);
     }
 
     @Override
     public void removeObserver(IObserverIntervalNotifier observer) {
-        if (this.observers.contains(observer)) {
-            this.observers.remove(observer);
-        }
+        this.observers.remove(observer);
     }
 
     @Override
@@ -0,0 +1,223 @@
+package pushrock.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//One entry in the undo/redo journal of a PushRock game, covering a single action (a move, a portal placement, a gravity step or
+//an inversion of gravity).
+//Instead of a snapshot of the whole game, an entry only holds the moveable blocks, teleporters and portals that the action
+//changed, each with their values from before and after the action. Undoing or redoing an action is therefore proportional
+//to the number of blocks it changed, and not to the size of the map.
+//Entries are reused once they leave the journal (see reset(..)), so that a game that keeps making moves stops allocating
+//journal entries once its undo history is full.
+class MoveJournalEntry {
+
+    //The values of a moveable block at one point in time.
+    static class MoveableBlockValues {
+        private MoveableBlock block;
+        private int x;
+        private int y;
+        private Direction direction;
+        private boolean state;
+
+        private void set(MoveableBlock block) {
+            this.block = block;
+            this.x = block.getX();
+            this.y = block.getY();
+            this.direction = block.getDirectionValue();
+            this.state = block.getState();
+        }
+        MoveableBlock getBlock() {
+            return this.block;
+        }
+        int getX() {
+            return this.x;
+        }
+        int getY() {
+            return this.y;
+        }
+        Direction getDirection() {
+            return this.direction;
+        }
+        boolean getState() {
+            return this.state;
+        }
+        private boolean equalsValues(MoveableBlockValues other) {
+            return this.x == other.x && this.y == other.y && this.direction == other.direction && this.state == other.state;
+        }
+    }
+
+    //The state of the game on one side of the journaled action, limited to what the action changed.
+    static class Snapshot {
+        //Only the first moveableBlockCount values are in use, the rest are kept to be reused by later actions.
+        private final List<MoveableBlockValues> moveableBlocks = new ArrayList<>();
+        private int moveableBlockCount;
+        private final List<TeleporterBlock> teleporters = new ArrayList<>();
+        private final List<TransferBlock> teleporterConnections = new ArrayList<>();
+        //Portal values are only kept if the action placed a portal, in which case hasPortals is true.
+        private boolean hasPortals;
+        private PortalWallBlock portalOne;
+        private Direction portalOneDirection;
+        private PortalWallBlock portalTwo;
+        private Direction portalTwoDirection;
+        private int moveCount;
+        private int activePressurePlatesCount;
+        private boolean isGameOver;
+        private boolean isGravityInverted;
+
+        int getMoveableBlockCount() {
+            return this.moveableBlockCount;
+        }
+        MoveableBlockValues getMoveableBlock(int index) {
+            return this.moveableBlocks.get(index);
+        }
+        List<TeleporterBlock> getTeleporters() {
+            return this.teleporters;
+        }
+        //Returns the connection the teleporter at the given index of getTeleporters() had, which may be null.
+        TransferBlock getTeleporterConnection(int index) {
+            return this.teleporterConnections.get(index);
+        }
+        boolean hasPortals() {
+            return this.hasPortals;
+        }
+        PortalWallBlock getPortal(boolean isPortalOne) {
+            return isPortalOne ? this.portalOne : this.portalTwo;
+        }
+        Direction getPortalDirection(boolean isPortalOne) {
+            return isPortalOne ? this.portalOneDirection : this.portalTwoDirection;
+        }
+        int getMoveCount() {
+            return this.moveCount;
+        }
+        int getActivePressurePlatesCount() {
+            return this.activePressurePlatesCount;
+        }
+        boolean isGameOver() {
+            return this.isGameOver;
+        }
+        boolean isGravityInverted() {
+            return this.isGravityInverted;
+        }
+
+        private void addMoveableBlock(MoveableBlock block) {
+            if (this.moveableBlockCount == this.moveableBlocks.size()) {
+                this.moveableBlocks.add(new MoveableBlockValues());
+            }
+            this.moveableBlocks.get(this.moveableBlockCount).set(block);
+            this.moveableBlockCount++;
+        }
+        private void clear() {
+            this.moveableBlockCount = 0;
+            this.teleporters.clear();
+            this.teleporterConnections.clear();
+            this.hasPortals = false;
+            this.portalOne = null;
+            this.portalOneDirection = null;
+            this.portalTwo = null;
+            this.portalTwoDirection = null;
+        }
+        private void setPortals(PortalWallBlock portalOne, PortalWallBlock portalTwo) {
+            this.hasPortals = true;
+            this.portalOne = portalOne;
+            this.portalOneDirection = portalOne == null ? null : portalOne.getDirectionValue();
+            this.portalTwo = portalTwo;
+            this.portalTwoDirection = portalTwo == null ? null : portalTwo.getDirectionValue();
+        }
+        private void setCounters(int moveCount, int activePressurePlatesCount, boolean isGameOver, boolean isGravityInverted) {
+            this.moveCount = moveCount;
+            this.activePressurePlatesCount = activePressurePlatesCount;
+            this.isGameOver = isGameOver;
+            this.isGravityInverted = isGravityInverted;
+        }
+    }
+
+    private final Snapshot before = new Snapshot();
+    private final Snapshot after = new Snapshot();
+    private boolean isClosed;
+
+    //Opens the entry for an action that is about to be made, starting from the given counters. Anything the entry held from
+    //an earlier action is discarded.
+    void reset(int moveCount, int activePressurePlatesCount, boolean isGameOver, boolean isGravityInverted) {
+        this.before.clear();
+        this.after.clear();
+        this.before.setCounters(moveCount, activePressurePlatesCount, isGameOver, isGravityInverted);
+        this.isClosed = false;
+    }
+
+    //The record methods must be called before the given block is changed. Blocks that have already been recorded in this entry
+    //are ignored, as the entry should hold their values from before the action, and not from partway through it.
+    void recordMoveableBlock(MoveableBlock block) {
+        this.checkOpen();
+        for (int i = 0; i < this.before.moveableBlockCount; i++) {
+            if (this.before.moveableBlocks.get(i).getBlock() == block) {
+                return;
+            }
+        }
+        this.before.addMoveableBlock(block);
+    }
+    void recordTeleporter(TeleporterBlock teleporter) {
+        this.checkOpen();
+        if (!this.before.teleporters.contains(teleporter)) {
+            this.before.teleporters.add(teleporter);
+            this.before.teleporterConnections.add(teleporter.getConnection());
+        }
+    }
+    void recordPortals(PortalWallBlock portalOne, PortalWallBlock portalTwo) {
+        this.checkOpen();
+        if (!this.before.hasPortals) {
+            this.before.setPortals(portalOne, portalTwo);
+        }
+    }
+
+    //Closes the entry once the action is complete, reading the values every recorded block has after the action.
+    void close(PortalWallBlock portalOne, PortalWallBlock portalTwo, int moveCount, int activePressurePlatesCount, boolean isGameOver, boolean isGravityInverted) {
+        this.checkOpen();
+        for (int i = 0; i < this.before.moveableBlockCount; i++) {
+            this.after.addMoveableBlock(this.before.moveableBlocks.get(i).getBlock());
+        }
+        for (int i = 0; i < this.before.teleporters.size(); i++) {
+            TeleporterBlock teleporter = this.before.teleporters.get(i);
+            this.after.teleporters.add(teleporter);
+            this.after.teleporterConnections.add(teleporter.getConnection());
+        }
+        if (this.before.hasPortals) {
+            this.after.setPortals(portalOne, portalTwo);
+        }
+        this.after.setCounters(moveCount, activePressurePlatesCount, isGameOver, isGravityInverted);
+        this.isClosed = true;
+    }
+    private void checkOpen() {
+        if (this.isClosed) {
+            throw new IllegalStateException("A closed journal entry can not be changed.");
+        }
+    }
+
+    //Returns true if the action changed anything. Actions that did not, such as a move into a wall the player was already
+    //facing, are not worth keeping in the journal.
+    boolean hasChanges() {
+        if (this.before.moveCount != this.after.moveCount || this.before.activePressurePlatesCount != this.after.activePressurePlatesCount
+         || this.before.isGameOver != this.after.isGameOver || this.before.isGravityInverted != this.after.isGravityInverted) {
+            return true;
+        }
+        for (int i = 0; i < this.before.moveableBlockCount; i++) {
+            if (!this.before.moveableBlocks.get(i).equalsValues(this.after.moveableBlocks.get(i))) {
+                return true;
+            }
+        }
+        for (int i = 0; i < this.before.teleporters.size(); i++) {
+            if (this.before.teleporterConnections.get(i) != this.after.teleporterConnections.get(i)) {
+                return true;
+            }
+        }
+        return this.before.hasPortals && (this.before.portalOne != this.after.portalOne || this.before.portalTwo != this.after.portalTwo
+         || this.before.portalOneDirection != this.after.portalOneDirection || this.before.portalTwoDirection != this.after.portalTwoDirection);
+    }
+
+    Snapshot getBefore() {
+        return this.before;
+    }
+    Snapshot getAfter() {
+        return this.after;
+    }
+}
@@ -4,6 +4,9 @@ public class MoveableBlock extends DirectedBlock {
 
     //Constructor with specified direction
     public MoveableBlock(int x, int y, char type, String direction) {
+        this(x, y, type, Direction.fromString(direction));
+    }
+    MoveableBlock(int x, int y, char type, Direction direction) {
         super(x, y, type, direction);
     }
 
@@ -19,8 +22,8 @@ public class MoveableBlock extends DirectedBlock {
     }
     //Moveable blocks must have a non-neutral direction.
     @Override
-    protected String[] getValidDirections() {
-        return new String[] {"up", "down", "left", "right"};
+    protected boolean isValidDirection(Direction direction) {
+        return direction != null;
     }
     //setDirection(..) is a protected method inherited from DirectedBlock, which has it's visibillity increased to public as to allow moveable blocks to change their direction dynamically.
     @Override
@@ -30,44 +33,27 @@ public class MoveableBlock extends DirectedBlock {
 
     //Moves this block one step in the given direction
     public boolean up() {
-        this.setY(this.getY()+1);
-        this.setDirection("up");
-        return true;
+        return this.moveInDirection(Direction.UP);
     }
     public boolean down() {
-        this.setY(this.getY()-1);
-        this.setDirection("down");
-        return true;
+        return this.moveInDirection(Direction.DOWN);
     }
     public boolean left() {
-        this.setX(this.getX()-1);
-        this.setDirection("left");
-        return true;
+        return this.moveInDirection(Direction.LEFT);
     }
     public boolean right() {
-        this.setX(this.getX()+1);
-        this.setDirection("right");
-        return true;
+        return this.moveInDirection(Direction.RIGHT);
     }
     //Move this block in the given direction, return true if the block was moved successfully, false if not.
     public boolean moveInDirection(String direction) {
-        //setDirection(..) will perform a validation check of the input direction before setting it.
-        this.setDirection(direction); 
-        switch (this.getDirection()) {
-            case "up":
-                this.up();
-                return true;
-            case "down":
-                this.down();
-                return true;
-            case "left":
-                this.left();
-                return true;
-            case "right":
-                this.right();
-                return true;
-        }
-        return false;
+        //The direction name is validated once here, after which the move itself needs no further checks.
+        return this.moveInDirection(Direction.fromString(direction));
+    }
+    boolean moveInDirection(Direction direction) {
+        this.setDirection(direction);
+        this.setX(this.getX() + direction.getDX());
+        this.setY(this.getY() + direction.getDY());
+        return true;
     }
 
     //Valid types for this class are player 'p' and rock 'r'.
@@ -79,7 +65,7 @@ public class MoveableBlock extends DirectedBlock {
     private void setPlayer() {
         this.setTypeCharacter('p');
         this.setState(false);
-        this.setDirection("right"); //chosen default value;
+        this.setDirection(Direction.RIGHT); //chosen default value;
     }
     public boolean isPlayer() {
         return this.getType() == 'p';
@@ -88,7 +74,7 @@ public class MoveableBlock extends DirectedBlock {
     private void setRock() {
         this.setTypeCharacter('r');
         this.setState(false);
-        this.setDirection("right"); //chosen default value;
+        this.setDirection(Direction.RIGHT); //chosen default value;
     }
     public boolean isRock() {
         return this.getType() == 'r';
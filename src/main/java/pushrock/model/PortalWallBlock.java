@@ -9,14 +9,14 @@ public class PortalWallBlock extends TransferBlock {
     }
 
     @Override
-    protected String[] getValidDirections() {
+    protected boolean isValidDirection(Direction direction) {
         if (this.isWall()) {
             //walls can only have their direction set to null.
-            return new String[]{null};
+            return direction == null;
         }
         else {
             //portals must have their direction set to up, down, right, or left.
-            return new String[]{"up", "down", "right", "left"};
+            return direction != null;
         }
     }
     //Valid types include: wall 'w', portal-one 'v', and portal-two 'u'.
@@ -40,12 +40,15 @@ public class PortalWallBlock extends TransferBlock {
         this.setTypeCharacter('w');
         this.setState(false);
         this.setConnection(null);
-        this.setDirection(null);
+        this.setDirection((Direction) null);
     }
     public boolean isWall() {
         return this.getType() == 'w';
     }
     public void setPortal(boolean isPortalOne, String direction, PortalWallBlock connection) {
+        this.setPortal(isPortalOne, Direction.fromString(direction), connection);
+    }
+    void setPortal(boolean isPortalOne, Direction direction, PortalWallBlock connection) {
         if (connection != null && isPortalOne == ((PortalWallBlock) connection).isPortalOne()) {
             throw new IllegalArgumentException("A portal can only connect to another portal of an opposing type.");
         }
@@ -86,10 +89,10 @@ public class PortalWallBlock extends TransferBlock {
                 break;
             //portals must always have a specified direction, "right" will be given as a default value
             case 'v':
-                setPortal(true, "right", null); 
+                setPortal(true, Direction.RIGHT, null); 
                 break;
             case 'u':
-                setPortal(false, "right", null);
+                setPortal(false, Direction.RIGHT, null);
                 break;
             default:
                 checkForTypeException(type);
@@ -112,31 +115,9 @@ public class PortalWallBlock extends TransferBlock {
         if ( this.getConnection() == null) {
             return null;
         }
-        int[] entryPoint = new int[2];
-        int entryX;
-        int entryY;
-        String portalDirection;
-        entryX = this.getX();
-        entryY = this.getY();
-        portalDirection = this.getDirection();
-
-        switch (portalDirection) {
-            case "up":
-                entryY++;
-                break;
-            case "down":
-                entryY--;
-                break;
-            case "left":
-                entryX--;
-                break;
-            case "right":
-                entryX++;
-                break;
-        }
-        entryPoint[0] = entryX;
-        entryPoint[1] = entryY;
-        return entryPoint;
+        //The entry point is the cell right in front of the portal, in the direction it is facing.
+        Direction portalDirection = this.getDirectionValue();
+        return new int[]{this.getX() + portalDirection.getDX(), this.getY() + portalDirection.getDY()};
     }
 
     public int[][] getEntryPointsXY() {
@@ -168,6 +149,24 @@ public class PortalWallBlock extends TransferBlock {
         return ((PortalWallBlock) this.getConnection()).getPortalEntryPointXY();
     }
 
+    //The entry point of a portal is the cell right in front of it.
+    @Override
+    protected boolean isEntryPoint(int x, int y) {
+        Direction portalDirection = this.getDirectionValue();
+        return x == this.getX() + portalDirection.getDX() && y == this.getY() + portalDirection.getDY();
+    }
+    //A block leaves the connected portal at the cell right in front of it.
+    @Override
+    public int getExitX(int entryX, int entryY) {
+        TransferBlock connection = this.getConnection();
+        return connection.getX() + connection.getDirectionValue().getDX();
+    }
+    @Override
+    public int getExitY(int entryX, int entryY) {
+        TransferBlock connection = this.getConnection();
+        return connection.getY() + connection.getDirectionValue().getDY();
+    }
+
     @Override
     public String toString() {
         switch (this.getType()) {
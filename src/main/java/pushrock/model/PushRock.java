@@ -1,12 +1,17 @@
 package pushrock.model;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
-public class PushRock extends AbstractObservablePushRock {
+public class PushRock extends AbstractObservablePushRock implements IObserverIntervalNotifier {
 
     private String levelName;
     private String levelMapLayout;
+    //The level map layout without line separators, which saves are checked against, see checkLayoutsValidity(..).
+    private String levelTypeSequence;
     private String levelDirectionLayout;
     private int width;
     private int height;
@@ -18,6 +23,15 @@ public class PushRock extends AbstractObservablePushRock {
     //Moveable blocks are free to move around in traversable area, but are restricted by placements of directed blocks, 
     //which includes both transfer and other moveable blocks.     
     private List<MoveableBlock> moveableBlocks = new ArrayList<>();            
+    //Occupancy grid for the moveable blocks, indexed the same way as the other block grids ([-y][x]). It mirrors the
+    //coordinates of every block in moveableBlocks, so that looking up the moveable block at a coordinate does not require
+    //a scan of the list. Any change to a moveable block's coordinates must go through relocateMoveableBlock(..).
+    private MoveableBlock[][] moveableBlockGrid;
+    //Scratch space used to rotate a chain of blocks that is pushed through a transporter back into itself, kept between moves
+    //so that pushing does not allocate.
+    private MoveableBlock[] blockChainBuffer = new MoveableBlock[0];
+    //Lookup table of the first transfer block in each direction from each cell, see findTransferInDirection(..).
+    private int[][] transferCellsInDirection;
     //Teleporters, once activated, can transport an entering moveable block to their exit point. A set amount of these
     //are pre-placed based on the level.                                           
     private List<TeleporterBlock> teleporters = new ArrayList<>();
@@ -29,10 +43,119 @@ public class PushRock extends AbstractObservablePushRock {
     //move count is increased. The move count will serve as the game's score, where a lower score is better.
     private int moveCount;
     private int activePressurePlatesCount;
+    //Pressure plates never change once the world is built, so they are counted once by buildWorld(..). The number of moveable
+    //blocks standing on a pressure plate is kept up to date by setMoveableBlockState(..), which lets every move check for a win
+    //without scanning the map or the blocks.
+    private int pressurePlateCount;
+    private int activeMoveableBlocksCount;
     private boolean isGameOver;
 
+    //Moveable blocks in the gravity plane (the cells that are not seen in bird view) fall one step in the direction of gravity
+    //every gravity step, see gravityStep(). Gravity pulls downwards, or upwards while it is inverted. Gravity steps are either made
+    //manually, after every move input, or on the notifications of an interval notifier the game observes.
+    private enum GravityApplication {
+        MANUAL,
+        MOVE_INPUT,
+        INTERVAL
+    }
+    private boolean isGravityInverted;
+    private GravityApplication gravityApplication = GravityApplication.INTERVAL;
+    private boolean isIntervalGravityPaused;
+    private boolean isIntervalGravityPauseRequested;
+    //Worklist of the cells holding moveable blocks that may be able to fall, so that a gravity step only looks at the blocks next to
+    //what changed since the last step instead of at every block. A cell is added whenever a block moves into it, a block moves away
+    //from one of its vertical neighbours, or a transporter next to it changes. isGravityCandidate keeps each cell from being listed
+    //twice. Cells are packed as by packCell(..).
+    private boolean[] isGravityCandidate = new boolean[0];
+    private int[] gravityCandidates = new int[0];
+    private int gravityCandidateCount;
+    //Scratch space of gravityStep(): the cells being processed by the step, and the blocks of the stack being moved.
+    private int[] gravityStepCells = new int[0];
+    private MoveableBlock[] gravityStack = new MoveableBlock[0];
+    //The number of the last gravity step, and for every cell the number of the step during which a block was last moved into it.
+    //A block whose cell holds the number of the current step has already moved during the step, and is not moved again.
+    private int gravityStepNumber;
+    private int[] cellMoveStepNumbers = new int[0];
+    //Zobrist hash of the current game state, see stateHash(). It is updated incrementally whenever a block, portal, teleporter
+    //connection or the game over state changes, and recomputed from scratch whenever the whole world is rebuilt or restored.
+    private long stateHash;
+    //Change events of the operation in progress, see completeEventBatch(). Moveable blocks changed by the operation are kept along
+    //with the coordinates they had before their first change, so each block gets a single event however often it changed. In the
+    //same way, teleporters whose connection may have changed are kept along with the connection they had before. The move count and
+    //game over state last told to event observers are kept to find out whether they changed.
+    private final List<MoveableBlock> changedBlocks = new ArrayList<>();
+    private final List<int[]> changedBlockOrigins = new ArrayList<>();
+    private final List<TransferBlock> changedTeleporters = new ArrayList<>();
+    private final List<TransferBlock> changedTeleporterOrigins = new ArrayList<>();
+    private int publishedMoveCount;
+    private boolean publishedIsGameOver;
+    private final BoardView boardView = new BoardView(this);
+    //Undo/redo journal. While a player action is being made, journalEntry records the blocks it changes (see MoveJournalEntry).
+    //Completed actions are kept on the undo journal, and undone actions on the redo journal until a new action is made.
+    //The undo journal holds at most UNDO_LIMIT actions, after which the oldest ones are forgotten. Entries that leave the journals
+    //are kept in journalEntryPool and reused for later actions.
+    public static final int UNDO_LIMIT = 10_000;
+    private MoveJournalEntry journalEntry;
+    private final Deque<MoveJournalEntry> undoJournal = new ArrayDeque<>();
+    private final Deque<MoveJournalEntry> redoJournal = new ArrayDeque<>();
+    private final Deque<MoveJournalEntry> journalEntryPool = new ArrayDeque<>();
+
+    //Diagnostic output (such as the rendered board after every move) is written to the diagnostics sink. New games use the
+    //default sink, which prints to the console unless it has been changed, for example to run games headless.
+    private static IDiagnosticsSink defaultDiagnosticsSink = IDiagnosticsSink.console();
+    private IDiagnosticsSink diagnosticsSink = defaultDiagnosticsSink;
+    //The board is logged after every action, so the supplier of it is kept instead of creating a new one for each log call.
+    private final Supplier<String> coordinateStringSupplier = this::coordinateString;
+
+    //Returns the layout with its line separators replaced by the system line separator. A layout that already uses the system line
+    //separator is returned as it is.
     public String replaceLineSeparators(String layout) {
-        return layout.replaceAll("\\n|\\r\\n", System.getProperty("line.separator"));
+        String lineSeparator = System.lineSeparator();
+        StringBuilder replacedLayout = null;
+        for (int i = 0; i < layout.length(); i++) {
+            int separatorLength = getLineSeparatorLength(layout, i);
+            if (separatorLength > 0 && replacedLayout == null && !layout.startsWith(lineSeparator, i)) {
+                replacedLayout = new StringBuilder(layout.length());
+                replacedLayout.append(layout, 0, i);
+            }
+            if (replacedLayout != null) {
+                if (separatorLength > 0) {
+                    replacedLayout.append(lineSeparator);
+                }
+                else {
+                    replacedLayout.append(layout.charAt(i));
+                }
+            }
+            if (separatorLength > 0) {
+                i += separatorLength - 1;
+            }
+        }
+        return replacedLayout == null ? layout : replacedLayout.toString();
+    }
+    //Returns the length of the line separator ("\n" or "\r\n") that starts at the given index of the layout, or 0 if there is none.
+    private static int getLineSeparatorLength(String layout, int index) {
+        char character = layout.charAt(index);
+        if (character == '\n') {
+            return 1;
+        }
+        if (character == '\r' && index + 1 < layout.length() && layout.charAt(index + 1) == '\n') {
+            return 2;
+        }
+        return 0;
+    }
+    //Returns the layout without its line separators and trailing white space, which is the form the world is built from.
+    private static String toTypeSequence(String layout) {
+        StringBuilder typeSequence = new StringBuilder(layout.length());
+        for (int i = 0; i < layout.length(); i++) {
+            int separatorLength = getLineSeparatorLength(layout, i);
+            if (separatorLength > 0) {
+                i += separatorLength - 1;
+            }
+            else {
+                typeSequence.append(layout.charAt(i));
+            }
+        }
+        return typeSequence.toString().stripTrailing();
     }
 
     //Constructors
@@ -40,13 +163,13 @@ public class PushRock extends AbstractObservablePushRock {
         if (levelName == null || levelMapLayout == null || levelDirectionLayout == null) {
             throw new IllegalArgumentException("Null is invalid for all constructor parameters.");
         }
-        System.out.println("Constructor: build from level information");
+        this.log(() -> "Constructor: build from level information");
         levelMapLayout = replaceLineSeparators(levelMapLayout);
         this.buildWorld(levelMapLayout, levelDirectionLayout, false);
         this.setLevelValues(levelName, levelMapLayout, levelDirectionLayout);
     }
     public PushRock(String levelName, String levelMapLayout, String levelDirectionLayout, String saveMapLayout, String saveDirectionLayout, int saveMoveCount) {
-        System.out.println("Constructor: build from save information");
+        this.log(() -> "Constructor: build from save information");
         if (levelName == null || levelMapLayout == null || levelDirectionLayout == null || saveMapLayout == null || saveDirectionLayout == null) {
             throw new IllegalArgumentException("Null is invalid for all constructor parameters.");
         }
@@ -57,7 +180,6 @@ public class PushRock extends AbstractObservablePushRock {
         saveMapLayout = replaceLineSeparators(saveMapLayout);
         this.buildWorld(levelMapLayout, levelDirectionLayout, false);
         this.setLevelValues(levelName, levelMapLayout, levelDirectionLayout);
-        this.checkLayoutCompabillityWithLevel(saveMapLayout, saveDirectionLayout);
         this.buildWorld(saveMapLayout, saveDirectionLayout, true);
         if (moveCount < 0) {
             throw new IllegalArgumentException("Move count must be at least zero.");
@@ -71,128 +193,242 @@ public class PushRock extends AbstractObservablePushRock {
         }
         this.levelName = levelName;
         this.levelMapLayout = levelMapLayout;
+        this.levelTypeSequence = toTypeSequence(levelMapLayout);
         this.levelDirectionLayout = levelDirectionLayout;
     }
 
+    //Character classes of the map layout characters, see getLayoutCharacterClass(..). A character can be in several classes, for
+    //example 'o' is both a rock and a pressure plate. Upper case letters and '-' are the forms of the other characters that place
+    //them in the gravity plane, where they are seen from the side rather than in bird view.
+    private static final int LAYOUT_VALID = 1;
+    private static final int LAYOUT_ROW_END = 1 << 1;
+    private static final int LAYOUT_PLAYER = 1 << 2;
+    private static final int LAYOUT_ROCK = 1 << 3;
+    private static final int LAYOUT_UNOCCUPIED_PRESSURE_PLATE = 1 << 4;
+    private static final int LAYOUT_PRESSURE_PLATE = 1 << 5;
+    private static final int LAYOUT_WALL = 1 << 6;
+    private static final int LAYOUT_PORTAL = 1 << 7;
+    private static final int LAYOUT_TELEPORTER = 1 << 8;
+    private static final int LAYOUT_GRAVITY_PLANE = 1 << 9;
+
+    //Returns the classes of the given map layout character as a combination of the LAYOUT_ flags, or 0 if it is not a valid character.
+    private static int getLayoutCharacterClass(char character) {
+        int gravityPlane = Character.isUpperCase(character) || character == '-' ? LAYOUT_GRAVITY_PLANE : 0;
+        switch (Character.toLowerCase(character)) {
+            case ' ':
+            case '-':
+                return LAYOUT_VALID | gravityPlane;
+            case '@':
+                return LAYOUT_VALID | LAYOUT_ROW_END;
+            case 'p':
+                return LAYOUT_VALID | LAYOUT_PLAYER | gravityPlane;
+            case 'q':
+                return LAYOUT_VALID | LAYOUT_PLAYER | LAYOUT_PRESSURE_PLATE | gravityPlane;
+            case 'r':
+                return LAYOUT_VALID | LAYOUT_ROCK | gravityPlane;
+            case 'o':
+                return LAYOUT_VALID | LAYOUT_ROCK | LAYOUT_PRESSURE_PLATE | gravityPlane;
+            case 'd':
+                return LAYOUT_VALID | LAYOUT_UNOCCUPIED_PRESSURE_PLATE | LAYOUT_PRESSURE_PLATE | gravityPlane;
+            case 'w':
+                return LAYOUT_VALID | LAYOUT_WALL | gravityPlane;
+            case 'u':
+            case 'v':
+                return LAYOUT_VALID | LAYOUT_WALL | LAYOUT_PORTAL | gravityPlane;
+            case 't':
+                return LAYOUT_VALID | LAYOUT_TELEPORTER | gravityPlane;
+            default:
+                return 0;
+        }
+    }
+
+    //Checks the layouts in a single pass over each of them. When the layouts are of a save, the map layout is compared to the
+    //level's map layout in the same pass. Everything the checks need is gathered along the way, and the checks are then made in
+    //the order their messages are reported in.
     private String checkLayoutsValidity(String mapLayout, String directionLayout, boolean isSave) {
         if (mapLayout.length() < 2) {
             return ("Map layout length must be at least 2. Length was: " + mapLayout.length());
         }
-        if (mapLayout.toLowerCase().chars().filter(ch -> ch == 'p' || ch == 'q').count() != 1) {
+        String levelTypeSequence = isSave ? this.levelTypeSequence : null;
+        int playerCount = 0;
+        int portalCount = 0;
+        int rockCount = 0;
+        int levelPortalCount = 0;
+        int levelRockCount = 0;
+        boolean hasUnoccupiedPressurePlate = false;
+        boolean hasInvalidCharacter = false;
+        boolean hasConsistentWidth = true;
+        int width = -1;
+        int column = 0;
+        int length = 0;
+        char lastCharacter = 0;
+        String levelMismatchMessage = null;
+        for (int i = 0; i < mapLayout.length(); i++) {
+            int separatorLength = getLineSeparatorLength(mapLayout, i);
+            if (separatorLength > 0) {
+                i += separatorLength - 1;
+                continue;
+            }
+            char character = mapLayout.charAt(i);
+            int characterClass = getLayoutCharacterClass(character);
+            if (characterClass == 0) {
+                hasInvalidCharacter = true;
+            }
+            if ((characterClass & LAYOUT_PLAYER) != 0) {
+                playerCount++;
+            }
+            if ((characterClass & LAYOUT_PORTAL) != 0) {
+                portalCount++;
+            }
+            if ((characterClass & LAYOUT_ROCK) != 0) {
+                rockCount++;
+            }
+            if ((characterClass & LAYOUT_UNOCCUPIED_PRESSURE_PLATE) != 0) {
+                hasUnoccupiedPressurePlate = true;
+            }
+            //Every row must end with '@' right after the width of the first row.
+            if ((characterClass & LAYOUT_ROW_END) != 0) {
+                if (width == -1) {
+                    width = column;
+                }
+                else if (column != width) {
+                    hasConsistentWidth = false;
+                }
+                column = 0;
+            }
+            else {
+                if (column == width) {
+                    hasConsistentWidth = false;
+                }
+                column++;
+            }
+            if (levelTypeSequence != null && length < levelTypeSequence.length()) {
+                char levelCharacter = levelTypeSequence.charAt(length);
+                int levelCharacterClass = getLayoutCharacterClass(levelCharacter);
+                if ((levelCharacterClass & LAYOUT_PORTAL) != 0) {
+                    levelPortalCount++;
+                }
+                if ((levelCharacterClass & LAYOUT_ROCK) != 0) {
+                    levelRockCount++;
+                }
+                if (levelMismatchMessage == null) {
+                    levelMismatchMessage = checkLayoutCharacterCompatibility(length, character, characterClass, levelCharacter, levelCharacterClass);
+                }
+            }
+            length++;
+            lastCharacter = character;
+        }
+
+        if (playerCount != 1) {
             return ("Map layout must contain exactly one player: 'p'/'q'.");
         }
-        if (!(mapLayout.toLowerCase().contains("d"))) {
+        if (!hasUnoccupiedPressurePlate) {
             return ("Map layout must contain at least one unoccupied pressure plate 'd'.");
         }
-        if (!mapLayout.toLowerCase().matches("[ -prqotwuv@]+")) {
-            return ("The map layout can only contain the letters representing existing types: ' -prqotwu' and the width marker '@'.");
+        if (hasInvalidCharacter) {
+            return ("The map layout can only contain the letters representing existing types: ' -prqotwuvd' and the width marker '@'.");
         }
-        if (!(mapLayout.contains("@"))) {
+        if (width == -1) {
             return ("Map layout must contain at least one '@' as to mark the map's width.");
         }
-        int width = mapLayout.indexOf("@");
-        String mapLayoutNoLineSeparators = mapLayout.replaceAll("\\n|\\r\\n", "");
-        for (int i = width; i < mapLayoutNoLineSeparators.length(); i+=width+1) {
-            if (mapLayoutNoLineSeparators.charAt(i) != '@') {
-                throw new IllegalArgumentException("The map layout must have a consistent width for all its rows.");
-            }
+        if (!hasConsistentWidth) {
+            throw new IllegalArgumentException("The map layout must have a consistent width for all its rows.");
         }
-        if (mapLayoutNoLineSeparators.charAt(mapLayoutNoLineSeparators.length() - 1) != '@') {
+        if (lastCharacter != '@') {
             throw new IllegalArgumentException("The map layout must end with '@' to mark the end of the map.");
         }
-        if (mapLayoutNoLineSeparators.length() % (width+1) != 0) {
-            throw new IllegalArgumentException("The map's last row must be of equal width as the rest of the map.");
-        }
+
         if (directionLayout.length() < 1) {
             return ("Direction layout must contain at least 1 character, one for the direction of the player.");
         }
-        if (!directionLayout.toLowerCase().endsWith("g") || directionLayout.toLowerCase().chars().filter(ch -> ch == 'g').count() > 1) {
+        int goalCount = 0;
+        boolean hasInvalidDirection = false;
+        for (int i = 0; i < directionLayout.length(); i++) {
+            switch (Character.toLowerCase(directionLayout.charAt(i))) {
+                case 'g':
+                    goalCount++;
+                    break;
+                case 'u':
+                case 'd':
+                case 'r':
+                case 'l':
+                    break;
+                default:
+                    hasInvalidDirection = true;
+            }
+        }
+        if (Character.toLowerCase(directionLayout.charAt(directionLayout.length() - 1)) != 'g' || goalCount > 1) {
             return ("Direction layout must contain exactly one instance of the character 'g', and it must be placed at the end.");
         }
-        if (!directionLayout.toLowerCase().matches("[udrlg]+")) {
+        if (hasInvalidDirection) {
             return ("The direction layout can only contain the letters udrlg.");
         }
+
         if (isSave) {
-            String exceptionMessage = this.checkLayoutCompabillityWithLevel(mapLayout, directionLayout);
-            if (exceptionMessage != null) {
-                return exceptionMessage;
+            //The map layouts must be of equal length
+            if (length != levelTypeSequence.length()) {
+                return "Save map layout and level map layout must be of equal length to be compatible. Save map layout length was: " + length + " and level map layout length was: " + levelTypeSequence.length();
+            }
+            //The map layouts must be of equal width
+            if (width != levelTypeSequence.indexOf('@')) {
+                return "Map layout and level layout must be of equal width to be compatible. Map layout width was: " + width + " and level layout width was: " + levelTypeSequence.indexOf('@');
+            }
+            //The direction layouts must contain the same amount of non-portal directions.
+            if (directionLayout.length() - portalCount != this.levelDirectionLayout.length() - levelPortalCount) {
+                return "Save direction layout must contain the same amount character representations for non-portal directions.";
+            }
+            if (levelMismatchMessage != null) {
+                return levelMismatchMessage;
+            }
+            //The layouts must have matching counts of rocks.
+            if (rockCount != levelRockCount) {
+                return "Map layouts must have matching counts of rocks. Count for input was: " + rockCount + " count for level was: " + levelRockCount;
             }
         }
         return null;
     }
-    private String checkLayoutCompabillityWithLevel(String mapLayout, String directionLayout) {
-        mapLayout = mapLayout.replaceAll("\\n|\\r\\n", "").stripTrailing();
-        String levelMapLayout = this.levelMapLayout.replaceAll("\\n|\\r\\n", "").stripTrailing();
-
-        //If the input map and direction layouts are equal to the level map and direction layouts, then they are the same, as they must be compatible with themselves.
-        if (mapLayout == this.levelMapLayout && directionLayout.length() == this.levelDirectionLayout.length()) {
-            return null;
-        }
-        //The map layouts must be of equal length
-        if (mapLayout.length() != levelMapLayout.length()) {
-            return "Save map layout and level map layout must be of equal length to be compatible. Save map layout length was: " + mapLayout.length() + " and level map layout length was: " + this.levelMapLayout.length();
-        }
-        //The map layouts must be of equal width
-        if (mapLayout.indexOf("@") != levelMapLayout.indexOf("@")) {
-            return "Map layout and level layout must be of equal width to be compatible. Map layout width was: " + mapLayout.indexOf("@") + " and level layout width was: " + this.levelMapLayout.indexOf("@");
+    //Checks that the character at the given index of a save's map layout is compatible with the character at the same index of the
+    //level's map layout. Returns a message describing the first incompatibility found, or null if they are compatible.
+    private static String checkLayoutCharacterCompatibility(int index, char inputTypeChar, int inputClass, char levelTypeChar, int levelClass) {
+        //Bird-view can not be changed, and thus for any one coordinate's bird-view state in one layout, the other layout must have a matching bird-view state for their coordinate.
+        if ((inputClass & LAYOUT_GRAVITY_PLANE) != (levelClass & LAYOUT_GRAVITY_PLANE)) {
+            return "Map layouts must have matching bird-view values for every coordinate to be compatible. Characters at index " + index + " did not match. Input type of input was: " + inputTypeChar + " and level was: " + levelTypeChar;
         }
-        //The direction layouts must contain the same amount of non-portal directions.
-        if (directionLayout.length() - mapLayout.toLowerCase().chars().filter(ch -> ch == 'u' || ch == 'v').count()  != this.levelDirectionLayout.length() - this.levelMapLayout.toLowerCase().chars().filter(ch -> ch == 'u' || ch == 'v').count()) {
-            return "Save direction layout must contain the same amount character representations for non-portal directions.";
+        //If one map layout has a coordinate with a wall or portal, then the other one must also have a wall or portal at that coordinate.
+        if ((inputClass & LAYOUT_WALL) != (levelClass & LAYOUT_WALL)) {
+            return "Map layouts must have matching walls. Input type was: " + inputTypeChar + " and level type was: " + levelTypeChar;
         }
-
-        //The layouts must have matching counts of players and rocks, thus we keep track of how many of each the layouts have.
-        int inputRockCount = 0;
-        int levelRockCount = 0;
-
-        //For each index, there is a character representing a block's attributes in terms of type and bird-view-state.
-        //The compatibillity between the two map layouts will depend on these attributes and how they compare between the two.
-        for (int i = 0; i < mapLayout.length(); i++) {
-            //Obtain the character represeting the block's type at index i in each map-layout.
-            char inputTypeChar = mapLayout.charAt(i);
-            char levelTypeChar = levelMapLayout.charAt(i);
-            //Upper case characters and "-" indicates that bird view should be enabled, wheras lower case characters and " " indicates that it is disabled.
-            //Bird-view can not be changed, and thus for any one coordinate's bird-view state in one layout, the other layout must have a matching bird-view state for their coordinate.
-            if ( ((Character.isUpperCase(inputTypeChar) || inputTypeChar == '-') & !(Character.isUpperCase(levelTypeChar) || levelTypeChar == '-')) 
-              || ((Character.isLowerCase(inputTypeChar) || inputTypeChar == ' ') & !(Character.isLowerCase(levelTypeChar) || levelTypeChar == ' '))) {
-                return "Map layouts must have matching bird-view values for every coordinate to be compatible. Characters at index " + i + " did not match. Input type of input was: " + inputTypeChar + " and level was: " + levelTypeChar;
-            }
-            //Once bird-view has been assured to match, upper-case will no longer matter
-            String inputType = Character.toString(Character.toLowerCase(inputTypeChar));
-            String levelType = Character.toString(Character.toLowerCase(levelTypeChar));
-
-            //If one map layout has a coordinate with a wall or portal, then the other one must also have a wall or portal at that coordinate.
-            if ("wvu".contains(inputType) != "wvu".contains(levelType)) {
-                return "Map layouts must have matching walls. Input type was: " + inputTypeChar + " and level type was: " + levelTypeChar;
-            }
-            //If one map layout has a coordinate with a teleporter, then the other one must also have a teleporter at that coordinate.
-            if ("t".contains(inputType) != "t".contains(levelType)) {
-                return "Map layouts must have matching teleporters. Input type was: " + inputTypeChar + " and level type was: " + levelTypeChar;
-            }
-            //If one map layout has a coordinate with a pressure plate, then the other one must also have a pressure plate at that coordinate.
-            if ( ("d".contains(inputType) || "q".contains(inputType) || "o".contains(inputType) ) != ("d".contains(levelType) || "q".contains(levelType) || "o".contains(levelType))) {
-                return "Map layouts must have matching pressure plate. Input type was: " + inputTypeChar + " and level type was: " + levelTypeChar;
-            }
-            //Increment rock count accordingly
-            if ("r".contains(inputType) || "o".contains(inputType)) {
-                inputRockCount++;
-            }
-            if ("r".contains(levelType) || "o".contains(levelType)) {
-                levelRockCount++;
-            }
+        //If one map layout has a coordinate with a teleporter, then the other one must also have a teleporter at that coordinate.
+        if ((inputClass & LAYOUT_TELEPORTER) != (levelClass & LAYOUT_TELEPORTER)) {
+            return "Map layouts must have matching teleporters. Input type was: " + inputTypeChar + " and level type was: " + levelTypeChar;
         }
-        //The layouts must have matching counts of rocks.
-        if (inputRockCount != levelRockCount) {
-            return "Map layouts must have matching counts of players. Count for input was: " + inputRockCount + " count for level was: " + levelRockCount;
+        //If one map layout has a coordinate with a pressure plate, then the other one must also have a pressure plate at that coordinate.
+        if ((inputClass & LAYOUT_PRESSURE_PLATE) != (levelClass & LAYOUT_PRESSURE_PLATE)) {
+            return "Map layouts must have matching pressure plate. Input type was: " + inputTypeChar + " and level type was: " + levelTypeChar;
         }
-        //Otherwise the map-layouts must be compatible, in which case no exception message is returned.
         return null;
     }
 
+    //Returns true if the given character is one of the block types the world is built from.
+    private static boolean isBlockType(char type) {
+        switch (type) {
+            case 'p':
+            case 'r':
+            case 'w':
+            case 't':
+            case 'u':
+            case 'v':
+            case 'd':
+            case ' ':
+                return true;
+            default:
+                return false;
+        }
+    }
     private void buildWorld(String mapLayout, String directionLayout, boolean isSave) {
         //If the world is being built from a layout other than that of the level, then it must be checked that this
         //new layout is compatible with the level. 
-        mapLayout = mapLayout.replaceAll("\\n|\\r\\n", "").stripTrailing();
+        mapLayout = toTypeSequence(mapLayout);
         String validityMessage = this.checkLayoutsValidity(mapLayout, directionLayout, isSave);
         if (validityMessage != null) {
             throw new IllegalArgumentException(validityMessage);
@@ -201,48 +437,42 @@ public class PushRock extends AbstractObservablePushRock {
         this.teleporters.clear();
         this.portals.clear();
         this.activePressurePlatesCount = 0;
+        this.pressurePlateCount = 0;
+        this.activeMoveableBlocksCount = 0;
         this.isGameOver = false;
+        this.isGravityInverted = directionLayout.charAt(directionLayout.length() - 1) == 'G';
         this.moveCount = 0;
+        this.clearJournal();
         //The map's width is determined by the index of the first '@'
-        this.width = mapLayout.indexOf("@");
-        //And the map's height is in turn determined by the length of the sequence of types in the string divided by the map width,
-        //'@' is not considered an actual type, so it is excluded from the type sequence and thus not counted in the length.
-        String typeSequence =  mapLayout
-            .replaceAll("@", "");
-        this.height = typeSequence.length() / this.width;
-        String[] blockDirections = new String[directionLayout.length()-1];
+        this.width = mapLayout.indexOf('@');
+        //And the map's height is in turn determined by the length of the layout divided by the length of a row, which is the map
+        //width plus the '@' that ends the row.
+        this.height = mapLayout.length() / (this.width + 1);
+        this.setCellCount(this.width * this.height);
+        this.isGravityCandidate = new boolean[this.width * this.height];
+        this.gravityCandidates = new int[this.width * this.height];
+        this.gravityCandidateCount = 0;
+        this.gravityStepCells = new int[this.width * this.height];
+        this.cellMoveStepNumbers = new int[this.width * this.height];
+        this.gravityStepNumber = 0;
+        this.recordReset();
+        Direction[] blockDirections = new Direction[directionLayout.length()-1];
 
         for (int i = 0; i < directionLayout.length()-1; i++) {
-            String blockDirection = directionLayout.substring(i, i+1);
-            if (!"udlr".contains(blockDirection)) {
-                throw new IllegalArgumentException("Direction layout only supports a character representation of the following directions: up 'u', down 'd', left 'l', right 'r'.");
-            }
-            switch (blockDirection) {
-                case "u":
-                    blockDirection = "up";
-                    break;
-                case "d":
-                    blockDirection = "down";
-                    break;
-                case "l":
-                    blockDirection = "left";
-                    break;
-                case "r":
-                    blockDirection = "right";
-                    break;
-            }
-            blockDirections[i] = blockDirection;
+            blockDirections[i] = Direction.fromLayoutCharacter(directionLayout.charAt(i));
         }
         int directionsRemaining = blockDirections.length;
         this.transferBlocks = new TransferBlock[height][width];
         this.traversableBlocks = new TraversableBlock[height][width];
+        this.moveableBlockGrid = new MoveableBlock[height][width];
 
         int playerCount = 0;
         int portalOneCount = 0;
         int portalTwoCount = 0;
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
-                char tangibleType = typeSequence.charAt(y*width + x);
+                char tangibleType = mapLayout.charAt(y*(width + 1) + x);
+                boolean isBirdView = (getLayoutCharacterClass(tangibleType) & LAYOUT_GRAVITY_PLANE) == 0;
                 tangibleType = Character.toLowerCase(tangibleType);
                 if(tangibleType == '-') {
                     tangibleType = ' ';
@@ -260,7 +490,7 @@ public class PushRock extends AbstractObservablePushRock {
                     tangibleType = 'r';
                     isPressurePlatePlacement = true;
                 }
-                if (!"prwtuvd ".contains(tangibleType+"")) {
+                if (!isBlockType(tangibleType)) {
                     throw new IllegalArgumentException("Can only construct blocks with the following letters: 'prwtuvd '. Character was: " + tangibleType + "which has the acii value:" + (int) tangibleType);
                 }
    
@@ -284,30 +514,32 @@ public class PushRock extends AbstractObservablePushRock {
                 }
                 TraversableBlock traversableBlock = null;
                 if (tangibleType == 'd' || isPressurePlatePlacement) { //d or isPressurePlatePlacment set to true indicates that a pressure plate should be made
-                    traversableBlock = new TraversableBlock(x, -y, 'd');
+                    traversableBlock = new TraversableBlock(x, -y, 'd', isBirdView);
+                    this.pressurePlateCount++;
                 }
                 else { 
-                    traversableBlock = new TraversableBlock(x, -y, ' ');
+                    traversableBlock = new TraversableBlock(x, -y, ' ', isBirdView);
                 }
                 this.traversableBlocks[y][x] = traversableBlock;
 
-                String blockDirection = null;
-                if ("pruv".contains(tangibleType+"")) {
+                Direction blockDirection = null;
+                if (tangibleType == 'p' || tangibleType == 'r' || tangibleType == 'u' || tangibleType == 'v') {
                     if (directionsRemaining <= 0) {
                         throw new IllegalArgumentException("The direction layout can not contain less directions than the sum of players, rocks, and portals. Direction count was: " + blockDirections.length);
                     }
                     blockDirection = blockDirections[blockDirections.length - directionsRemaining];
                     directionsRemaining--;
                 }
-                if ("pr".contains(tangibleType+"")) {
+                if (tangibleType == 'p' || tangibleType == 'r') {
                     MoveableBlock moveableBlock = new MoveableBlock(x, -y, tangibleType, blockDirection);
                     //Moveable blocks standing on pressure plates will have their state set to true.
                     if (isPressurePlatePlacement) {
                         moveableBlock.setState(true);
+                        this.activeMoveableBlocksCount++;
                     }
                     addMoveableBlock(moveableBlock);
                 }
-                else if ("wtuv".contains(tangibleType+"")) {
+                else if (tangibleType == 'w' || tangibleType == 't' || tangibleType == 'u' || tangibleType == 'v') {
                     TransferBlock transferBlock;
                     TransferBlock connection = null;
                     //If the type is 't' then the block to be created should be a teleporter
@@ -335,13 +567,34 @@ public class PushRock extends AbstractObservablePushRock {
         if (directionsRemaining > 0) {
             throw new IllegalArgumentException("The direction layout can not contain more directions than the sum of players, rocks, and portals. Direction count was: " + blockDirections.length + " and remaining directions count was: " + directionsRemaining);
         }
+        this.buildTransferCellsInDirection();
         this.updateActivePressurePlatesCount();
-        System.out.println(this.coordinateString());
+        this.markEveryGravityCandidate();
+        this.stateHash = this.computeStateHash();
+        this.log(this.coordinateStringSupplier);
         this.notifyObservers();
     }
 
+    //Sets the sink that diagnostic output of this game is written to.
+    public void setDiagnosticsSink(IDiagnosticsSink diagnosticsSink) {
+        if (diagnosticsSink == null) {
+            throw new IllegalArgumentException("Diagnostics sink can not be null, use IDiagnosticsSink.silent() to discard diagnostic output.");
+        }
+        this.diagnosticsSink = diagnosticsSink;
+    }
+    //Sets the sink that games constructed from now on will write their diagnostic output to.
+    public static void setDefaultDiagnosticsSink(IDiagnosticsSink diagnosticsSink) {
+        if (diagnosticsSink == null) {
+            throw new IllegalArgumentException("Diagnostics sink can not be null, use IDiagnosticsSink.silent() to discard diagnostic output.");
+        }
+        defaultDiagnosticsSink = diagnosticsSink;
+    }
+    private void log(Supplier<String> messageSupplier) {
+        this.diagnosticsSink.log(messageSupplier);
+    }
+
     public void resetLevel() {
-        System.out.println("Reset level.");
+        this.log(() -> "Reset level.");
         this.buildWorld(this.levelMapLayout, this.levelDirectionLayout, false);
     }
 
@@ -373,6 +626,167 @@ public class PushRock extends AbstractObservablePushRock {
     }
     private void addMoveableBlock(MoveableBlock block) {
         this.moveableBlocks.add(block);
+        this.moveableBlockGrid[-block.getY()][block.getX()] = block;
+    }
+    //Moves the given moveable block to the given coordinates and keeps the occupancy grid in sync. The old cell is only cleared
+    //if it still refers to the given block, as chained blocks may be moved in a cycle where another block has already taken
+    //over the old cell.
+    private void relocateMoveableBlock(MoveableBlock block, int x, int y) {
+        this.journalMoveableBlock(block);
+        this.recordBlockChange(block);
+        this.stateHash ^= this.getMoveableBlockKey(block);
+        if (isCoordinateWithinBounds(block.getX(), block.getY())) {
+            if (this.moveableBlockGrid[-block.getY()][block.getX()] == block) {
+                this.moveableBlockGrid[-block.getY()][block.getX()] = null;
+            }
+            this.markCellChanged(this.packCell(block.getX(), block.getY()));
+            //The blocks above and below the old cell may have lost their support, depending on the direction of gravity.
+            this.markGravityCandidate(block.getX(), block.getY() + 1);
+            this.markGravityCandidate(block.getX(), block.getY() - 1);
+        }
+        block.setX(x);
+        block.setY(y);
+        this.moveableBlockGrid[-y][x] = block;
+        this.markCellChanged(this.packCell(x, y));
+        this.markGravityCandidate(x, y);
+        this.cellMoveStepNumbers[this.packCell(x, y)] = this.gravityStepNumber;
+        this.stateHash ^= this.getMoveableBlockKey(block);
+    }
+    //Direction and state changes of moveable blocks also go through these methods, as they are part of the state hash.
+    private void setMoveableBlockDirection(MoveableBlock block, Direction direction) {
+        this.journalMoveableBlock(block);
+        this.recordBlockChange(block);
+        long oldKey = this.getMoveableBlockKey(block);
+        block.setDirection(direction);
+        this.markCellChanged(this.packCell(block.getX(), block.getY()));
+        this.stateHash ^= oldKey ^ this.getMoveableBlockKey(block);
+    }
+    private void setMoveableBlockState(MoveableBlock block, boolean state) {
+        this.journalMoveableBlock(block);
+        this.recordBlockChange(block);
+        long oldKey = this.getMoveableBlockKey(block);
+        if (block.getState() != state) {
+            this.activeMoveableBlocksCount += state ? 1 : -1;
+        }
+        block.setState(state);
+        this.markCellChanged(this.packCell(block.getX(), block.getY()));
+        this.stateHash ^= oldKey ^ this.getMoveableBlockKey(block);
+    }
+
+    //Teleporters and portals are drawn according to whether they are connected, so a change to one connection can change how
+    //other teleporters or portals are drawn. Connections are rarely changed, and all of them are marked as changed when one is.
+    //Blocks above or below a transporter may fall into it once it is connected, so they are marked as gravity candidates as well.
+    private void markTeleportersChanged() {
+        for (int i = 0; i < this.teleporters.size(); i++) {
+            TeleporterBlock teleporter = this.teleporters.get(i);
+            this.markCellChanged(this.packCell(teleporter.getX(), teleporter.getY()));
+            this.markGravityCandidate(teleporter.getX(), teleporter.getY() + 1);
+            this.markGravityCandidate(teleporter.getX(), teleporter.getY() - 1);
+        }
+    }
+    private void markPortalsChanged() {
+        for (int i = 0; i < this.portals.size(); i++) {
+            PortalWallBlock portal = this.portals.get(i);
+            this.markCellChanged(this.packCell(portal.getX(), portal.getY()));
+            this.markGravityCandidate(portal.getX(), portal.getY() + 1);
+            this.markGravityCandidate(portal.getX(), portal.getY() - 1);
+        }
+    }
+    //Adds the cell at the given coordinates to the gravity worklist, unless it is out of bounds or already listed.
+    private void markGravityCandidate(int x, int y) {
+        if (!this.isCoordinateWithinBounds(x, y)) {
+            return;
+        }
+        int cell = this.packCell(x, y);
+        if (!this.isGravityCandidate[cell]) {
+            this.isGravityCandidate[cell] = true;
+            this.gravityCandidates[this.gravityCandidateCount++] = cell;
+        }
+    }
+    //Adds the cells of every moveable block to the gravity worklist, for when the whole game may have changed.
+    private void markEveryGravityCandidate() {
+        for (int i = 0; i < this.moveableBlocks.size(); i++) {
+            MoveableBlock block = this.moveableBlocks.get(i);
+            this.markGravityCandidate(block.getX(), block.getY());
+        }
+    }
+
+    //Keeps the coordinates the given block had before the operation in progress first changed it, see completeEventBatch().
+    private void recordBlockChange(MoveableBlock block) {
+        if (!this.hasEventObservers()) {
+            return;
+        }
+        for (int i = 0; i < this.changedBlocks.size(); i++) {
+            if (this.changedBlocks.get(i) == block) {
+                return;
+            }
+        }
+        this.changedBlocks.add(block);
+        this.changedBlockOrigins.add(new int[] {block.getX(), block.getY()});
+    }
+    //Keeps the connection the given teleporter had before the operation in progress first changed it, see completeEventBatch().
+    //The teleporter it is connected to is kept as well, as it loses that connection along with the given teleporter.
+    private void recordTeleporterChange(TransferBlock teleporter) {
+        if (!this.hasEventObservers() || teleporter == null) {
+            return;
+        }
+        this.recordTeleporterOrigin(teleporter);
+        if (teleporter.getConnection() != null) {
+            this.recordTeleporterOrigin(teleporter.getConnection());
+        }
+    }
+    private void recordTeleporterOrigin(TransferBlock teleporter) {
+        if (this.indexOfChangedTeleporter(teleporter) == -1) {
+            this.changedTeleporters.add(teleporter);
+            this.changedTeleporterOrigins.add(teleporter.getConnection());
+        }
+    }
+    private int indexOfChangedTeleporter(TransferBlock teleporter) {
+        for (int i = 0; i < this.changedTeleporters.size(); i++) {
+            if (this.changedTeleporters.get(i) == teleporter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    //Records the events that sum up the operation, now that it is complete: one event for every moveable block it changed, one for
+    //every teleporter connection it broke or made, and one for each of the move count and the game over state, if they changed.
+    @Override
+    protected void completeEventBatch() {
+        if (this.hasEventObservers()) {
+            for (int i = 0; i < this.changedBlocks.size(); i++) {
+                MoveableBlock block = this.changedBlocks.get(i);
+                int[] origin = this.changedBlockOrigins.get(i);
+                this.recordEvent(PushRockEvent.blockMoved(block.getType(), origin[0], origin[1], block.getX(), block.getY(), block.getDirectionValue(), block.getState()));
+            }
+            //Both teleporters of a connection that changed have been kept, and the event is recorded for the one that was kept first.
+            for (int i = 0; i < this.changedTeleporters.size(); i++) {
+                TransferBlock teleporter = this.changedTeleporters.get(i);
+                TransferBlock origin = this.changedTeleporterOrigins.get(i);
+                if (origin != null && origin != teleporter.getConnection() && this.indexOfChangedTeleporter(origin) > i) {
+                    this.recordEvent(PushRockEvent.teleportersUnpaired(teleporter.getX(), teleporter.getY(), origin.getX(), origin.getY()));
+                }
+            }
+            for (int i = 0; i < this.changedTeleporters.size(); i++) {
+                TransferBlock teleporter = this.changedTeleporters.get(i);
+                TransferBlock connection = teleporter.getConnection();
+                if (connection != null && connection != this.changedTeleporterOrigins.get(i) && this.indexOfChangedTeleporter(connection) > i) {
+                    this.recordEvent(PushRockEvent.teleporterRepaired(teleporter.getX(), teleporter.getY(), connection.getX(), connection.getY()));
+                }
+            }
+            if (this.moveCount != this.publishedMoveCount) {
+                this.recordEvent(PushRockEvent.moveCountChanged(this.moveCount));
+            }
+            if (this.isGameOver != this.publishedIsGameOver) {
+                this.recordEvent(PushRockEvent.gameOver(this.isGameOver));
+            }
+        }
+        this.changedBlocks.clear();
+        this.changedBlockOrigins.clear();
+        this.changedTeleporters.clear();
+        this.changedTeleporterOrigins.clear();
+        this.publishedMoveCount = this.moveCount;
+        this.publishedIsGameOver = this.isGameOver;
     }
 
     private boolean isCoordinateWithinBounds(int x, int y) {
@@ -384,7 +798,7 @@ public class PushRock extends AbstractObservablePushRock {
         }
         return true;
     }
-    private TraversableBlock getTraversableBlock(int x, int y) {
+    TraversableBlock getTraversableBlock(int x, int y) {
         if (!isCoordinateWithinBounds(x, y)) {
             return null;
         }
@@ -396,20 +810,19 @@ public class PushRock extends AbstractObservablePushRock {
         if (block == null) {
             return null;
         }
-        return new TraversableBlock(x, y, block.getType());
+        return new TraversableBlock(x, y, block.getType(), block.isBirdView());
     }
 
     private MoveableBlock getMoveableBlock(int x, int y) {
-        for (MoveableBlock block : this.moveableBlocks) {
-            if ((block.getY() == y) && (block.getX() == x)) {
-                return block;
-            }
+        if (!isCoordinateWithinBounds(x, y)) {
+            return null;
         }
-        return null;
+        return this.moveableBlockGrid[-y][x];
     }
     //Returns the given player block if it exists
     private MoveableBlock getPlayer() {
-        for (MoveableBlock block : this.moveableBlocks) {
+        for (int i = 0; i < this.moveableBlocks.size(); i++) {
+            MoveableBlock block = this.moveableBlocks.get(i);
             if (block.isPlayer()) {
                 return block;
             }
@@ -419,7 +832,7 @@ public class PushRock extends AbstractObservablePushRock {
     //Returns a copy of the given player block if it exists
     public MoveableBlock getPlayerCopy() {
         MoveableBlock player = this.getPlayer();
-        MoveableBlock playerCopy = new MoveableBlock(player.getX(), player.getY(), player.getType(), player.getDirection());
+        MoveableBlock playerCopy = new MoveableBlock(player.getX(), player.getY(), player.getType(), player.getDirectionValue());
         playerCopy.setState(player.getState());
         return playerCopy;
     }
@@ -430,74 +843,88 @@ public class PushRock extends AbstractObservablePushRock {
         }
         return transferBlocks[-y][x];
     }
-    //Searches for the first transfer block in the given direction from the given coordinates
-    private TransferBlock findTransferInDirection(String direction, int x, int y) {
-        int newX = x;
-        int newY = y;
-        switch (direction) {
-            case "up":
-                newY++;
-                break;
-            case "down":
-                newY--;
-                break;
-            case "right":
-                newX++;
-                break;
-            case "left": 
-                newX--;
-                break;
-        }
-        //If the search continues far enough to get out of bounds, then it means that there are no
-        //transfer blocks in the given direction.
-        if ((newX < 0 || newX >= this.width) || (newY > 0 || newY <= -this.height)) {
+    //Returns the first transfer block in the given direction from the given coordinates, or null if the search reaches the edge of
+    //the map first. Transfer blocks never move, so the search is looked up in a table built with the world.
+    private TransferBlock findTransferInDirection(Direction direction, int x, int y) {
+        int cell = this.transferCellsInDirection[packDirection(direction)][this.packCell(x, y)];
+        if (cell == -1) {
             return null;
         }
-        //If a transfer block is found, then return that transfer block
-        else if (getTransferBlock(newX, newY) != null) {
-            return getTransferBlock(newX, newY);
+        return this.transferBlocks[cell / this.width][cell % this.width];
+    }
+    //Builds the table used by findTransferInDirection(..). For every direction and cell it holds the cell of the first transfer
+    //block found when searching from that cell in that direction, or -1 if there is none. Cells are packed as by packCell(..).
+    private void buildTransferCellsInDirection() {
+        int cellCount = this.width * this.height;
+        this.transferCellsInDirection = new int[PACKED_DIRECTIONS.length][cellCount];
+        for (Direction direction : PACKED_DIRECTIONS) {
+            int[] transferCells = this.transferCellsInDirection[packDirection(direction)];
+            //Cells are visited starting from the edge the direction points towards, so the cell one step ahead of a cell has
+            //always been filled in before the cell itself.
+            int cellStep = direction.getDX() - direction.getDY() * this.width;
+            for (int i = 0; i < cellCount; i++) {
+                int cell = cellStep < 0 ? i : cellCount - 1 - i;
+                int nextX = cell % this.width + direction.getDX();
+                int nextY = -(cell / this.width) + direction.getDY();
+                if (!this.isCoordinateWithinBounds(nextX, nextY)) {
+                    transferCells[cell] = -1;
+                }
+                else if (this.getTransferBlock(nextX, nextY) != null) {
+                    transferCells[cell] = this.packCell(nextX, nextY);
+                }
+                else {
+                    transferCells[cell] = transferCells[this.packCell(nextX, nextY)];
+                }
+            }
         }
-        //Otherwise the search is repeated
-        else {
-            return findTransferInDirection(direction, newX, newY);
+    }
+    //Returns the cell (packed as in the compact state, -y * width + x) of the wall a portal aimed from the given coordinates in the
+    //given direction would be placed at, or -1 if the aim leaves the map or hits a teleporter. Lets solvers enumerate the portal
+    //placements available from any player position without placing them.
+    public int getPortalWallCell(int x, int y, Direction direction) {
+        if (!this.isCoordinateWithinBounds(x, y)) {
+            throw new IllegalArgumentException("Coordinates are out of bounds for the map: (" + x + ", " + y + ").");
+        }
+        if (direction == null) {
+            throw new IllegalArgumentException("A portal must be aimed in a direction.");
+        }
+        int cell = this.transferCellsInDirection[packDirection(direction)][this.packCell(x, y)];
+        if (cell == -1 || this.transferBlocks[cell / this.width][cell % this.width] instanceof TeleporterBlock) {
+            return -1;
+        }
+        return cell;
+    }
+    //Returns true if the player can place a portal in the direction it is facing.
+    public boolean canPlacePortal() {
+        MoveableBlock player = this.getPlayer();
+        if (this.isGameOver || player == null) {
+            return false;
         }
+        return this.getPortalWallCell(player.getX(), player.getY(), player.getDirectionValue()) != -1;
     }
 
     private DirectedBlock getDirectedBlock(int x, int y) {
-        if (this.getMoveableBlock(x, y) != null) {
-            return getMoveableBlock(x, y);
-        }
-        if (this.getTransferBlock(x, y) != null) {
-            return getTransferBlock(x, y);
+        MoveableBlock moveableBlock = this.getMoveableBlock(x, y);
+        if (moveableBlock != null) {
+            return moveableBlock;
         }
-        return null;
+        return this.getTransferBlock(x, y);
     }
 
-    //Returns any and all blocks that are placed at the given coordinates in a list
-    private List<BlockAbstract> getAllBlocks(int x, int y) {
-        List<BlockAbstract> allBlocks = new ArrayList<BlockAbstract>();
-        //There can only be a single directed block at any given coordinate
-        if (this.getDirectedBlock(x, y) != null) {          
-            allBlocks.add(this.getDirectedBlock(x, y));
-        }
-        //There can only be a single traversable block at any given coordinate
-        if (this.getTraversableBlock(x, y) != null) {       
-            allBlocks.add(getTraversableBlock(x, y));
-        }
-        //Together they will make out all blocks placed at the given coordinate
-        return allBlocks;                                   
+    //Returns the read-only view of this game's board, see BoardView. Unlike the block copies, reading it allocates nothing.
+    public BoardView getBoardView() {
+        return this.boardView;
     }
+
     //Returns only the top-most block at the given coordinate. There can be at most one directed block and one traversable block at any
     //given coordinate, of these two a directed block will be considered to be placed over the traversable block. 
-    private BlockAbstract getTopBlock(int x, int y) {
-        //We create a new list that will contain every block at the given coordinate
-        List<BlockAbstract> allBlocks = this.getAllBlocks(x, y);
-        //If this list size is less than one, then there must be no blocks at the given coordinate, thus we return null
-        if (allBlocks.size() < 1) {
-            return null;
+    BlockAbstract getTopBlock(int x, int y) {
+        DirectedBlock directedBlock = this.getDirectedBlock(x, y);
+        if (directedBlock != null) {
+            return directedBlock;
         }
-        //Otherwise there must be one or more blocks in the list, of these the first one will be the top-most block, thus we return that block.
-        return this.getAllBlocks(x, y).get(0);
+        //If there is no directed block, then the traversable block is the top-most block. Out of bounds there are no blocks at all, in which case null is returned.
+        return this.getTraversableBlock(x, y);
     }
     //Similar to the method given above, except a copy of the block is returned instead.
     public BlockAbstract getTopBlockCopy(int x, int y) {
@@ -507,7 +934,7 @@ public class PushRock extends AbstractObservablePushRock {
         }
         BlockAbstract blockCopy;
         if (block instanceof MoveableBlock) {
-            blockCopy = new MoveableBlock(x, y, block.getType(), ((MoveableBlock) block).getDirection());
+            blockCopy = new MoveableBlock(x, y, block.getType(), ((MoveableBlock) block).getDirectionValue());
             blockCopy.setState(block.getState());
         }
         else if (block instanceof TransferBlock) {
@@ -519,7 +946,7 @@ public class PushRock extends AbstractObservablePushRock {
                 }
                 else {
                     blockConnectionCopy = new PortalWallBlock(blockConnection.getX(), blockConnection.getY());
-                    ((PortalWallBlock) blockConnectionCopy).setPortal(((PortalWallBlock) blockConnection).isPortalOne(), blockConnection.getDirection(), null);
+                    ((PortalWallBlock) blockConnectionCopy).setPortal(((PortalWallBlock) blockConnection).isPortalOne(), blockConnection.getDirectionValue(), null);
                 }
             }
             if (block instanceof TeleporterBlock) {
@@ -529,49 +956,28 @@ public class PushRock extends AbstractObservablePushRock {
             else {
                 blockCopy = new PortalWallBlock(x, y);
                 if (((PortalWallBlock) block).isPortal()) {
-                    ((PortalWallBlock) blockCopy).setPortal(((PortalWallBlock) block).isPortalOne(), ((DirectedBlock) block).getDirection(), (PortalWallBlock) blockConnectionCopy);
+                    ((PortalWallBlock) blockCopy).setPortal(((PortalWallBlock) block).isPortalOne(), ((DirectedBlock) block).getDirectionValue(), (PortalWallBlock) blockConnectionCopy);
                 }
             }
         }
         else {
-            blockCopy = new TraversableBlock(x, y, block.getType());
+            blockCopy = new TraversableBlock(x, y, block.getType(), ((TraversableBlock) block).isBirdView());
         }
         return blockCopy;
     }
 
-    //Returns a list of all blocks that are of the same type as the given block and are positioned such that they together
-    //make out an uninterrupted chain in the given direction. The given block is placed first in the list, and the remainder
-    //are placed in sequence from that position
-    private List<BlockAbstract> getBlockChain(BlockAbstract startBlock, int directionX, int directionY) {
-
-        int x = startBlock.getX();
-        int y = startBlock.getY();
-        //The chain will be represented by a list containing all blocks that are a part of the chain
-        List<BlockAbstract> chain = new ArrayList<BlockAbstract>();
-        //The start block makes out the first entry
-        chain.add(startBlock);
+    //Returns the number of moveable blocks that make out an uninterrupted chain from (x, y) in the given direction, where
+    //the block at (x, y) is the first in the chain.
+    private int getBlockChainLength(int x, int y, int directionX, int directionY) {
+        int length = 1;
         if (directionX == 0 && directionY == 0) {
-            return chain;
-        }
-        //The search for blocks will continue until the next found block does not meet the criteria, which would end the chain.
-        boolean isSearchDone = false;
-        while (!isSearchDone) {
-            //Determine the coordinates for block that is next in the search
-            x += directionX;
-            y += directionY;
-            //Obtain the block representing those coord
-            BlockAbstract nextBlock = this.getTopBlock(x, y);
-            //If  be of the same type as the start block, then it will be part of the block chain
-            if (nextBlock != null && nextBlock.getClass() == startBlock.getClass()) {
-                //a block chain should be cut off once it reaches a transporter
-                chain.add(nextBlock);
-            }
-            //Otherwise it must not be of the same type, which means the chain has ended, and thus the search for more blocks ends
-            else {
-                isSearchDone = true;
-            }
+            return length;
+        }
+        //The search for blocks will continue until the next found block is not a moveable block, which ends the chain.
+        while (this.getMoveableBlock(x + length * directionX, y + length * directionY) != null) {
+            length++;
         }
-        return chain;
+        return length;
     }
 
     //Updates the teleporter connections according to the current activePressurePlatesCount, and thus activates/deactivates them depending on wether they are connected or not
@@ -583,19 +989,26 @@ public class PushRock extends AbstractObservablePushRock {
         //Where there are n teleporters, and s is the activePressurePlatesCount, the two teleporters that will connect are:
         //Teleporter one: index = s / n
         //Teleporter two: index = s % n
-        this.teleporters.get(this.activePressurePlatesCount / this.teleporters.size()).setConnection(this.teleporters.get(this.activePressurePlatesCount % this.teleporters.size()));
+        TeleporterBlock teleporterOne = this.teleporters.get(this.activePressurePlatesCount / this.teleporters.size());
+        TeleporterBlock teleporterTwo = this.teleporters.get(this.activePressurePlatesCount % this.teleporters.size());
+        //Only the connections of these two teleporters can change, so only their connections are hashed out before and in after.
+        if (this.journalEntry != null) {
+            this.journalEntry.recordTeleporter(teleporterOne);
+            this.journalEntry.recordTeleporter(teleporterTwo);
+        }
+        this.hashTeleporterConnections(teleporterOne, teleporterTwo);
+        this.markTeleportersChanged();
+        this.recordTeleporterChange(teleporterOne);
+        this.recordTeleporterChange(teleporterTwo);
+        teleporterOne.setConnection(teleporterTwo);
+        this.hashTeleporterConnections(teleporterOne, teleporterTwo);
     }
     //Updates the activePressurePlatesCount according to the current state of the game. The activePressurePlatesCount increments by one for each movable block that is placed ontop
-    //of a pressure plate.
+    //of a pressure plate. These blocks are counted as they change state (see setMoveableBlockState(..)), but the activePressurePlatesCount
+    //only follows that count once an action is complete, so that teleporters are only re-paired between actions.
     private void updateActivePressurePlatesCount() {
         int activePressurePlatesCountOld = this.activePressurePlatesCount;
-        int activePressurePlatesCountNew = 0;
-        for (MoveableBlock block : moveableBlocks) {
-            //An active-state moveable block indicates that they are placed ontop of a pressure plate.
-            if (block.getState()) { 
-                activePressurePlatesCountNew++;
-            }
-        }
+        int activePressurePlatesCountNew = this.activeMoveableBlocksCount;
         //Teleporters change their connection based on how many pressure plates have weight on them, thus these will need to be updated if the activePressurePlatesCount changed.
         if (activePressurePlatesCountNew != activePressurePlatesCountOld) {
             this.activePressurePlatesCount = activePressurePlatesCountNew;
@@ -607,15 +1020,7 @@ public class PushRock extends AbstractObservablePushRock {
         return this.activePressurePlatesCount;
     }
     private int getPressurePlateCount() {
-        int plateCount = 0;
-        for (int y = 0; y > -this.height; y--) {
-            for (int x = 0; x < this.width; x++) {
-                if (traversableBlocks[-y][x].isPressurePlate()) {
-                    plateCount++;
-                }
-            }
-        }
-        return plateCount;
+        return this.pressurePlateCount;
     }
 
     //Returns true if the game is over. The game is over once there is weight placed
@@ -627,9 +1032,12 @@ public class PushRock extends AbstractObservablePushRock {
         }
     }
     private void endGame() {
+        if (!this.isGameOver) {
+            this.stateHash ^= zobristKey(ZOBRIST_FLAGS, FLAG_GAME_OVER);
+        }
         this.isGameOver = true;
-        System.out.println("Congratulations, you managed to complete this absolutely meaningless test.");
-        System.out.println("Reset the game if you want to do it again.");
+        this.log(() -> "Congratulations, you managed to complete this absolutely meaningless test.");
+        this.log(() -> "Reset the game if you want to do it again.");
     }
     public boolean isGameOver() {
         return this.isGameOver;
@@ -651,24 +1059,10 @@ public class PushRock extends AbstractObservablePushRock {
         }
         int x = player.getX();
         int y = player.getY();
-        String direction = player.getDirection();
+        Direction direction = player.getDirectionValue();
 
         //The direction the portal is facing will be oppsite to the direction the player was looking when they created it.
-        String portalDirection = null;
-        switch (direction) {
-            case "up":
-                portalDirection = "down";
-                break;
-            case "down":
-                portalDirection = "up";
-                break;
-            case "right":
-                portalDirection = "left";
-                break;
-            case "left": 
-                portalDirection = "right";
-                break;
-        }
+        Direction portalDirection = direction.getOpposite();
         //We now search for a suitable wall to place the portal on, searching in the direction the player was looking
         TransferBlock wall = this.findTransferInDirection(direction, x, y);
         if (wall == null) {
@@ -683,10 +1077,13 @@ public class PushRock extends AbstractObservablePushRock {
             //if the found wall already holds a portal, and that portal is the same portal as the one to be placed,
             //and it faces the same direction as the new one would, then everything is already as it should, no portals need to 
             //be changed
-            if (((PortalWallBlock) wall).isPortal() && ((PortalWallBlock) wall).isPortalOne() == inputIsPortalOne && wall.getDirection() == portalDirection) {
-                System.out.println(this.coordinateString());
+            if (((PortalWallBlock) wall).isPortal() && ((PortalWallBlock) wall).isPortalOne() == inputIsPortalOne && wall.getDirectionValue() == portalDirection) {
+                this.log(this.coordinateStringSupplier);
                 return; //The portal is placed correctly
             }
+            this.openJournalEntry();
+            this.journalEntry.recordPortals(this.getPortal(true), this.getPortal(false));
+            this.markPortalsChanged();
             //If the wall is still a portal, then it could be the portal other than the one being created, and should in that case be overwritten
             if (((PortalWallBlock) wall).isPortal() && ((PortalWallBlock) wall).isPortalOne() != inputIsPortalOne) {
                 this.removePortal(((PortalWallBlock) wall));
@@ -696,8 +1093,11 @@ public class PushRock extends AbstractObservablePushRock {
             this.removePortal(this.getPortal(inputIsPortalOne));
             ((PortalWallBlock) wall).setPortal(inputIsPortalOne, portalDirection, this.getPortal(!inputIsPortalOne));
             this.addPortal((PortalWallBlock) wall);
+            this.stateHash ^= this.getPortalKey((PortalWallBlock) wall);
+            this.markPortalsChanged();
+            this.closeJournalEntry();
             
-            System.out.println(this.coordinateString());
+            this.log(this.coordinateStringSupplier);
             this.notifyObservers(); //Successfull portal placement
             return; //Placement complete.
         }
@@ -707,12 +1107,19 @@ public class PushRock extends AbstractObservablePushRock {
             return false;
         }
         this.portals.add(portal);
+        if (this.hasEventObservers()) {
+            this.recordEvent(PushRockEvent.portalPlaced(portal.isPortalOne(), portal.getX(), portal.getY(), portal.getDirectionValue()));
+        }
         return true;
     }
     private boolean removePortal(PortalWallBlock oldPortal) {
         if (oldPortal == null) {
             return false;
         }
+        this.stateHash ^= this.getPortalKey(oldPortal);
+        if (this.hasEventObservers()) {
+            this.recordEvent(PushRockEvent.portalCleared(oldPortal.isPortalOne(), oldPortal.getX(), oldPortal.getY()));
+        }
         oldPortal.clearPortal();
         portals.remove(oldPortal);
         return true;
@@ -721,7 +1128,8 @@ public class PushRock extends AbstractObservablePushRock {
         if (portals.size() < 1) {
             return null;
         }
-        for (PortalWallBlock portal : this.portals) {
+        for (int i = 0; i < this.portals.size(); i++) {
+            PortalWallBlock portal = this.portals.get(i);
             if (portal.isPortalOne() == inputIsPortalOne) {
                 return portal;
             }
@@ -729,74 +1137,33 @@ public class PushRock extends AbstractObservablePushRock {
         return null;
     }
 
-    private int[] directionStringToXY(String direction) {
-        int directionX = 0;
-        int directionY = 0;
-        switch (direction) {
-            case "up":
-                directionY++;
-                break;
-            case "down":
-                directionY--;
-                break;
-            case "right":
-                directionX++;
-                break;
-            case "left":
-                directionX--;
-                break;
-        }
-        int[] directionXY = new int[2];
-        directionXY[0] = directionX;
-        directionXY[1] = directionY;
-        return directionXY;
-    }
-    private boolean pushMoveable(MoveableBlock pushingBlock, MoveableBlock block, String direction, int strength, MoveableBlock movementSource) { 
+    private boolean pushMoveable(MoveableBlock pushingBlock, MoveableBlock block, Direction direction, int strength, MoveableBlock movementSource) { 
         int oldX = block.getX();
         int oldY = block.getY();
-        int[] directionXY = directionStringToXY(direction);
-        List<BlockAbstract> blockChain = this.getBlockChain(pushingBlock, directionXY[0], directionXY[1]);
-        if (blockChain.size() <= strength+1 && blockChain.size() >= 1) {
-            BlockAbstract lastBlock = blockChain.get(blockChain.size()-1);
-            BlockAbstract blockFollowingLastBlock = this.getTopBlock(lastBlock.getX() + directionXY[0], lastBlock.getY() + directionXY[1]);
+        int dx = direction.getDX();
+        int dy = direction.getDY();
+        int chainLength = this.getBlockChainLength(pushingBlock.getX(), pushingBlock.getY(), dx, dy);
+        if (chainLength <= strength+1) {
+            int lastX = pushingBlock.getX() + (chainLength - 1) * dx;
+            int lastY = pushingBlock.getY() + (chainLength - 1) * dy;
+            BlockAbstract blockFollowingLastBlock = this.getTopBlock(lastX + dx, lastY + dy);
             if (blockFollowingLastBlock == null) {
                 throw new IllegalStateException("Can not push blocks out of bounds.");
             }
-            if (blockFollowingLastBlock instanceof TransferBlock && ((TransferBlock) blockFollowingLastBlock).canBlockEnter(lastBlock)) {
-                int[] exitPointXY = ((TransferBlock) blockFollowingLastBlock).getExitPointXY(lastBlock);
-                BlockAbstract exitPointBlock = this.getTopBlock(exitPointXY[0], exitPointXY[1]);
+            if (blockFollowingLastBlock instanceof TransferBlock && ((TransferBlock) blockFollowingLastBlock).canBlockEnter(lastX, lastY)) {
+                int exitX = ((TransferBlock) blockFollowingLastBlock).getExitX(lastX, lastY);
+                int exitY = ((TransferBlock) blockFollowingLastBlock).getExitY(lastX, lastY);
+                BlockAbstract exitPointBlock = this.getTopBlock(exitX, exitY);
                 if (exitPointBlock == null) {
                     throw new IllegalStateException("Can not push blocks out of bounds.");
                 }
-                List<BlockAbstract> blockChainExit = this.getBlockChain(exitPointBlock, directionXY[0], directionXY[1]);
-                if (blockChainExit.containsAll(blockChain)) {
-                    List<Integer> coordinatesX = blockChainExit.stream()
-                        .mapToInt(a -> a.getX())
-                        .boxed()
-                        .collect(Collectors.toList());
-                    List<Integer> coordinatesY = blockChainExit.stream()
-                        .mapToInt(a -> a.getY())
-                        .boxed()
-                        .collect(Collectors.toList());
-                    for (BlockAbstract chainedBlock : blockChainExit) {
-                        if (chainedBlock != pushingBlock) {
-                            int nextIndex = (blockChainExit.indexOf(chainedBlock) + 1) % blockChainExit.size();
-                            int x = coordinatesX.get(nextIndex);
-                            int y = coordinatesY.get(nextIndex);
-                            chainedBlock.setX(x);
-                            chainedBlock.setY(y);
-                            TraversableBlock traversableBlock = getTraversableBlock(x, y);
-                            if (chainedBlock instanceof MoveableBlock && traversableBlock.isPressurePlate()) {
-                                ((MoveableBlock) chainedBlock).setState(true);
-                                updateTeleporters();
-                            }
-                        }
-                    }
-                    if (this.getTopBlock(oldX, oldY) instanceof TraversableBlock) {
-                        return true;
-                    }
-                    else {
-                        return false;
+                //If the chain leaving the exit point contains the whole pushed chain, then the chain loops through the transporter
+                //back into itself, and every block in it is moved one step along the loop.
+                if (exitPointBlock instanceof MoveableBlock) {
+                    int exitChainLength = this.getBlockChainLength(exitX, exitY, dx, dy);
+                    if (this.isChainWithinChain(pushingBlock.getX(), pushingBlock.getY(), chainLength, exitX, exitY, exitChainLength, dx, dy)) {
+                        this.rotateBlockChain(pushingBlock, exitX, exitY, exitChainLength, dx, dy);
+                        return this.getTopBlock(oldX, oldY) instanceof TraversableBlock;
                     }
                 }
             }
@@ -815,21 +1182,63 @@ public class PushRock extends AbstractObservablePushRock {
             return false;
         }
     }
+    //Checks if the chain of the given length starting at (x, y) lies within the chain starting at (outerX, outerY), where both
+    //chains run in the direction (dx, dy).
+    private boolean isChainWithinChain(int x, int y, int length, int outerX, int outerY, int outerLength, int dx, int dy) {
+        int offset;
+        if (dx != 0) {
+            if (y != outerY) {
+                return false;
+            }
+            offset = (x - outerX) * dx;
+        }
+        else {
+            if (x != outerX) {
+                return false;
+            }
+            offset = (y - outerY) * dy;
+        }
+        return offset >= 0 && offset + length <= outerLength;
+    }
+    //Moves every block of the chain starting at (x, y) to the position of the block after it, and the last block to the position
+    //of the first. The pushing block is left where it is, as it is moved by the caller.
+    private void rotateBlockChain(MoveableBlock pushingBlock, int x, int y, int length, int dx, int dy) {
+        if (this.blockChainBuffer.length < length) {
+            this.blockChainBuffer = new MoveableBlock[length];
+        }
+        //The blocks are collected before any of them is moved, as moving them changes what the grid holds at each position.
+        for (int i = 0; i < length; i++) {
+            this.blockChainBuffer[i] = this.getMoveableBlock(x + i * dx, y + i * dy);
+        }
+        for (int i = 0; i < length; i++) {
+            MoveableBlock chainedBlock = this.blockChainBuffer[i];
+            this.blockChainBuffer[i] = null;
+            if (chainedBlock != pushingBlock) {
+                int nextIndex = (i + 1) % length;
+                int nextX = x + nextIndex * dx;
+                int nextY = y + nextIndex * dy;
+                this.relocateMoveableBlock(chainedBlock, nextX, nextY);
+                if (getTraversableBlock(nextX, nextY).isPressurePlate()) {
+                    this.setMoveableBlockState(chainedBlock, true);
+                    updateTeleporters();
+                }
+            }
+        }
+    }
 
-    private boolean moveBlock(MoveableBlock block, String direction, int strength, MoveableBlock movementSource) {
-        boolean hasTakenPortal = false;
-        MoveableBlock blockOld = new MoveableBlock(block.getX(), block.getY(), block.getType(), block.getDirection());
-        MoveableBlock blockNew = new MoveableBlock(block.getX(), block.getY(), block.getType(), block.getDirection());
+    private boolean moveBlock(MoveableBlock block, Direction direction, int strength, MoveableBlock movementSource) {
+        //The move is first worked out on the coordinates and direction the block would get, and only applied to the block once
+        //it is known to follow the rules.
+        int oldX = block.getX();
+        int oldY = block.getY();
+        int newX = oldX + direction.getDX();
+        int newY = oldY + direction.getDY();
+        Direction newDirection = direction;
 
-        //Attempts to move the copy-block in the given direction, if the movement was not successfull, then it would not be successfull for the original block either.
-        if (!blockNew.moveInDirection(direction)) {
-            return false;
-        }
-        //Otherwise the movement must have been successfull. We thus check if the new coordinates for the copy block placed it at a location
-        //already occupied by another transfer block
-        TransferBlock transferBlock = getTransferBlock(blockNew.getX(), blockNew.getY());
+        //Check if the new coordinates places the block at a location already occupied by a transfer block
+        TransferBlock transferBlock = getTransferBlock(newX, newY);
         if (transferBlock != null) {
-            //Since a transfer block was found at the copy-block's new location, it could potentially be a transporter type:
+            //Since a transfer block was found at the new location, it could potentially be a transporter type:
             //Block should be teleported if the given movement would place it at a connected teleporter
             if (transferBlock.isTransporter()) {
                 //To enter a transporter the block must be standing at one of the transporter's entry points and 
@@ -837,43 +1246,32 @@ public class PushRock extends AbstractObservablePushRock {
 
                 //If the block to be moved can not enter the transporter, then the transporter will instead be treated
                 //as if it was a wall, thus hindering the movement of the block.
-                if (!transferBlock.canBlockEnter(blockOld)) {
+                if (!transferBlock.canBlockEnter(oldX, oldY)) {
                     return false;
                 }
                 //Otherwise the transporter must be connected, thus the moving block should be transported out of the connected transporter in
                 //direction of the movement if possible
                 else {
-                    int[] transportExit = transferBlock.getExitPointXY(blockOld);
-                    blockNew.setX(transportExit[0]);
-                    blockNew.setY(transportExit[1]);
-                    hasTakenPortal = true;
+                    newX = transferBlock.getExitX(oldX, oldY);
+                    newY = transferBlock.getExitY(oldX, oldY);
                     if (transferBlock instanceof PortalWallBlock && ((PortalWallBlock) transferBlock).isPortal()) {
                         //When the transporter is a portal, the direction of the block should be set to that of the exit portal
-                        blockNew.setDirection(transferBlock.getConnection().getDirection());
-                    }
-                    else {  
-                        //When the transporter is a teleporter, the direction of the block should match that of the movement into the transporter
-                        blockNew.setDirection(direction);
+                        newDirection = transferBlock.getConnection().getDirectionValue();
                     }
+                    //When the transporter is a teleporter, the direction of the block should match that of the movement into the transporter
                 }
             }
-            transferBlock = getTransferBlock(blockNew.getX(), blockNew.getY());
-            //If there exists a transfer block at the current coordinates of the moveable block copy, and that transfer
-            //block is a wall, then it would not be possible for the actual moveable block to be moved there.
+            transferBlock = getTransferBlock(newX, newY);
+            //If there exists a transfer block at the new coordinates, and that transfer block is a wall, then it would not be
+            //possible for the moveable block to be moved there.
             if (transferBlock instanceof PortalWallBlock && ((PortalWallBlock) transferBlock).isWall()) {
                 return false;
             } 
         }
 
         // Block should not be moved if the given movement would place it out of bounds
-        if (blockNew.getX() < 0 || blockNew.getX() >= width) {
-            if (blockNew.isPlayer()) {
-                throw new IllegalStateException("Can not move further " + direction + " as it would be out of bounds for the map.");
-            }
-            return false;
-        }
-        if (blockNew.getY() > 0 || blockNew.getY() <= -height) {
-            if (blockNew.isPlayer()) {
+        if (!isCoordinateWithinBounds(newX, newY)) {
+            if (block.isPlayer()) {
                 throw new IllegalStateException("Can not move further " + direction + " as it would be out of bounds for the map.");
             }
             return false;
@@ -881,21 +1279,18 @@ public class PushRock extends AbstractObservablePushRock {
 
         // If the movement places this block at coordinates that are not already occupied by another block, then
         // move this block to the new coordinates
-        if (getDirectedBlock(blockNew.getX(), blockNew.getY()) == null) {
-            //Since the copy block was able to navigate to its coordinates without breaking any rules, then 
-            //the coordinates should be legal for the original too
-            block.setX(blockNew.getX());
-            block.setY(blockNew.getY());
-            block.setDirection(blockNew.getDirection());
+        if (getDirectedBlock(newX, newY) == null) {
+            this.relocateMoveableBlock(block, newX, newY);
+            this.setMoveableBlockDirection(block, newDirection);
             //Update the state to of the moveable block to reflect wether or not it is placed ontop of a pressure plate
             //TODO: The pressure plate should be activated, not the block ontop of it, find an alternate way to represent blocks ontop of pressure plates.
-            block.setState(getTraversableBlock(block.getX(), block.getY()).isPressurePlate());
+            this.setMoveableBlockState(block, getTraversableBlock(block.getX(), block.getY()).isPressurePlate());
             return true;
         }
         
         // If the movement places this block at coordinates that are already occupied by another moveable block and that block has collision,
         // then try to first push that block, and if successful move this block afterwards.
-        MoveableBlock blockAtNewCoordinates = getMoveableBlock(blockNew.getX(), blockNew.getY());
+        MoveableBlock blockAtNewCoordinates = getMoveableBlock(newX, newY);
         if (blockAtNewCoordinates != null && strength > 0) {
             //If the block at the new coordinates was the given block to be moved, then that block
             //is already at the correct position. This could happen in the case that the block entered
@@ -903,19 +1298,18 @@ public class PushRock extends AbstractObservablePushRock {
             //point. In this sense the block did move successfully through the portal, even if it looped
             //around and ended up in the same position as before, thus we return true as to indicate
             //a successfull move.
+            //A pushed block that loops back into its own cell still takes up the cell its pusher is moving into, so the push is
+            //refused instead, as the two blocks would otherwise share a cell.
             if (blockAtNewCoordinates == block) {
-                return true;
+                return block == movementSource;
             }
-            else if (pushMoveable(block, blockAtNewCoordinates, blockNew.getDirection(), strength, movementSource)) {
-                //Since the copy-block was able to navigate to its coordinates without breaking any rules, then 
-                //the coordinates should be legal for the original as well
-                block.setX(blockNew.getX());
-                block.setY(blockNew.getY());
+            else if (pushMoveable(block, blockAtNewCoordinates, newDirection, strength, movementSource)) {
+                this.relocateMoveableBlock(block, newX, newY);
                 if (block.isPlayer()) {
-                    block.setDirection(blockNew.getDirection());
+                    this.setMoveableBlockDirection(block, newDirection);
                 }
                 //Then set the state of the moved block to true if they are now standing at a pressure plate
-                block.setState(getTraversableBlock(block.getX(), block.getY()).isPressurePlate());
+                this.setMoveableBlockState(block, getTraversableBlock(block.getX(), block.getY()).isPressurePlate());
                 return true;
             }
             // do not move this block if the block ahead could not be moved
@@ -931,77 +1325,861 @@ public class PushRock extends AbstractObservablePushRock {
     public int getMoveCount() {
         return this.moveCount;
     }
+    //Sets the move count of a game restored through setCompactState(..), as restoring a state leaves the move count unchanged.
+    public void setMoveCount(int moveCount) {
+        if (moveCount < 0) {
+            throw new IllegalArgumentException("Move count can not be negative, but was: " + moveCount);
+        }
+        this.moveCount = moveCount;
+        this.notifyObservers();
+    }
     //Issues to move the given player block and return boolean reflecting wether or not the player was moved. 
     public boolean movePlayer(String direction) {
+        return this.movePlayer(Direction.fromString(direction));
+    }
+    public boolean movePlayer(Direction direction) {
         //Can no longer move once the game is over.
         if (this.isGameOver) {
             throw new IllegalStateException("Player can not move while the game is over.");
         }
         MoveableBlock player = this.getPlayer();
-        String oldPlayerDirection = player.getDirection();
-        player.setDirection(direction);
+        Direction oldPlayerDirection = player.getDirectionValue();
         boolean wasMoved = false;
+        boolean hasFallen = false;
+        this.openJournalEntry();
+        try {
+            this.setMoveableBlockDirection(player, direction);
 
-        if (player != null && moveBlock(player, direction, 1, player)) {
-                wasMoved = true;
+            if (this.canPlayerMove(player, direction)) {
+                wasMoved = this.isInGravityPlane(player.getX(), player.getY()) ? this.moveGroundedPlayer(player, direction) : moveBlock(player, direction, 1, player);
             }
-        
-        if (wasMoved == true) {
-            this.incrementMoveCount();
+            
+            if (wasMoved == true) {
+                this.incrementMoveCount();
+            }
+            //While gravity is applied on move input, a gravity step follows every move, even one where the player could not move.
+            if (this.gravityApplication == GravityApplication.MOVE_INPUT) {
+                hasFallen = this.applyGravity();
+            }
+            this.updateActivePressurePlatesCount();
+            this.checkGameOver();
         }
-        this.updateActivePressurePlatesCount();
-        this.checkGameOver();
-        System.out.println(this.coordinateString());
-        if (wasMoved || !oldPlayerDirection.equals(player.getDirection())) {
+        finally {
+            this.closeJournalEntry();
+        }
+        this.log(this.coordinateStringSupplier);
+        if (wasMoved || hasFallen || oldPlayerDirection != player.getDirectionValue()) {
             this.notifyObservers();
         }
         return wasMoved;
     }
 
-    public String toString() {
-        String pushRockString = new String();
-        for (int y = 0; y > height*(-1); y--) {
-            for (int x = 0; x < width; x++) {
-                String type = "?";
-                if (getMoveableBlock(x, y) != null) {
-                    type = this.getMoveableBlock(x, y).toString();
+    //Gravity
+    public boolean isGravityInverted() {
+        return this.isGravityInverted;
+    }
+    //Inverts the direction of gravity, which makes every block in the gravity plane start falling the opposite way.
+    public void gravityInverter() {
+        if (this.isGameOver) {
+            throw new IllegalStateException("Gravity can not be inverted while the game is over.");
+        }
+        this.openJournalEntry();
+        try {
+            this.setGravityInverted(!this.isGravityInverted);
+        }
+        finally {
+            this.closeJournalEntry();
+        }
+        this.log(this.coordinateStringSupplier);
+        this.notifyObservers();
+    }
+    private void setGravityInverted(boolean isGravityInverted) {
+        if (this.isGravityInverted != isGravityInverted) {
+            this.stateHash ^= zobristKey(ZOBRIST_FLAGS, FLAG_GRAVITY_INVERTED);
+            //Blocks that were supported from below may be unsupported from above, so every block has to be looked at again.
+            this.markEveryGravityCandidate();
+        }
+        this.isGravityInverted = isGravityInverted;
+    }
+    private Direction getGravityDirection() {
+        return this.isGravityInverted ? Direction.UP : Direction.DOWN;
+    }
+
+    public void setGravityApplicationManual() {
+        this.gravityApplication = GravityApplication.MANUAL;
+    }
+    public void setGravityApplicationMoveInput() {
+        this.gravityApplication = GravityApplication.MOVE_INPUT;
+    }
+    public void setGravityApplicationInterval() {
+        this.gravityApplication = GravityApplication.INTERVAL;
+    }
+    public boolean isGravityApplicationManual() {
+        return this.gravityApplication == GravityApplication.MANUAL;
+    }
+    public boolean isGravityApplicationMoveInput() {
+        return this.gravityApplication == GravityApplication.MOVE_INPUT;
+    }
+    public boolean isGravityApplicationInterval() {
+        return this.gravityApplication == GravityApplication.INTERVAL;
+    }
+    //While paused, notifications from an interval notifier are ignored, for example while a menu covers the game. A pause starts
+    //once the interval in progress is over, so the notification ending it still makes its gravity step. Resuming is immediate.
+    public void pauseIntervalGravity(boolean isPaused) {
+        this.isIntervalGravityPauseRequested = isPaused;
+        if (!isPaused) {
+            this.isIntervalGravityPaused = false;
+        }
+    }
+    public boolean isIntervalGravityPaused() {
+        return this.isIntervalGravityPauseRequested;
+    }
+    //Whether a requested pause has started, which is once the interval in progress when it was requested is over.
+    public boolean isIntervalGravityPauseStarted() {
+        return this.isIntervalGravityPaused;
+    }
+    //Sets whether a pause is requested and whether it has started at once, for bringing a game back to a recorded state. A pause
+    //can only have started if it is requested.
+    public void setIntervalGravityPause(boolean isRequested, boolean isStarted) {
+        if (isStarted && !isRequested) {
+            throw new IllegalArgumentException("A pause of interval gravity can not have started without being requested.");
+        }
+        this.isIntervalGravityPauseRequested = isRequested;
+        this.isIntervalGravityPaused = isStarted;
+    }
+
+    //Makes a gravity step each time the observed interval notifier notifies, see intervalTick(). A notification with the parameter
+    //set to null tells that the notifier was stopped, and is ignored.
+    @Override
+    public void update(IObservableIntervalNotifier observable) {
+        if (observable == null) {
+            return;
+        }
+        this.intervalTick();
+    }
+    //Makes the gravity step of one interval, unless gravity is not applied on interval, interval gravity is paused or the game is
+    //over. Lets games that do not observe a notifier themselves, such as one owned by a GameLoop, be given their interval ticks.
+    public void intervalTick() {
+        if (this.gravityApplication != GravityApplication.INTERVAL || this.isIntervalGravityPaused || this.isGameOver) {
+            return;
+        }
+        this.isIntervalGravityPaused = this.isIntervalGravityPauseRequested;
+        this.gravityStep();
+    }
+
+    //Makes every airborne moveable block in the gravity plane fall one step in the direction of gravity. Observers are only
+    //notified if a block fell.
+    public void gravityStep() {
+        if (this.isGameOver) {
+            throw new IllegalStateException("Gravity can not be applied while the game is over.");
+        }
+        boolean hasFallen = false;
+        this.openJournalEntry();
+        try {
+            hasFallen = this.applyGravity();
+            this.updateActivePressurePlatesCount();
+            this.checkGameOver();
+        }
+        finally {
+            this.closeJournalEntry();
+        }
+        if (hasFallen) {
+            this.log(this.coordinateStringSupplier);
+            this.notifyObservers();
+        }
+    }
+
+    private boolean isInGravityPlane(int x, int y) {
+        return !this.traversableBlocks[-y][x].isBirdView();
+    }
+    //A block is airborne if the cell it would fall into is free, or is a transporter it can fall into. Blocks at the edge of the
+    //map and blocks standing on any other block are supported.
+    private boolean isAirborne(MoveableBlock block, Direction gravity) {
+        int x = block.getX() + gravity.getDX();
+        int y = block.getY() + gravity.getDY();
+        if (!this.isCoordinateWithinBounds(x, y)) {
+            return false;
+        }
+        DirectedBlock blockBelow = this.getDirectedBlock(x, y);
+        return blockBelow == null || (blockBelow instanceof TransferBlock && ((TransferBlock) blockBelow).canBlockEnter(block.getX(), block.getY()));
+    }
+    //In the gravity plane the player can only move while standing on something, and can not move in the direction of gravity.
+    //Either way the player still turns in the direction of the move.
+    private boolean canPlayerMove(MoveableBlock player, Direction direction) {
+        if (!this.isInGravityPlane(player.getX(), player.getY())) {
+            return true;
+        }
+        Direction gravity = this.getGravityDirection();
+        return direction != gravity && !this.isAirborne(player, gravity);
+    }
+    //Moves a player that stands in the gravity plane. Jumping against gravity lifts at most the single block stacked on top of the
+    //player, and pushes nothing beyond it, so a jump has a strength of its own rather than the player's pushing strength. Moving
+    //sideways is a regular move that carries the stack of blocks on top of the player along, one block at a time from the bottom,
+    //until a block is stopped or passes through a transporter. Blocks above a stopped block are left where they are, and so is the
+    //whole stack if the player itself passes through a transporter.
+    private boolean moveGroundedPlayer(MoveableBlock player, Direction direction) {
+        Direction gravity = this.getGravityDirection();
+        if (direction == gravity.getOpposite()) {
+            return this.jump(player, direction);
+        }
+        int stackSize = this.collectGravityStack(player, gravity);
+        int oldX = player.getX();
+        int oldY = player.getY();
+        boolean wasMoved = this.moveBlock(player, direction, 1, player);
+        if (wasMoved && player.getX() == oldX + direction.getDX() && player.getY() == oldY + direction.getDY()) {
+            for (int i = 1; i < stackSize; i++) {
+                MoveableBlock block = this.gravityStack[i];
+                int blockX = block.getX();
+                int blockY = block.getY();
+                if (!this.moveBlock(block, direction, 0, player)) {
+                    break;
                 }
-                else if (getTransferBlock(x, y) != null) {
-                    type = this.getTransferBlock(x, y).toString();
+                if (block.getX() != blockX + direction.getDX() || block.getY() != blockY + direction.getDY()) {
+                    break;
                 }
-                else {
-                    type = this.getTraversableBlock(x, y).toString();
+            }
+        }
+        this.clearGravityStack(stackSize);
+        return wasMoved;
+    }
+    //The block on top of the player is lifted first, and the player then moves into the cell it left. Neither move may push another
+    //block, also not at the exit of a transporter.
+    private boolean jump(MoveableBlock player, Direction direction) {
+        int chainLength = this.getBlockChainLength(player.getX(), player.getY(), direction.getDX(), direction.getDY());
+        if (chainLength > 2) {
+            return false;
+        }
+        if (chainLength == 2) {
+            MoveableBlock carriedBlock = this.getMoveableBlock(player.getX() + direction.getDX(), player.getY() + direction.getDY());
+            if (!this.moveBlock(carriedBlock, direction, 0, player)) {
+                return false;
+            }
+        }
+        return this.moveBlock(player, direction, 0, player);
+    }
+    //Collects the given block and the uninterrupted stack of moveable blocks in the gravity plane on top of it into gravityStack,
+    //bottom first, and returns the size of the stack.
+    private int collectGravityStack(MoveableBlock bottom, Direction gravity) {
+        int size = 0;
+        int x = bottom.getX();
+        int y = bottom.getY();
+        MoveableBlock block = bottom;
+        while (block != null) {
+            if (size == this.gravityStack.length) {
+                this.gravityStack = Arrays.copyOf(this.gravityStack, Math.max(4, size * 2));
+            }
+            this.gravityStack[size++] = block;
+            x -= gravity.getDX();
+            y -= gravity.getDY();
+            block = this.isCoordinateWithinBounds(x, y) && this.isInGravityPlane(x, y) ? this.getMoveableBlock(x, y) : null;
+        }
+        return size;
+    }
+    private void clearGravityStack(int size) {
+        Arrays.fill(this.gravityStack, 0, size, null);
+    }
+
+    //Makes one gravity step on the blocks of the gravity worklist, and returns true if any block fell. Each listed block is traced
+    //down to the bottom of the stack it stands in, and the bottoms are made to fall in order, starting with the one furthest in
+    //the direction of gravity. Every block moves at most once per step.
+    private boolean applyGravity() {
+        Direction gravity = this.getGravityDirection();
+        this.gravityStepNumber++;
+        //The worklist is emptied before the step, so that it only holds the cells changed by the step once it is done.
+        int cellCount = 0;
+        for (int i = 0; i < this.gravityCandidateCount; i++) {
+            int cell = this.gravityCandidates[i];
+            this.isGravityCandidate[cell] = false;
+            MoveableBlock block = this.moveableBlockGrid[cell / this.width][cell % this.width];
+            if (block == null || !this.isInGravityPlane(block.getX(), block.getY())) {
+                continue;
+            }
+            //Traces the block down to the bottom of its stack.
+            int x = block.getX();
+            int y = block.getY();
+            while (this.isCoordinateWithinBounds(x + gravity.getDX(), y + gravity.getDY()) && this.isInGravityPlane(x + gravity.getDX(), y + gravity.getDY())
+             && this.getMoveableBlock(x + gravity.getDX(), y + gravity.getDY()) != null) {
+                x += gravity.getDX();
+                y += gravity.getDY();
+            }
+            //Cells are sorted by row in the order of gravity, and then by column. The sort key of a cell is its cell number with
+            //the rows counted from the edge gravity points towards.
+            int row = this.isGravityInverted ? -y : this.height - 1 + y;
+            this.gravityStepCells[cellCount++] = row * this.width + x;
+        }
+        this.gravityCandidateCount = 0;
+        Arrays.sort(this.gravityStepCells, 0, cellCount);
+
+        boolean hasFallen = false;
+        for (int i = 0; i < cellCount; i++) {
+            int key = this.gravityStepCells[i];
+            if (i > 0 && key == this.gravityStepCells[i - 1]) {
+                continue;
+            }
+            int row = key / this.width;
+            int x = key % this.width;
+            int y = this.isGravityInverted ? -row : row - (this.height - 1);
+            MoveableBlock block = this.getMoveableBlock(x, y);
+            if (block != null && this.cellMoveStepNumbers[this.packCell(x, y)] != this.gravityStepNumber) {
+                hasFallen |= this.fall(block, gravity);
+            }
+        }
+        return hasFallen;
+    }
+    //Makes the given block fall one step along with the stack on top of it, if it is airborne. A block falling into a transporter
+    //pushes the blocks at the exit point ahead of it, but only if the chain of blocks there is lighter than the falling stack, or
+    //if the chain loops back through the transporter into the falling block itself.
+    private boolean fall(MoveableBlock block, Direction gravity) {
+        int x = block.getX();
+        int y = block.getY();
+        if (!this.isAirborne(block, gravity)) {
+            return false;
+        }
+        int stackSize = this.collectGravityStack(block, gravity);
+        int strength = 0;
+        TransferBlock transporter = this.getTransferBlock(x + gravity.getDX(), y + gravity.getDY());
+        if (transporter != null) {
+            int exitX = transporter.getExitX(x, y);
+            int exitY = transporter.getExitY(x, y);
+            Direction exitDirection = transporter instanceof PortalWallBlock ? transporter.getConnection().getDirectionValue() : gravity;
+            if (!this.isCoordinateWithinBounds(exitX, exitY)) {
+                this.clearGravityStack(stackSize);
+                return false;
+            }
+            if (this.getMoveableBlock(exitX, exitY) != null) {
+                int exitChainLength = this.getBlockChainLength(exitX, exitY, exitDirection.getDX(), exitDirection.getDY());
+                if (exitChainLength >= stackSize && !this.isChainWithinChain(x, y, 1, exitX, exitY, exitChainLength, exitDirection.getDX(), exitDirection.getDY())) {
+                    //What holds the stack back is at the other end of the transporter, so the block is kept on the worklist until
+                    //the chain there is light enough.
+                    this.markGravityCandidate(x, y);
+                    this.clearGravityStack(stackSize);
+                    return false;
+                }
+                //Gravity pushes with a strength of its own, which is just enough to push the chain at the exit, whether the falling
+                //block is a rock or the player.
+                strength = exitChainLength;
+            }
+        }
+        boolean hasFallen;
+        try {
+            hasFallen = this.moveBlock(block, gravity, strength, block);
+        }
+        catch (IllegalStateException e) {
+            //Pushes that would leave the map are refused by throwing, which for a falling block only means that it can not fall.
+            hasFallen = false;
+        }
+        if (hasFallen) {
+            //The rest of the stack follows the bottom block down, each block into the cell below it if that cell is free.
+            for (int i = 1; i < stackSize; i++) {
+                MoveableBlock stackedBlock = this.gravityStack[i];
+                int nextX = stackedBlock.getX() + gravity.getDX();
+                int nextY = stackedBlock.getY() + gravity.getDY();
+                if (this.isCoordinateWithinBounds(nextX, nextY) && this.getDirectedBlock(nextX, nextY) == null) {
+                    this.moveBlock(stackedBlock, gravity, 0, stackedBlock);
                 }
-                pushRockString += type;
             }
-            pushRockString += "@\n";
-        } 
-        return pushRockString;
+        }
+        this.clearGravityStack(stackSize);
+        return hasFallen;
     }
 
-    //An alternate String format that includes coordinate values along with some other useful game-state information.
-    private String coordinateString() {
-        String coordinateString = new String();
-        coordinateString += "Score:" + this.getMoveCount() + " isGameOver:" + this.isGameOver() + "\n";
-        String originalString = this.toString().replaceAll("@", "");
-        for (int i = 0; i < originalString.length(); i++) {
-            if (i==0) {
-                for (int j = 0; j < this.width + 1; j++) {
-                    if (j==0) {
-                        coordinateString += "X";
-                    }
-                    else {
-                        coordinateString += " " + (j-1) % 10;
-                    }
+    //Undo and redo
+    private void openJournalEntry() {
+        MoveJournalEntry entry = this.journalEntryPool.poll();
+        if (entry == null) {
+            entry = new MoveJournalEntry();
+        }
+        entry.reset(this.moveCount, this.activePressurePlatesCount, this.isGameOver, this.isGravityInverted);
+        this.journalEntry = entry;
+    }
+    //Closes the open journal entry and adds it to the undo journal if the action changed anything. A new action makes any undone
+    //actions impossible to redo.
+    private void closeJournalEntry() {
+        if (this.journalEntry == null) {
+            return;
+        }
+        MoveJournalEntry entry = this.journalEntry;
+        this.journalEntry = null;
+        entry.close(this.getPortal(true), this.getPortal(false), this.moveCount, this.activePressurePlatesCount, this.isGameOver, this.isGravityInverted);
+        if (!entry.hasChanges()) {
+            this.journalEntryPool.push(entry);
+            return;
+        }
+        this.undoJournal.push(entry);
+        if (this.undoJournal.size() > UNDO_LIMIT) {
+            this.journalEntryPool.push(this.undoJournal.removeLast());
+        }
+        this.recycleJournal(this.redoJournal);
+    }
+    private void recycleJournal(Deque<MoveJournalEntry> journal) {
+        while (!journal.isEmpty()) {
+            this.journalEntryPool.push(journal.pop());
+        }
+    }
+    private void journalMoveableBlock(MoveableBlock block) {
+        if (this.journalEntry != null) {
+            this.journalEntry.recordMoveableBlock(block);
+        }
+    }
+    private void clearJournal() {
+        this.journalEntry = null;
+        this.recycleJournal(this.undoJournal);
+        this.recycleJournal(this.redoJournal);
+    }
+    //Forgets every action that could be undone or redone, so that the current state is where undoing stops, as in a new game.
+    public void clearUndoHistory() {
+        this.clearJournal();
+    }
+    public boolean canUndo() {
+        return !this.undoJournal.isEmpty();
+    }
+    public boolean canRedo() {
+        return !this.redoJournal.isEmpty();
+    }
+    //Reverts the last move or portal placement, including its effect on the move count.
+    public void undo() {
+        if (!this.canUndo()) {
+            throw new IllegalStateException("There is no move to undo.");
+        }
+        MoveJournalEntry entry = this.undoJournal.pop();
+        this.applyJournalSnapshot(entry.getBefore());
+        this.redoJournal.push(entry);
+        this.log(this.coordinateStringSupplier);
+        this.notifyObservers();
+    }
+    //Makes the last undone move or portal placement again.
+    public void redo() {
+        if (!this.canRedo()) {
+            throw new IllegalStateException("There is no move to redo.");
+        }
+        MoveJournalEntry entry = this.redoJournal.pop();
+        this.applyJournalSnapshot(entry.getAfter());
+        this.undoJournal.push(entry);
+        this.log(this.coordinateStringSupplier);
+        this.notifyObservers();
+    }
+    //Sets every block held by the snapshot back to the values it holds. All changes go through the same methods as regular moves,
+    //so the occupancy grid and the state hash are kept up to date.
+    private void applyJournalSnapshot(MoveJournalEntry.Snapshot snapshot) {
+        //As in setCompactState(..), the blocks are lifted off the grid before any of them are placed, as blocks may swap cells.
+        for (int i = 0; i < snapshot.getMoveableBlockCount(); i++) {
+            MoveableBlock block = snapshot.getMoveableBlock(i).getBlock();
+            if (this.moveableBlockGrid[-block.getY()][block.getX()] == block) {
+                this.moveableBlockGrid[-block.getY()][block.getX()] = null;
+            }
+        }
+        for (int i = 0; i < snapshot.getMoveableBlockCount(); i++) {
+            MoveJournalEntry.MoveableBlockValues values = snapshot.getMoveableBlock(i);
+            this.relocateMoveableBlock(values.getBlock(), values.getX(), values.getY());
+            this.setMoveableBlockDirection(values.getBlock(), values.getDirection());
+            this.setMoveableBlockState(values.getBlock(), values.getState());
+        }
+        //The teleporters are all disconnected before any of them are reconnected. Any teleporter that was not journaled, but whose
+        //connection changed anyway, lost its connection to a journaled teleporter, and is thus reconnected in the second pass.
+        List<TeleporterBlock> journaledTeleporters = snapshot.getTeleporters();
+        if (!journaledTeleporters.isEmpty()) {
+            this.markTeleportersChanged();
+        }
+        for (int i = 0; i < journaledTeleporters.size(); i++) {
+            TeleporterBlock teleporter = journaledTeleporters.get(i);
+            this.hashTeleporterConnections(teleporter, teleporter);
+            this.recordTeleporterChange(teleporter);
+            teleporter.removeConnection();
+        }
+        for (int i = 0; i < journaledTeleporters.size(); i++) {
+            TeleporterBlock teleporter = journaledTeleporters.get(i);
+            TransferBlock connection = snapshot.getTeleporterConnection(i);
+            if (connection != null && teleporter.getConnection() != connection) {
+                this.hashTeleporterConnections(teleporter, connection);
+                this.recordTeleporterChange(connection);
+                teleporter.setConnection(connection);
+                this.hashTeleporterConnections(teleporter, connection);
+            }
+        }
+        if (snapshot.hasPortals()) {
+            this.markPortalsChanged();
+            this.removePortal(this.getPortal(true));
+            this.removePortal(this.getPortal(false));
+            for (int i = 0; i < 2; i++) {
+                boolean isPortalOne = i == 0;
+                if (snapshot.getPortal(isPortalOne) != null) {
+                    this.restorePortal(snapshot.getPortal(isPortalOne), isPortalOne, snapshot.getPortalDirection(isPortalOne));
+                    this.stateHash ^= this.getPortalKey(snapshot.getPortal(isPortalOne));
                 }
-                coordinateString += "\n";
             }
-            if (  i % (width+1) == 0) {
-                coordinateString += (i/(this.width + 1)) % 10 + "";
+            this.markPortalsChanged();
+        }
+        this.activePressurePlatesCount = snapshot.getActivePressurePlatesCount();
+        if (this.isGameOver != snapshot.isGameOver()) {
+            this.stateHash ^= zobristKey(ZOBRIST_FLAGS, FLAG_GAME_OVER);
+        }
+        this.isGameOver = snapshot.isGameOver();
+        this.setGravityInverted(snapshot.isGravityInverted());
+        this.moveCount = snapshot.getMoveCount();
+    }
+    //Places the given portal at the given portal wall, connecting it to the other portal if there is one.
+    private void restorePortal(PortalWallBlock wall, boolean isPortalOne, Direction direction) {
+        wall.setPortal(isPortalOne, direction, this.getPortal(!isPortalOne));
+        this.addPortal(wall);
+    }
+
+    //Compact state
+    //The dynamic part of a game (everything a move or portal placement can change, except the move count) can be exported as a
+    //compact int[] and restored later. This lets searches and tools step through many game states with a single PushRock instance
+    //instead of building or copying full block object graphs for each state.
+    //Layout of the array:
+    //  [0]                   flags, where bit 0 (FLAG_GAME_OVER) is set if the game is over, and bit 1 (FLAG_GRAVITY_INVERTED) if
+    //                        gravity is inverted
+    //  [1]                   the player, packed by packMoveableBlock(..)
+    //  [2, 2+r)              the r rocks, packed the same way and sorted, as rocks are interchangeable
+    //  [2+r], [3+r]          portal one and portal two, packed by packPortal(..), or -1 if the portal is not placed
+    //  [4+r, 4+r+t)          for each of the t teleporters, the index of the teleporter it is connected to, or -1
+    //Directions are packed by their ordinal in Direction. The rocks keep their direction, as saves and games mirroring another game
+    //show the rocks the way they face, but searches leave it out, see getSearchState().
+    private static final Direction[] PACKED_DIRECTIONS = Direction.values();
+    private static final int PACKED_DIRECTION_BITS = 3 << 1;
+    private static final int FLAG_GAME_OVER = 0;
+    private static final int FLAG_GRAVITY_INVERTED = 1;
+
+    private static int packDirection(Direction direction) {
+        if (direction == null) {
+            throw new IllegalArgumentException("Only directed blocks with a direction can be packed.");
+        }
+        return direction.ordinal();
+    }
+    private int packCell(int x, int y) {
+        return -y * this.width + x;
+    }
+    //A moveable block is packed as: cell << 3 | direction << 1 | state
+    private int packMoveableBlock(MoveableBlock block) {
+        return (this.packCell(block.getX(), block.getY()) << 3) | (packDirection(block.getDirectionValue()) << 1) | (block.getState() ? 1 : 0);
+    }
+    //A portal is packed as: cell << 2 | direction
+    private int packPortal(PortalWallBlock portal) {
+        if (portal == null) {
+            return -1;
+        }
+        return (this.packCell(portal.getX(), portal.getY()) << 2) | packDirection(portal.getDirectionValue());
+    }
+    private int getRockCount() {
+        return this.moveableBlocks.size() - 1;
+    }
+    //Returns the length of the arrays returned by getCompactState(), which is the same for every state of a given level.
+    public int getCompactStateLength() {
+        return 4 + this.getRockCount() + this.teleporters.size();
+    }
+
+    public int[] getCompactState() {
+        int[] state = new int[this.getCompactStateLength()];
+        state[0] = (this.isGameOver ? 1 << FLAG_GAME_OVER : 0) | (this.isGravityInverted ? 1 << FLAG_GRAVITY_INVERTED : 0);
+        int rockIndex = 2;
+        for (MoveableBlock block : this.moveableBlocks) {
+            if (block.isPlayer()) {
+                state[1] = this.packMoveableBlock(block);
+            }
+            else {
+                state[rockIndex++] = this.packMoveableBlock(block);
+            }
+        }
+        Arrays.sort(state, 2, rockIndex);
+        state[rockIndex++] = this.packPortal(this.getPortal(true));
+        state[rockIndex++] = this.packPortal(this.getPortal(false));
+        for (TeleporterBlock teleporter : this.teleporters) {
+            state[rockIndex++] = this.teleporters.indexOf(teleporter.getConnection());
+        }
+        return state;
+    }
+    //Returns the compact state with every rock packed as facing the first direction. A rock is only ever moved by the block pushing it
+    //or by gravity, and takes the direction of that move, so the direction it faces never changes how the game plays. States that
+    //only differ in how the rocks face thus play the same, and searches should not tell them apart. They have the same search state,
+    //and the same state hash. The search state can be restored with setCompactState(..).
+    public int[] getSearchState() {
+        int[] state = this.getCompactState();
+        //The rocks are sorted by cell first, and no two rocks share a cell, so they stay sorted.
+        for (int i = 2; i < 2 + this.getRockCount(); i++) {
+            state[i] &= ~PACKED_DIRECTION_BITS;
+        }
+        return state;
+    }
+
+    //Throws IllegalArgumentException if the given array is not a state this level can be in, so that a state read from a save or a
+    //replay is rejected before any of it is restored. Every moveable block must be within the map, and off the walls, teleporters and
+    //the other moveable blocks. The rocks must be sorted, every placed portal
+    //must be on a portal wall, and teleporters may only be connected to another teleporter that is connected back to them.
+    private void checkCompactState(int[] state) {
+        if (state == null || state.length != this.getCompactStateLength()) {
+            throw new IllegalArgumentException("Compact state does not belong to this level, expected length " + this.getCompactStateLength() + ".");
+        }
+        if ((state[0] & ~((1 << FLAG_GAME_OVER) | (1 << FLAG_GRAVITY_INVERTED))) != 0) {
+            throw new IllegalArgumentException("Compact state has unknown flags set: " + state[0] + ".");
+        }
+        int cellCount = this.width * this.height;
+        int playerCell = this.checkPackedMoveableBlock(state[1], cellCount);
+        int rockEnd = 2 + this.getRockCount();
+        for (int i = 2; i < rockEnd; i++) {
+            int rockCell = this.checkPackedMoveableBlock(state[i], cellCount);
+            if (rockCell == playerCell || (i > 2 && rockCell <= state[i - 1] >>> 3)) {
+                throw new IllegalArgumentException("Compact state places two moveable blocks in the cell " + rockCell + ", or does not list the rocks in order.");
+            }
+        }
+        for (int i = rockEnd; i < rockEnd + 2; i++) {
+            int packedPortal = state[i];
+            if (packedPortal == -1) {
+                continue;
+            }
+            int cell = packedPortal >>> 2;
+            if (packedPortal < 0 || cell >= cellCount || !(this.transferBlocks[cell / this.width][cell % this.width] instanceof PortalWallBlock)) {
+                throw new IllegalArgumentException("Compact state places a portal where there is no portal wall: " + packedPortal + ".");
+            }
+        }
+        if (state[rockEnd] != -1 && state[rockEnd + 1] != -1 && state[rockEnd] >>> 2 == state[rockEnd + 1] >>> 2) {
+            throw new IllegalArgumentException("Compact state places both portals on the same wall.");
+        }
+        int teleporterStart = rockEnd + 2;
+        for (int i = 0; i < this.teleporters.size(); i++) {
+            int connectionIndex = state[teleporterStart + i];
+            if (connectionIndex == -1) {
+                continue;
+            }
+            if (connectionIndex < 0 || connectionIndex >= this.teleporters.size() || connectionIndex == i || state[teleporterStart + connectionIndex] != i) {
+                throw new IllegalArgumentException("Compact state connects the teleporter " + i + " to " + connectionIndex + ", which is not a teleporter connected back to it.");
+            }
+        }
+    }
+    //Returns the cell of the packed moveable block, if it is a cell a moveable block can stand on.
+    private int checkPackedMoveableBlock(int packedBlock, int cellCount) {
+        int cell = packedBlock >>> 3;
+        if (packedBlock < 0 || cell >= cellCount) {
+            throw new IllegalArgumentException("Compact state places a moveable block outside the map: " + packedBlock + ".");
+        }
+        if (this.transferBlocks[cell / this.width][cell % this.width] != null) {
+            throw new IllegalArgumentException("Compact state places a moveable block on a wall or teleporter in the cell " + cell + ".");
+        }
+        return cell;
+    }
+
+    //Restores a state previously returned by getCompactState() or getSearchState() for this level. The move count is left unchanged.
+    //The state is checked in full before anything is restored, so a state that is rejected leaves the game as it was.
+    public void setCompactState(int[] state) {
+        this.checkCompactState(state);
+        //Moveable blocks are first all lifted off the grid, so that placing one block can never clear the cell of another.
+        for (MoveableBlock block : this.moveableBlocks) {
+            if (this.moveableBlockGrid[-block.getY()][block.getX()] == block) {
+                this.moveableBlockGrid[-block.getY()][block.getX()] = null;
+            }
+        }
+        int rockIndex = 2;
+        int activePressurePlatesCount = 0;
+        for (MoveableBlock block : this.moveableBlocks) {
+            int packedBlock = block.isPlayer() ? state[1] : state[rockIndex++];
+            int cell = packedBlock >>> 3;
+            this.relocateMoveableBlock(block, cell % this.width, -(cell / this.width));
+            block.setDirection(PACKED_DIRECTIONS[(packedBlock >> 1) & 3]);
+            block.setState((packedBlock & 1) == 1);
+            if (block.getState()) {
+                activePressurePlatesCount++;
+            }
+        }
+        this.markPortalsChanged();
+        this.removePortal(this.getPortal(true));
+        this.removePortal(this.getPortal(false));
+        for (int i = 0; i < 2; i++) {
+            int packedPortal = state[rockIndex++];
+            if (packedPortal != -1) {
+                int cell = packedPortal >>> 2;
+                this.restorePortal((PortalWallBlock) this.transferBlocks[cell / this.width][cell % this.width], i == 0, PACKED_DIRECTIONS[packedPortal & 3]);
+            }
+        }
+        this.markPortalsChanged();
+        for (TeleporterBlock teleporter : this.teleporters) {
+            teleporter.removeConnection();
+        }
+        for (int i = 0; i < this.teleporters.size(); i++) {
+            int connectionIndex = state[rockIndex + i];
+            if (connectionIndex > i) {
+                this.teleporters.get(i).setConnection(this.teleporters.get(connectionIndex));
+            }
+        }
+        this.markTeleportersChanged();
+        this.activePressurePlatesCount = activePressurePlatesCount;
+        this.activeMoveableBlocksCount = activePressurePlatesCount;
+        this.isGameOver = (state[0] & (1 << FLAG_GAME_OVER)) != 0;
+        this.isGravityInverted = (state[0] & (1 << FLAG_GRAVITY_INVERTED)) != 0;
+        this.stateHash = this.computeStateHash();
+        //Only the cells of the blocks, portals and teleporters have been marked as changed, as nothing else can differ between two
+        //states of the level. Games mirroring the states of another game thus only have the cells that changed drawn again.
+        this.markEveryGravityCandidate();
+        this.recordReset();
+        //The journaled changes can not be applied on top of an arbitrary restored state.
+        this.clearJournal();
+        this.notifyObservers();
+    }
+
+    //State hash
+    //The state hash is a 64-bit Zobrist hash: every feature of the state (the player with its cell and direction, a rock with its cell and
+    //state, a placed portal, a pair of connected teleporters, the game being over and gravity being inverted) has its own pseudo-random key, and the hash is the XOR of the
+    //keys of all features present. A change to the game only has to XOR out the keys of the features it removes and XOR in the keys
+    //of the features it adds. Games of the same level with equal search states (see getSearchState()) always have equal hashes. The
+    //move count and the directions of the rocks are not hashed.
+    private static final int ZOBRIST_MOVEABLE = 0;
+    private static final int ZOBRIST_PORTAL = 1;
+    private static final int ZOBRIST_TELEPORTER_PAIR = 2;
+    //The flags of the compact state are keyed as one feature, with the bit of the flag as its value.
+    private static final int ZOBRIST_FLAGS = 3;
+    private static final long ZOBRIST_SEED = 0x5DEECE66DL;
+
+    //Rather than storing a table of random keys for every feature, a feature's key is derived by running its packed value through
+    //the SplitMix64 finalizer. The keys are as well distributed as those of a random table, without the table's memory cost.
+    private static long zobristKey(int feature, long value) {
+        long z = ZOBRIST_SEED + ((value << 2) | feature) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    private long getMoveableBlockKey(MoveableBlock block) {
+        if (block.isPlayer()) {
+            return zobristKey(ZOBRIST_MOVEABLE, ((long) this.packMoveableBlock(block) << 1) | 1);
+        }
+        return zobristKey(ZOBRIST_MOVEABLE, (long) (this.packMoveableBlock(block) & ~PACKED_DIRECTION_BITS) << 1);
+    }
+    private long getPortalKey(PortalWallBlock portal) {
+        return zobristKey(ZOBRIST_PORTAL, ((long) this.packPortal(portal) << 1) | (portal.isPortalOne() ? 1 : 0));
+    }
+    //A connected pair of teleporters is keyed by the cells of both teleporters, lowest cell first, so both teleporters of a pair give the same key.
+    private long getTeleporterConnectionKey(TransferBlock teleporter) {
+        TransferBlock connection = teleporter.getConnection();
+        if (connection == null) {
+            return 0;
+        }
+        return this.getTeleporterPairKey(this.packCell(teleporter.getX(), teleporter.getY()), this.packCell(connection.getX(), connection.getY()));
+    }
+    private long getTeleporterPairKey(long cellOne, long cellTwo) {
+        return zobristKey(ZOBRIST_TELEPORTER_PAIR, Math.min(cellOne, cellTwo) * this.width * this.height + Math.max(cellOne, cellTwo));
+    }
+    //XORs the keys of the connections of the two given teleporters into the hash, making sure a pair they share is only counted once.
+    private void hashTeleporterConnections(TransferBlock teleporterOne, TransferBlock teleporterTwo) {
+        this.stateHash ^= this.getTeleporterConnectionKey(teleporterOne);
+        if (teleporterTwo != teleporterOne && teleporterTwo.getConnection() != teleporterOne) {
+            this.stateHash ^= this.getTeleporterConnectionKey(teleporterTwo);
+        }
+    }
+    private long computeStateHash() {
+        long hash = 0;
+        for (MoveableBlock block : this.moveableBlocks) {
+            hash ^= this.getMoveableBlockKey(block);
+        }
+        for (PortalWallBlock portal : this.portals) {
+            hash ^= this.getPortalKey(portal);
+        }
+        for (TeleporterBlock teleporter : this.teleporters) {
+            //Every connected pair is seen from both of its teleporters, but is only counted from the one with the lowest cell.
+            TransferBlock connection = teleporter.getConnection();
+            if (connection != null && this.packCell(teleporter.getX(), teleporter.getY()) < this.packCell(connection.getX(), connection.getY())) {
+                hash ^= this.getTeleporterConnectionKey(teleporter);
+            }
+        }
+        if (this.isGameOver) {
+            hash ^= zobristKey(ZOBRIST_FLAGS, FLAG_GAME_OVER);
+        }
+        if (this.isGravityInverted) {
+            hash ^= zobristKey(ZOBRIST_FLAGS, FLAG_GRAVITY_INVERTED);
+        }
+        return hash;
+    }
+    //Returns a 64-bit hash of the current game state, suited as a key for transposition tables and duplicate detection.
+    public long stateHash() {
+        return this.stateHash;
+    }
+    //Returns the hash the game would have in the given compact state, without restoring it. Throws IllegalArgumentException if the
+    //level can not be in that state, see setCompactState(..).
+    public long stateHashOf(int[] state) {
+        this.checkCompactState(state);
+        long hash = zobristKey(ZOBRIST_MOVEABLE, ((long) state[1] << 1) | 1);
+        int rockEnd = 2 + this.getRockCount();
+        for (int i = 2; i < rockEnd; i++) {
+            hash ^= zobristKey(ZOBRIST_MOVEABLE, (long) (state[i] & ~PACKED_DIRECTION_BITS) << 1);
+        }
+        for (int i = 0; i < 2; i++) {
+            if (state[rockEnd + i] != -1) {
+                hash ^= zobristKey(ZOBRIST_PORTAL, ((long) state[rockEnd + i] << 1) | (i == 0 ? 1 : 0));
+            }
+        }
+        for (int i = 0; i < this.teleporters.size(); i++) {
+            int connectionIndex = state[rockEnd + 2 + i];
+            if (connectionIndex > i) {
+                TeleporterBlock teleporter = this.teleporters.get(i);
+                TeleporterBlock connection = this.teleporters.get(connectionIndex);
+                hash ^= this.getTeleporterPairKey(this.packCell(teleporter.getX(), teleporter.getY()), this.packCell(connection.getX(), connection.getY()));
+            }
+        }
+        if ((state[0] & (1 << FLAG_GAME_OVER)) != 0) {
+            hash ^= zobristKey(ZOBRIST_FLAGS, FLAG_GAME_OVER);
+        }
+        if ((state[0] & (1 << FLAG_GRAVITY_INVERTED)) != 0) {
+            hash ^= zobristKey(ZOBRIST_FLAGS, FLAG_GRAVITY_INVERTED);
+        }
+        return hash;
+    }
+
+    //Level hash
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    //Returns a 64-bit FNV-1a hash of the level's name and layouts, each followed by a '\0' to keep them apart. Line separators are
+    //skipped, as they depend on the system the level was loaded on, and the map layout marks the end of its rows with '@' either way.
+    //Saves and replays refer to their level by this hash, so that they are never restored onto a level that has been changed since.
+    public long levelHash() {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hashCharacters(hash, this.levelName);
+        hash = hashCharacters(hash, this.levelMapLayout);
+        return hashCharacters(hash, this.levelDirectionLayout);
+    }
+    private static long hashCharacters(long hash, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char character = string.charAt(i);
+            if (character != '\n' && character != '\r') {
+                hash = (hash ^ character) * FNV_PRIME;
+            }
+        }
+        return (hash ^ '\0') * FNV_PRIME;
+    }
+
+    //Returns a copy of this game in its current state, including its move count and how gravity is applied, but without any of its
+    //observers.
+    public PushRock getCopy() {
+        PushRock copy = new PushRock(this.levelName, this.levelMapLayout, this.levelDirectionLayout);
+        copy.setDiagnosticsSink(this.diagnosticsSink);
+        copy.setCompactState(this.getCompactState());
+        copy.moveCount = this.moveCount;
+        copy.gravityApplication = this.gravityApplication;
+        copy.isIntervalGravityPaused = this.isIntervalGravityPaused;
+        copy.isIntervalGravityPauseRequested = this.isIntervalGravityPauseRequested;
+        return copy;
+    }
+
+    public String toString() {
+        return BoardSerializer.mapLayoutToString(this, false);
+    }
+
+    //An alternate String format that includes coordinate values along with some other useful game-state information.
+    private String coordinateString() {
+        //Every block takes up two characters (a space and its type), as does every column number in the header row.
+        StringBuilder coordinateString = new StringBuilder(64 + (this.height + 1) * (2 * this.width + 2));
+        coordinateString.append("Score:").append(this.getMoveCount()).append(" isGameOver:").append(this.isGameOver()).append(" isGravityInverted:").append(this.isGravityInverted).append('\n');
+        coordinateString.append('X');
+        for (int x = 0; x < this.width; x++) {
+            coordinateString.append(' ').append(x % 10);
+        }
+        coordinateString.append('\n');
+        for (int y = 0; y > -this.height; y--) {
+            coordinateString.append(-y % 10);
+            for (int x = 0; x < this.width; x++) {
+                char character = BoardSerializer.getDisplayTypeCharacter(this.getTopBlock(x, y));
+                coordinateString.append(' ').append(BoardSerializer.getViewCharacter(character, this.getTraversableBlock(x, y).isBirdView()));
             }
-            coordinateString += " " + originalString.charAt(i);
+            coordinateString.append(" \n");
         }
-        return coordinateString;
+        return coordinateString.toString();
     }
 
     public static void main(String[] args) {
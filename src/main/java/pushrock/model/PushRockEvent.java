@@ -0,0 +1,125 @@
+package pushrock.model;
+
+//A change to a game, delivered to IObserverPushRockEvents observers in batches of all the changes made by one operation of the game,
+//such as a move, a portal placement or an undo. Which of the values of an event are set depends on its type:
+//  RESET                 the whole game may have changed, and should be read again. None of the values are set.
+//  BLOCK_MOVED           a moveable block moved, turned or changed state. (getX(), getY()) is where it was at the start of the
+//                        operation, and (getToX(), getToY()) where it is after it, along with its block type, direction and state.
+//                        Each block gets at most one event per batch.
+//  PORTAL_PLACED         a portal was placed at (getX(), getY()), facing getDirection(). The block type is 'v' for portal one, and
+//                        'u' for portal two.
+//  PORTAL_CLEARED        the portal at (getX(), getY()) was removed, with the block type as for PORTAL_PLACED.
+//  TELEPORTER_REPAIRED   the connection between the teleporters at (getX(), getY()) and (getToX(), getToY()) changed. They are
+//                        now connected if getState() is true, or no longer connected if it is false. Several pairs may be
+//                        connected at once, and each connection made or broken gets one event, those broken coming first.
+//  MOVE_COUNT_CHANGED    the move count is now getMoveCount().
+//  GAME_OVER             the game is now over if getState() is true, or no longer over if it is false, after an undo.
+public class PushRockEvent {
+
+    public enum Type {
+        RESET,
+        BLOCK_MOVED,
+        PORTAL_PLACED,
+        PORTAL_CLEARED,
+        TELEPORTER_REPAIRED,
+        MOVE_COUNT_CHANGED,
+        GAME_OVER
+    }
+
+    private static final PushRockEvent RESET_EVENT = new PushRockEvent(Type.RESET, 0, 0, 0, 0, ' ', null, false, 0);
+
+    private final Type type;
+    private final int x;
+    private final int y;
+    private final int toX;
+    private final int toY;
+    private final char blockType;
+    private final Direction direction;
+    private final boolean state;
+    private final int moveCount;
+
+    private PushRockEvent(Type type, int x, int y, int toX, int toY, char blockType, Direction direction, boolean state, int moveCount) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.toX = toX;
+        this.toY = toY;
+        this.blockType = blockType;
+        this.direction = direction;
+        this.state = state;
+        this.moveCount = moveCount;
+    }
+
+    static PushRockEvent reset() {
+        return RESET_EVENT;
+    }
+    static PushRockEvent blockMoved(char blockType, int x, int y, int toX, int toY, Direction direction, boolean state) {
+        return new PushRockEvent(Type.BLOCK_MOVED, x, y, toX, toY, blockType, direction, state, 0);
+    }
+    static PushRockEvent portalPlaced(boolean isPortalOne, int x, int y, Direction direction) {
+        return new PushRockEvent(Type.PORTAL_PLACED, x, y, x, y, isPortalOne ? 'v' : 'u', direction, true, 0);
+    }
+    static PushRockEvent portalCleared(boolean isPortalOne, int x, int y) {
+        return new PushRockEvent(Type.PORTAL_CLEARED, x, y, x, y, isPortalOne ? 'v' : 'u', null, false, 0);
+    }
+    static PushRockEvent teleporterRepaired(int x, int y, int toX, int toY) {
+        return new PushRockEvent(Type.TELEPORTER_REPAIRED, x, y, toX, toY, 't', null, true, 0);
+    }
+    static PushRockEvent teleportersUnpaired(int x, int y, int toX, int toY) {
+        return new PushRockEvent(Type.TELEPORTER_REPAIRED, x, y, toX, toY, 't', null, false, 0);
+    }
+    static PushRockEvent moveCountChanged(int moveCount) {
+        return new PushRockEvent(Type.MOVE_COUNT_CHANGED, 0, 0, 0, 0, ' ', null, false, moveCount);
+    }
+    static PushRockEvent gameOver(boolean isGameOver) {
+        return new PushRockEvent(Type.GAME_OVER, 0, 0, 0, 0, ' ', null, isGameOver, 0);
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+    public int getX() {
+        return this.x;
+    }
+    public int getY() {
+        return this.y;
+    }
+    public int getToX() {
+        return this.toX;
+    }
+    public int getToY() {
+        return this.toY;
+    }
+    public char getBlockType() {
+        return this.blockType;
+    }
+    public Direction getDirection() {
+        return this.direction;
+    }
+    public boolean getState() {
+        return this.state;
+    }
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+
+    @Override
+    public String toString() {
+        switch (this.type) {
+            case BLOCK_MOVED:
+                return "BLOCK_MOVED '" + this.blockType + "' (" + this.x + ", " + this.y + ") -> (" + this.toX + ", " + this.toY + ") " + this.direction + (this.state ? " active" : "");
+            case PORTAL_PLACED:
+                return "PORTAL_PLACED '" + this.blockType + "' (" + this.x + ", " + this.y + ") " + this.direction;
+            case PORTAL_CLEARED:
+                return "PORTAL_CLEARED '" + this.blockType + "' (" + this.x + ", " + this.y + ")";
+            case TELEPORTER_REPAIRED:
+                return "TELEPORTER_REPAIRED (" + this.x + ", " + this.y + ") " + (this.state ? "<->" : "-/-") + " (" + this.toX + ", " + this.toY + ")";
+            case MOVE_COUNT_CHANGED:
+                return "MOVE_COUNT_CHANGED " + this.moveCount;
+            case GAME_OVER:
+                return "GAME_OVER " + this.state;
+            default:
+                return this.type.toString();
+        }
+    }
+}
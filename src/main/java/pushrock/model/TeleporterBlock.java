@@ -11,8 +11,8 @@ public class TeleporterBlock extends TransferBlock {
 
     //Valid directions for a teleporter is: null.
     @Override
-    protected String[] getValidDirections() {
-        return new String[]{null};
+    protected boolean isValidDirection(Direction direction) {
+        return direction == null;
     }
 
     //Valid types include: teleporter 't'.
@@ -42,7 +42,7 @@ public class TeleporterBlock extends TransferBlock {
         this.setTypeCharacter('t');
         this.setState(false);
         this.setConnection(null);
-        this.setDirection(null);
+        this.setDirection((Direction) null);
     }
     public boolean isTeleporter() {
         return this.getType() == 't';
@@ -115,6 +115,21 @@ public class TeleporterBlock extends TransferBlock {
         return null;
     }
 
+    //The entry points of a teleporter are the four cells next to it.
+    @Override
+    protected boolean isEntryPoint(int x, int y) {
+        return Math.abs(x - this.getX()) + Math.abs(y - this.getY()) == 1;
+    }
+    //A block leaves the connected teleporter on the side opposite to the one it entered this teleporter from.
+    @Override
+    public int getExitX(int entryX, int entryY) {
+        return this.getConnection().getX() - (entryX - this.getX());
+    }
+    @Override
+    public int getExitY(int entryX, int entryY) {
+        return this.getConnection().getY() - (entryY - this.getY());
+    }
+
     @Override
     public String toString() {
         switch (this.getType()) {
@@ -5,7 +5,7 @@ public abstract class TransferBlock extends DirectedBlock {
     private TransferBlock connection;
 
     //Constructor with specified direction and connection
-    public TransferBlock(int x, int y, char type, String direction, TransferBlock connection) {
+    public TransferBlock(int x, int y, char type, Direction direction, TransferBlock connection) {
         super(x, y, type, direction);
         this.setConnection(connection);
     }
@@ -102,4 +102,15 @@ public abstract class TransferBlock extends DirectedBlock {
         }
         return false;
     }
+    //Coordinate based counterpart of canBlockEnter(..), which lets the game check if a block at (x, y) can enter this transfer
+    //block without allocating any coordinate arrays.
+    public boolean canBlockEnter(int x, int y) {
+        return this.isTransporter() && this.getState() && this.isEntryPoint(x, y);
+    }
+    //Checks if (x, y) is one of the entry points of this transfer block, assuming that the block is an active transporter.
+    abstract protected boolean isEntryPoint(int x, int y);
+    //Returns the x- and y-coordinate of the exit point of a block entering from (entryX, entryY). Only valid if the block can
+    //enter, see canBlockEnter(int, int).
+    abstract public int getExitX(int entryX, int entryY);
+    abstract public int getExitY(int entryX, int entryY);
 }
@@ -1,10 +1,15 @@
 package pushrock.model;
 
 public class TraversableBlock extends BlockAbstract {
-    
+
+    //Traversable blocks seen from above (bird view) are not affected by gravity, while blocks seen from the side are part of the
+    //gravity plane, where moveable blocks standing on them fall in the direction of gravity. The view can not change.
+    private final boolean isBirdView;
+
     //Constructor
-    public TraversableBlock(int x, int y, char type) {
+    public TraversableBlock(int x, int y, char type, boolean isBirdView) {
         super(x, y, type);
+        this.isBirdView = isBirdView;
     }
 
     @Override
@@ -25,6 +30,9 @@ public class TraversableBlock extends BlockAbstract {
     public boolean isPressurePlate() {
         return this.getType() == 'd';
     }
+    public boolean isBirdView() {
+        return this.isBirdView;
+    }
     @Override
     protected void setType(char type) {
         switch (type) {
@@ -49,9 +57,9 @@ public class TraversableBlock extends BlockAbstract {
     public String toString() {
         switch (this.getType()) {
             case ' ':
-                  return " ";
+                  return this.isBirdView ? " " : "-";
             case 'd':
-                  return "d";
+                  return this.isBirdView ? "d" : "D";
             default:
                 return "";
         }
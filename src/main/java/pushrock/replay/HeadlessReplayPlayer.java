@@ -0,0 +1,112 @@
+package pushrock.replay;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import pushrock.fxui.SaveHandler;
+import pushrock.model.GameCommand;
+import pushrock.model.IDiagnosticsSink;
+import pushrock.model.PushRock;
+
+//Plays replays as fast as the game allows: the commands are applied straight to a copy of the level, which has no observers and a
+//silent diagnostics sink, so nothing is drawn or printed. Meant for regression checks, where every archived replay is played on the
+//current engine and has to end in the state it was recorded to end in.
+public class HeadlessReplayPlayer {
+
+    //Counts the commands of a playback. A single instance is reused for every command, so playing allocates nothing per command.
+    private static class Playback {
+        private final PushRock pushRock;
+        private int commandCount;
+        private int moveCommandCount;
+        private int refusedCommandCount;
+
+        private Playback(PushRock pushRock) {
+            this.pushRock = pushRock;
+        }
+
+        private void apply(GameCommand command) {
+            this.commandCount++;
+            if (command.getType() == GameCommand.Type.MOVE) {
+                this.moveCommandCount++;
+            }
+            try {
+                command.applyTo(this.pushRock);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                //The game refused the command when it was recorded as well, and is left unchanged.
+                this.refusedCommandCount++;
+            }
+        }
+    }
+
+    //Plays the replay on a copy of the given game of its level, which is left unchanged.
+    public ReplayResult play(Replay replay, PushRock level) {
+        PushRock pushRock = level.getCopy();
+        pushRock.setDiagnosticsSink(IDiagnosticsSink.silent());
+        replay.restoreInitialState(pushRock);
+        Playback playback = new Playback(pushRock);
+        long startTime = System.nanoTime();
+        replay.forEachCommand(playback::apply);
+        long elapsedNanos = System.nanoTime() - startTime;
+        boolean isMatch = pushRock.getMoveCount() == replay.getFinalMoveCount() && pushRock.stateHash() == replay.getFinalStateHash();
+        return new ReplayResult(playback.commandCount, playback.moveCommandCount, playback.refusedCommandCount, elapsedNanos,
+                pushRock.getMoveCount(), pushRock.stateHash(), isMatch);
+    }
+
+    //Plays each of the given replay files on the level given as the first argument, which is either the path of a level file or the
+    //name of a level in the levels resource folder, and prints the results. Every replay is played the number of times given by the
+    //option --repeat=N, so that the later playbacks show the speed of a warmed up engine. Exits with status 1 if a replay did not match.
+    public static void main(String[] args) throws IOException {
+        int repetitions = 1;
+        int firstArgument = 0;
+        if (args.length > 0 && args[0].startsWith("--repeat=")) {
+            repetitions = Integer.parseInt(args[0].substring("--repeat=".length()));
+            firstArgument = 1;
+        }
+        if (args.length - firstArgument < 2 || repetitions < 1) {
+            System.out.println("Usage: HeadlessReplayPlayer [--repeat=N] <level file or level name> <replay file>...");
+            return;
+        }
+        PushRock.setDefaultDiagnosticsSink(IDiagnosticsSink.silent());
+        PushRock level = loadLevel(args[firstArgument]);
+        HeadlessReplayPlayer player = new HeadlessReplayPlayer();
+        boolean isEveryReplayMatched = true;
+        for (int i = firstArgument + 1; i < args.length; i++) {
+            Replay replay;
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(Path.of(args[i])))) {
+                replay = Replay.read(inputStream);
+            } catch (IllegalArgumentException e) {
+                System.out.println(args[i] + ": could not be read, " + e.getMessage());
+                isEveryReplayMatched = false;
+                continue;
+            }
+            for (int repetition = 0; repetition < repetitions; repetition++) {
+                try {
+                    ReplayResult result = player.play(replay, level);
+                    isEveryReplayMatched &= result.isMatch();
+                    System.out.println(args[i] + ": " + result);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(args[i] + ": could not be played, " + e.getMessage());
+                    isEveryReplayMatched = false;
+                    break;
+                }
+            }
+        }
+        if (!isEveryReplayMatched) {
+            System.exit(1);
+        }
+    }
+
+    private static PushRock loadLevel(String level) throws IOException {
+        SaveHandler saveHandler = new SaveHandler();
+        Path levelPath = Path.of(level);
+        if (Files.isRegularFile(levelPath)) {
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(levelPath))) {
+                return saveHandler.loadGame(inputStream);
+            }
+        }
+        return saveHandler.loadGame(level, false);
+    }
+}
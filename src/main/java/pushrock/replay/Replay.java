@@ -0,0 +1,310 @@
+package pushrock.replay;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import pushrock.model.Direction;
+import pushrock.model.GameCommand;
+import pushrock.model.PushRock;
+
+//A recorded session of a game: the state the game was in when the recording started, every command applied to it since, in order,
+//and the state it ended up in. Replays are made by ReplayRecorder and played by HeadlessReplayPlayer. Like binary saves, a replay
+//does not hold the layouts of its level, only the level's hash (see PushRock.levelHash()), so it has to be played on the level it
+//was recorded on.
+//The commands are encoded as a sequence of runs, each starting with a varint holding (length << 2) | kind:
+//  kind 0  a run of moves, followed by (length + 3) / 4 bytes holding the direction of each move in 2 bits, lowest bits first
+//  kind 1  a run of placements of portal one
+//  kind 2  a run of placements of portal two
+//  kind 3  any other command, with the length holding the code of the command, see OTHER_COMMANDS
+//Moves thus take a quarter of a byte each, as long as they are not interrupted by other commands.
+//The file format, written with DataOutputStream, is:
+//  magic               4 bytes, "PRRP"
+//  version             1 byte, FORMAT_VERSION
+//  level name          modified UTF-8, as written by writeUTF(..)
+//  level hash          8 bytes
+//  gravity application 1 byte, 0 for manual, 1 for on move input and 2 for on interval
+//  interval pause      1 byte, 0 for running, 1 for a pause requested but not started and 2 for a started pause
+//  initial move count  varint
+//  state length        varint, followed by that many zigzag varints of the initial compact state
+//  initial state hash  8 bytes
+//  command count       varint
+//  commands length     varint, followed by that many bytes of encoded commands
+//  final move count    varint
+//  final state hash    8 bytes
+//  checksum            4 bytes, the CRC32 of every byte before it
+public class Replay {
+
+    private static final int MAGIC = 0x50525250;
+    private static final int FORMAT_VERSION = 2;
+
+    static final int KIND_MOVES = 0;
+    static final int KIND_PORTAL_ONE = 1;
+    static final int KIND_PORTAL_TWO = 2;
+    static final int KIND_OTHER = 3;
+    static final int GRAVITY_APPLICATION_MANUAL = 0;
+    static final int GRAVITY_APPLICATION_MOVE_INPUT = 1;
+    static final int GRAVITY_APPLICATION_INTERVAL = 2;
+    static final int INTERVAL_PAUSE_NONE = 0;
+    static final int INTERVAL_PAUSE_REQUESTED = 1;
+    static final int INTERVAL_PAUSE_STARTED = 2;
+    //The commands of kind 3, by their code. The order is part of the format.
+    static final GameCommand[] OTHER_COMMANDS = {
+        GameCommand.resetLevel(),
+        GameCommand.undo(),
+        GameCommand.redo(),
+        GameCommand.invertGravity(),
+        GameCommand.intervalTick(),
+        GameCommand.pauseIntervalGravity(true),
+        GameCommand.pauseIntervalGravity(false)
+    };
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    static int getOtherCommandCode(GameCommand command) {
+        for (int code = 0; code < OTHER_COMMANDS.length; code++) {
+            if (OTHER_COMMANDS[code] == command) {
+                return code;
+            }
+        }
+        throw new IllegalArgumentException("Command " + command + " has no code in the replay format.");
+    }
+
+    private final String levelName;
+    private final long levelHash;
+    private final int gravityApplication;
+    private final int intervalPause;
+    private final int initialMoveCount;
+    private final int[] initialState;
+    private final long initialStateHash;
+    private final int commandCount;
+    private final byte[] commands;
+    private final int finalMoveCount;
+    private final long finalStateHash;
+
+    Replay(String levelName, long levelHash, int gravityApplication, int intervalPause, int initialMoveCount, int[] initialState, long initialStateHash,
+            int commandCount, byte[] commands, int finalMoveCount, long finalStateHash) {
+        this.levelName = levelName;
+        this.levelHash = levelHash;
+        this.gravityApplication = gravityApplication;
+        this.intervalPause = intervalPause;
+        this.initialMoveCount = initialMoveCount;
+        this.initialState = initialState;
+        this.initialStateHash = initialStateHash;
+        this.commandCount = commandCount;
+        this.commands = commands;
+        this.finalMoveCount = finalMoveCount;
+        this.finalStateHash = finalStateHash;
+    }
+
+    public String getLevelName() {
+        return this.levelName;
+    }
+    public long getLevelHash() {
+        return this.levelHash;
+    }
+    public int getInitialMoveCount() {
+        return this.initialMoveCount;
+    }
+    public long getInitialStateHash() {
+        return this.initialStateHash;
+    }
+    public int getCommandCount() {
+        return this.commandCount;
+    }
+    //The number of bytes the encoded commands take up.
+    public int getEncodedCommandsLength() {
+        return this.commands.length;
+    }
+    //The move count and state hash of the game when the recording was stopped, which a replay played on the same level should end in.
+    public int getFinalMoveCount() {
+        return this.finalMoveCount;
+    }
+    public long getFinalStateHash() {
+        return this.finalStateHash;
+    }
+
+    //Brings the given game of the replay's level into the state the recording started in, and gives it the same gravity application
+    //and pause of interval gravity.
+    public void restoreInitialState(PushRock pushRock) {
+        if (pushRock.levelHash() != this.levelHash) {
+            throw new IllegalArgumentException("The replay was recorded on the level '" + this.levelName + "', or the level has been changed since the replay was recorded.");
+        }
+        if (this.initialState.length != pushRock.getCompactStateLength()) {
+            throw new IllegalArgumentException("Replay is corrupted: the state length does not match the level '" + this.levelName + "'.");
+        }
+        //The initial state is checked against its hash before the game is changed, so a corrupted replay leaves the game as it was.
+        if (pushRock.stateHashOf(this.initialState) != this.initialStateHash) {
+            throw new IllegalArgumentException("Replay is corrupted: the initial state does not match its state hash.");
+        }
+        pushRock.setCompactState(this.initialState);
+        pushRock.setMoveCount(this.initialMoveCount);
+        if (this.gravityApplication == GRAVITY_APPLICATION_MANUAL) {
+            pushRock.setGravityApplicationManual();
+        }
+        else if (this.gravityApplication == GRAVITY_APPLICATION_MOVE_INPUT) {
+            pushRock.setGravityApplicationMoveInput();
+        }
+        else {
+            pushRock.setGravityApplicationInterval();
+        }
+        pushRock.setIntervalGravityPause(this.intervalPause != INTERVAL_PAUSE_NONE, this.intervalPause == INTERVAL_PAUSE_STARTED);
+    }
+
+    //Decodes the commands in the order they were recorded, and passes each to the given consumer. Decoding allocates nothing, as the
+    //commands are the shared instances of GameCommand.
+    public void forEachCommand(Consumer<GameCommand> consumer) {
+        int index = 0;
+        while (index < this.commands.length) {
+            int header = 0;
+            int shift = 0;
+            byte value;
+            do {
+                value = this.commands[index++];
+                header |= (value & 0x7F) << shift;
+                shift += 7;
+            } while (value < 0);
+            int length = header >>> 2;
+            switch (header & 3) {
+                case KIND_MOVES:
+                    for (int i = 0; i < length; i++) {
+                        consumer.accept(GameCommand.move(DIRECTIONS[(this.commands[index + (i >> 2)] >> ((i & 3) << 1)) & 3]));
+                    }
+                    index += (length + 3) >> 2;
+                    break;
+                case KIND_PORTAL_ONE:
+                case KIND_PORTAL_TWO:
+                    GameCommand placePortal = GameCommand.placePortal((header & 3) == KIND_PORTAL_ONE);
+                    for (int i = 0; i < length; i++) {
+                        consumer.accept(placePortal);
+                    }
+                    break;
+                default:
+                    consumer.accept(OTHER_COMMANDS[length]);
+            }
+        }
+    }
+
+    public void write(OutputStream outputStream) {
+        var checkedOutputStream = new CheckedOutputStream(outputStream, new CRC32());
+        var dataOutputStream = new DataOutputStream(checkedOutputStream);
+        try {
+            dataOutputStream.writeInt(MAGIC);
+            dataOutputStream.writeByte(FORMAT_VERSION);
+            dataOutputStream.writeUTF(this.levelName);
+            dataOutputStream.writeLong(this.levelHash);
+            dataOutputStream.writeByte(this.gravityApplication);
+            dataOutputStream.writeByte(this.intervalPause);
+            writeVarint(dataOutputStream, this.initialMoveCount);
+            writeVarint(dataOutputStream, this.initialState.length);
+            for (int value : this.initialState) {
+                //Zigzag encoding keeps the -1 of a portal that is not placed at a single byte.
+                writeVarint(dataOutputStream, (value << 1) ^ (value >> 31));
+            }
+            dataOutputStream.writeLong(this.initialStateHash);
+            writeVarint(dataOutputStream, this.commandCount);
+            writeVarint(dataOutputStream, this.commands.length);
+            dataOutputStream.write(this.commands);
+            writeVarint(dataOutputStream, this.finalMoveCount);
+            dataOutputStream.writeLong(this.finalStateHash);
+            dataOutputStream.writeInt((int) checkedOutputStream.getChecksum().getValue());
+            dataOutputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Replay read(InputStream inputStream) {
+        var checkedInputStream = new CheckedInputStream(inputStream, new CRC32());
+        var dataInputStream = new DataInputStream(checkedInputStream);
+        try {
+            if (dataInputStream.readInt() != MAGIC) {
+                throw new IllegalArgumentException("File is not a replay: the file does not start with the expected header.");
+            }
+            int version = dataInputStream.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Replay format version " + version + " is not supported, expected version " + FORMAT_VERSION + ".");
+            }
+            String levelName = dataInputStream.readUTF();
+            long levelHash = dataInputStream.readLong();
+            int gravityApplication = dataInputStream.readUnsignedByte();
+            if (gravityApplication > GRAVITY_APPLICATION_INTERVAL) {
+                throw new IllegalArgumentException("Replay is corrupted: unknown gravity application " + gravityApplication + ".");
+            }
+            int intervalPause = dataInputStream.readUnsignedByte();
+            if (intervalPause > INTERVAL_PAUSE_STARTED) {
+                throw new IllegalArgumentException("Replay is corrupted: unknown interval pause " + intervalPause + ".");
+            }
+            int initialMoveCount = readVarint(dataInputStream);
+            int[] initialState = new int[readLength(dataInputStream)];
+            for (int i = 0; i < initialState.length; i++) {
+                int value = readVarint(dataInputStream);
+                initialState[i] = (value >>> 1) ^ -(value & 1);
+            }
+            long initialStateHash = dataInputStream.readLong();
+            int commandCount = readLength(dataInputStream);
+            byte[] commands = new byte[readLength(dataInputStream)];
+            dataInputStream.readFully(commands);
+            int finalMoveCount = readVarint(dataInputStream);
+            long finalStateHash = dataInputStream.readLong();
+            int expectedChecksum = (int) checkedInputStream.getChecksum().getValue();
+            if (dataInputStream.readInt() != expectedChecksum) {
+                throw new IllegalArgumentException("Replay is corrupted: the checksum does not match its content.");
+            }
+            Replay replay = new Replay(levelName, levelHash, gravityApplication, intervalPause, initialMoveCount, initialState, initialStateHash, commandCount, commands, finalMoveCount, finalStateHash);
+            replay.checkCommands();
+            return replay;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Replay is corrupted: the file ended unexpectedly.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Checks that the encoded commands can be decoded, and that they hold as many commands as the replay says, so that playing a replay
+    //never fails half way through because of a corrupted file.
+    private void checkCommands() {
+        int[] commandCount = new int[1];
+        try {
+            this.forEachCommand(command -> commandCount[0]++);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Replay is corrupted: the commands could not be decoded.", e);
+        }
+        if (commandCount[0] != this.commandCount) {
+            throw new IllegalArgumentException("Replay is corrupted: expected " + this.commandCount + " commands, but decoded " + commandCount[0] + ".");
+        }
+    }
+
+    private static int readLength(DataInputStream dataInputStream) throws IOException {
+        int length = readVarint(dataInputStream);
+        if (length < 0) {
+            throw new IllegalArgumentException("Replay is corrupted: a length was negative.");
+        }
+        return length;
+    }
+    static void writeVarint(DataOutputStream dataOutputStream, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            dataOutputStream.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        dataOutputStream.writeByte(value);
+    }
+    static int readVarint(DataInputStream dataInputStream) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = dataInputStream.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Replay is corrupted: a varint was longer than 5 bytes.");
+    }
+}
@@ -0,0 +1,147 @@
+package pushrock.replay;
+
+import java.io.ByteArrayOutputStream;
+
+import pushrock.model.GameCommand;
+import pushrock.model.GameSnapshot;
+import pushrock.model.IObserverGameCommands;
+import pushrock.model.PushRock;
+
+//Records the commands applied to a game, encoded as described in Replay. The recording starts in the state the game is in when the
+//recorder is made, and is usually fed by a GameLoop, which it observes:
+//  ReplayRecorder recorder = new ReplayRecorder(pushRock);
+//  GameLoop gameLoop = new GameLoop(pushRock);
+//  gameLoop.addCommandObserver(recorder);
+//  gameLoop.start();
+//The recorder reads and changes the game when it is made, so for a game owned by a GameLoop it must be made before the loop makes
+//its first step, with start() or step(), as only the loop may touch the game from then on.
+//Commands can also be recorded by hand, see record(..), for games applied directly. Every command has to be recorded, also the ones
+//the game refused, as a refused command is refused again when the replay is played.
+//The gravity application and the pause of interval gravity are recorded with the initial state, so a recording may start while
+//interval gravity is paused, or while a pause is requested but has not started.
+//A replay is played from a restored state, which has nothing to undo or redo, so the recorder clears the undo and redo history of
+//the game when it is made. An undo recorded afterwards can then only revert actions that were recorded as well.
+public class ReplayRecorder implements IObserverGameCommands {
+    //Runs of moves are cut at this length, which bounds the memory held by the run in progress.
+    private static final int MAX_MOVE_RUN_LENGTH = 1 << 12;
+
+    private final String levelName;
+    private final long levelHash;
+    private final int gravityApplication;
+    private final int intervalPause;
+    private final int initialMoveCount;
+    private final int[] initialState;
+    private final long initialStateHash;
+    private final ByteArrayOutputStream commands = new ByteArrayOutputStream();
+    private int commandCount;
+    //The run in progress, which is only written to the commands once a command of another kind, or of the other portal, is recorded.
+    private int runKind = -1;
+    private int runLength;
+    private final byte[] moveRun = new byte[MAX_MOVE_RUN_LENGTH / 4];
+
+    public ReplayRecorder(PushRock pushRock) {
+        if (pushRock == null) {
+            throw new IllegalArgumentException("Game can not be null.");
+        }
+        this.levelName = pushRock.getLevelName();
+        this.levelHash = pushRock.levelHash();
+        if (pushRock.isGravityApplicationManual()) {
+            this.gravityApplication = Replay.GRAVITY_APPLICATION_MANUAL;
+        }
+        else if (pushRock.isGravityApplicationMoveInput()) {
+            this.gravityApplication = Replay.GRAVITY_APPLICATION_MOVE_INPUT;
+        }
+        else {
+            this.gravityApplication = Replay.GRAVITY_APPLICATION_INTERVAL;
+        }
+        if (pushRock.isIntervalGravityPauseStarted()) {
+            this.intervalPause = Replay.INTERVAL_PAUSE_STARTED;
+        }
+        else if (pushRock.isIntervalGravityPaused()) {
+            this.intervalPause = Replay.INTERVAL_PAUSE_REQUESTED;
+        }
+        else {
+            this.intervalPause = Replay.INTERVAL_PAUSE_NONE;
+        }
+        this.initialMoveCount = pushRock.getMoveCount();
+        this.initialState = pushRock.getCompactState();
+        this.initialStateHash = pushRock.stateHash();
+        pushRock.clearUndoHistory();
+    }
+
+    @Override
+    public void commandApplied(long step, GameCommand command) {
+        this.record(command);
+    }
+
+    //Records the command as the next one applied to the game. May be called from any thread, one at a time.
+    public synchronized void record(GameCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("Command can not be null.");
+        }
+        int kind;
+        switch (command.getType()) {
+            case MOVE:
+                kind = Replay.KIND_MOVES;
+                break;
+            case PLACE_PORTAL:
+                kind = command.getFlag() ? Replay.KIND_PORTAL_ONE : Replay.KIND_PORTAL_TWO;
+                break;
+            default:
+                kind = Replay.KIND_OTHER;
+        }
+        if (kind != this.runKind || this.runLength == MAX_MOVE_RUN_LENGTH) {
+            this.writeRun();
+            this.runKind = kind;
+        }
+        this.commandCount++;
+        if (kind == Replay.KIND_OTHER) {
+            //Other commands are not run together, and the length of their run holds their code instead.
+            this.runLength = Replay.getOtherCommandCode(command);
+            this.writeRun();
+            return;
+        }
+        if (kind == Replay.KIND_MOVES) {
+            if ((this.runLength & 3) == 0) {
+                this.moveRun[this.runLength >> 2] = 0;
+            }
+            this.moveRun[this.runLength >> 2] |= command.getDirection().ordinal() << ((this.runLength & 3) << 1);
+        }
+        this.runLength++;
+    }
+
+    public synchronized int getCommandCount() {
+        return this.commandCount;
+    }
+
+    //Returns a replay of every command recorded so far, ending in the state of the given game. Recording may go on afterwards.
+    public synchronized Replay toReplay(PushRock pushRock) {
+        return this.toReplay(pushRock.getMoveCount(), pushRock.stateHash());
+    }
+    //Returns a replay of every command recorded so far, ending in the state of the given snapshot of the game loop that was recorded.
+    public synchronized Replay toReplay(GameSnapshot snapshot) {
+        return this.toReplay(snapshot.getMoveCount(), snapshot.stateHash());
+    }
+    private Replay toReplay(int finalMoveCount, long finalStateHash) {
+        this.writeRun();
+        return new Replay(this.levelName, this.levelHash, this.gravityApplication, this.intervalPause, this.initialMoveCount, this.initialState.clone(), this.initialStateHash,
+                this.commandCount, this.commands.toByteArray(), finalMoveCount, finalStateHash);
+    }
+
+    private void writeRun() {
+        if (this.runKind == -1) {
+            return;
+        }
+        int header = (this.runLength << 2) | this.runKind;
+        while ((header & ~0x7F) != 0) {
+            this.commands.write((header & 0x7F) | 0x80);
+            header >>>= 7;
+        }
+        this.commands.write(header);
+        if (this.runKind == Replay.KIND_MOVES) {
+            this.commands.write(this.moveRun, 0, (this.runLength + 3) >> 2);
+        }
+        this.runKind = -1;
+        this.runLength = 0;
+    }
+}
@@ -0,0 +1,62 @@
+package pushrock.replay;
+
+//The outcome of playing a replay: whether the game ended in the state it was recorded to end in, and statistics about the playback.
+public class ReplayResult {
+
+    private final int commandCount;
+    private final int moveCommandCount;
+    private final int refusedCommandCount;
+    private final long elapsedNanos;
+    private final int finalMoveCount;
+    private final long finalStateHash;
+    private final boolean isMatch;
+
+    public ReplayResult(int commandCount, int moveCommandCount, int refusedCommandCount, long elapsedNanos, int finalMoveCount, long finalStateHash, boolean isMatch) {
+        this.commandCount = commandCount;
+        this.moveCommandCount = moveCommandCount;
+        this.refusedCommandCount = refusedCommandCount;
+        this.elapsedNanos = elapsedNanos;
+        this.finalMoveCount = finalMoveCount;
+        this.finalStateHash = finalStateHash;
+        this.isMatch = isMatch;
+    }
+
+    public int getCommandCount() {
+        return this.commandCount;
+    }
+    //Returns the number of commands that moved, or tried to move, the player.
+    public int getMoveCommandCount() {
+        return this.moveCommandCount;
+    }
+    //Returns the number of commands the game refused, such as moves made after the game was over.
+    public int getRefusedCommandCount() {
+        return this.refusedCommandCount;
+    }
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+    public double getMovesPerSecond() {
+        if (this.elapsedNanos == 0) {
+            return 0;
+        }
+        return this.moveCommandCount * 1_000_000_000.0 / this.elapsedNanos;
+    }
+    public int getFinalMoveCount() {
+        return this.finalMoveCount;
+    }
+    public long getFinalStateHash() {
+        return this.finalStateHash;
+    }
+    //Returns true if the game ended with the move count and state hash the replay was recorded to end with. A replay that does not
+    //match has been played on an engine that behaves differently from the one it was recorded on.
+    public boolean isMatch() {
+        return this.isMatch;
+    }
+
+    @Override
+    public String toString() {
+        String outcome = this.isMatch ? "match" : String.format("MISMATCH (ended at move count %d, state hash %016x)", this.finalMoveCount, this.finalStateHash);
+        return String.format("%s, %d commands (%d moves, %d refused) in %.3f s (%.0f moves/s)", outcome, this.commandCount, this.moveCommandCount,
+                this.refusedCommandCount, this.elapsedNanos / 1e9, this.getMovesPerSecond());
+    }
+}
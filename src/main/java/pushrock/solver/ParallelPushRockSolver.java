@@ -0,0 +1,244 @@
+package pushrock.solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import pushrock.model.IDiagnosticsSink;
+import pushrock.model.PushRock;
+
+//A multi-threaded version of PushRockSolver, for levels with too many states to search on a single core. It searches the same graph,
+//moves and portal placements from every state with gravity applied on move input, and finds a solution with the same lowest
+//possible move count.
+//The search runs one move count at a time. All states reached with the same move count form a layer, which is split in halves on a
+//ForkJoinPool until each task holds a handful of states, so that idle workers steal the work of busy ones. A task expands its states
+//and follows the free actions (turning and placing portals) from them itself, as they stay within the layer, while states reached by a
+//move are handed on to the next layer. Once every task of a layer is done, the first completed game found is an optimal solution.
+//The workers share a single visited set keyed by the 64-bit state hash of PushRock.stateHash(), which like the search states the
+//nodes hold leaves out the direction the rocks face (see PushRock.getSearchState()). A state is claimed in the set when it
+//is about to be expanded rather than when it is reached, so that a state reached by a move is never claimed before a free path to it
+//within the current layer has been followed. Claiming is atomic, so no state is ever expanded twice, and every state that loses the
+//claim, because another path on this or another worker reached it first, is counted as a duplicate node.
+//Two different states with the same 64-bit hash would be taken for one another, which is too unlikely to matter for the number of
+//states a search can hold in memory.
+public class ParallelPushRockSolver {
+
+    //The number of states a task expands without splitting further. Expanding a state steps the game six times, so a few states are
+    //already enough work to outweigh the cost of a task.
+    private static final int LEAF_SIZE = 8;
+
+    private final ForkJoinPool pool;
+    private final long maxExpandedNodes;
+
+    //Searches on the common pool, which has a worker per core.
+    public ParallelPushRockSolver() {
+        this(ForkJoinPool.commonPool(), PushRockSolver.DEFAULT_MAX_EXPANDED_NODES);
+    }
+    public ParallelPushRockSolver(ForkJoinPool pool, long maxExpandedNodes) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool can not be null.");
+        }
+        if (maxExpandedNodes < 1) {
+            throw new IllegalArgumentException("The solver must be allowed to expand at least one node, but the limit was: " + maxExpandedNodes);
+        }
+        this.pool = pool;
+        this.maxExpandedNodes = maxExpandedNodes;
+    }
+
+    //A state in the search, linked to the state it was reached from so the solution can be traced back once a goal is found.
+    //The move count of a node is the move count of its layer, and is not stored.
+    private static class Node {
+        private final int[] state;
+        private final long stateHash;
+        private final Node parent;
+        private final SolverAction action;
+
+        private Node(int[] state, long stateHash, Node parent, SolverAction action) {
+            this.state = state;
+            this.stateHash = stateHash;
+            this.parent = parent;
+            this.action = action;
+        }
+        private boolean isGameOver() {
+            return (this.state[0] & 1) == 1;
+        }
+    }
+
+    //The state shared by the workers of a single solve(..) call.
+    private class Search {
+        private final PushRock template;
+        //Every task steps states on a copy of the game of its own, as games are not thread safe. A task takes an idle copy when it
+        //starts and hands it back when it is done, so there are never more copies than tasks running at once, and they are all let go
+        //of along with the search, rather than staying behind on the threads of a pool that outlives it.
+        private final ConcurrentLinkedQueue<PushRock> idleSimulators = new ConcurrentLinkedQueue<>();
+        private final StripedStateHashSet visited;
+        private final AtomicLong nodesExpanded = new AtomicLong();
+        private final LongAdder duplicateNodes = new LongAdder();
+        private final AtomicReference<Node> goal = new AtomicReference<>();
+        private volatile boolean isLimitReached;
+        //The states reached by a move, in a list per task, which together make up the next layer.
+        private final ConcurrentLinkedQueue<List<Node>> nextLayer = new ConcurrentLinkedQueue<>();
+
+        private Search(PushRock pushRock) {
+            this.template = pushRock.getCopy();
+            this.template.setDiagnosticsSink(IDiagnosticsSink.silent());
+            this.template.setGravityApplicationMoveInput();
+            this.visited = new StripedStateHashSet(pool.getParallelism() * 16);
+        }
+        private PushRock takeSimulator() {
+            PushRock simulator = this.idleSimulators.poll();
+            if (simulator != null) {
+                return simulator;
+            }
+            synchronized (this.template) {
+                return this.template.getCopy();
+            }
+        }
+        private boolean isStopped() {
+            return this.goal.get() != null || this.isLimitReached;
+        }
+
+        private void expandRange(Node[] layer, int from, int to) {
+            PushRock simulator = this.takeSimulator();
+            List<Node> reachedByMove = new ArrayList<>();
+            Deque<Node> reachedForFree = new ArrayDeque<>();
+            for (int i = from; i < to && !this.isStopped(); i++) {
+                reachedForFree.push(layer[i]);
+                while (!reachedForFree.isEmpty() && !this.isStopped()) {
+                    this.expand(reachedForFree.pop(), simulator, reachedForFree, reachedByMove);
+                }
+            }
+            this.idleSimulators.add(simulator);
+            if (!reachedByMove.isEmpty()) {
+                this.nextLayer.add(reachedByMove);
+            }
+        }
+
+        private void expand(Node node, PushRock simulator, Deque<Node> reachedForFree, List<Node> reachedByMove) {
+            if (!this.visited.add(node.stateHash)) {
+                this.duplicateNodes.increment();
+                return;
+            }
+            if (node.isGameOver()) {
+                this.goal.compareAndSet(null, node);
+                return;
+            }
+            if (this.nodesExpanded.getAndIncrement() >= maxExpandedNodes) {
+                this.isLimitReached = true;
+                return;
+            }
+            for (SolverAction action : SolverAction.values()) {
+                simulator.setCompactState(node.state);
+                //Portal placements the game would reject are skipped without trying them.
+                if (!action.isMove() && !simulator.canPlacePortal()) {
+                    continue;
+                }
+                int moveCountBefore = simulator.getMoveCount();
+                action.apply(simulator);
+                long nextStateHash = simulator.stateHash();
+                if (nextStateHash == node.stateHash) {
+                    continue;
+                }
+                //States that are already claimed are dropped right away. The check is repeated when the state is claimed, as another
+                //worker may claim it in between.
+                if (this.visited.contains(nextStateHash)) {
+                    this.duplicateNodes.increment();
+                    continue;
+                }
+                Node next = new Node(simulator.getSearchState(), nextStateHash, node, action);
+                if (simulator.getMoveCount() != moveCountBefore) {
+                    reachedByMove.add(next);
+                }
+                else {
+                    reachedForFree.push(next);
+                }
+            }
+        }
+
+        private Node[] takeNextLayer() {
+            int size = 0;
+            for (List<Node> nodes : this.nextLayer) {
+                size += nodes.size();
+            }
+            Node[] layer = new Node[size];
+            int index = 0;
+            for (List<Node> nodes : this.nextLayer) {
+                for (Node node : nodes) {
+                    layer[index++] = node;
+                }
+            }
+            this.nextLayer.clear();
+            return layer;
+        }
+    }
+
+    private static class LayerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final Node[] layer;
+        private final int from;
+        private final int to;
+
+        private LayerTask(Search search, Node[] layer, int from, int to) {
+            this.search = search;
+            this.layer = layer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= LEAF_SIZE || this.search.isStopped()) {
+                this.search.expandRange(this.layer, this.from, this.to);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new LayerTask(this.search, this.layer, this.from, middle), new LayerTask(this.search, this.layer, middle, this.to));
+        }
+    }
+
+    private List<SolverAction> traceSolution(Node goal) {
+        LinkedList<SolverAction> solution = new LinkedList<>();
+        for (Node node = goal; node.parent != null; node = node.parent) {
+            solution.addFirst(node.action);
+        }
+        return solution;
+    }
+
+    //Searches for a solution from the current state of the given game. The given game is left unchanged.
+    public SolverResult solve(PushRock pushRock) {
+        long startTime = System.nanoTime();
+        Search search = new Search(pushRock);
+        Node[] layer = {new Node(search.template.getSearchState(), search.template.stateHash(), null, null)};
+        int moveCount = pushRock.getMoveCount();
+
+        while (layer.length > 0) {
+            this.pool.invoke(new LayerTask(search, layer, 0, layer.length));
+            //The limit may be passed by a few nodes when several workers reach it at once, only those within it were expanded.
+            long nodesExpanded = Math.min(search.nodesExpanded.get(), this.maxExpandedNodes);
+            Node goal = search.goal.get();
+            if (goal != null) {
+                return this.createResult(this.traceSolution(goal), moveCount, nodesExpanded, startTime, false, search);
+            }
+            if (search.isLimitReached) {
+                return this.createResult(null, -1, nodesExpanded, startTime, false, search);
+            }
+            layer = search.takeNextLayer();
+            moveCount++;
+        }
+        return this.createResult(null, -1, search.nodesExpanded.get(), startTime, true, search);
+    }
+
+    private SolverResult createResult(List<SolverAction> solution, int moveCount, long nodesExpanded, long startTime, boolean isSearchExhausted, Search search) {
+        return new SolverResult(solution, moveCount, nodesExpanded, System.nanoTime() - startTime, isSearchExhausted, search.duplicateNodes.sum(), this.pool.getParallelism());
+    }
+}
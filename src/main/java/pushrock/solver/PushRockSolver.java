@@ -0,0 +1,186 @@
+package pushrock.solver;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import pushrock.fxui.SaveHandler;
+import pushrock.model.IDiagnosticsSink;
+import pushrock.model.PushRock;
+
+//Searches for a solution with the lowest possible move count for a PushRock game.
+//Only successful moves increase the move count, while turning on the spot and placing portals are free. The search is therefore a
+//0-1 breadth first search: actions that move the player cost one and are queued at the back, free actions are queued at the front.
+//States are popped in order of move count, so the first completed game that is popped is an optimal solution.
+//Every state is stored in the compact form given by PushRock.getSearchState(), and a single copy of the game is used to step
+//from one state to the next, so the search never builds a block object graph per state. The search state leaves out the direction
+//the rocks face, which never changes how the game plays, so states that only differ in it are searched once.
+//The copy applies gravity on move input: every action is followed by a gravity step, so that blocks in the gravity plane fall as
+//the search goes. Without it the copy would wait for interval notifications that never come, and unsupported blocks would float.
+//Solutions are thus solutions for a game that applies gravity on move input, which is the same as any other game for levels
+//without a gravity plane.
+public class PushRockSolver {
+
+    public static final long DEFAULT_MAX_EXPANDED_NODES = 5_000_000;
+
+    private final long maxExpandedNodes;
+
+    public PushRockSolver() {
+        this(DEFAULT_MAX_EXPANDED_NODES);
+    }
+    public PushRockSolver(long maxExpandedNodes) {
+        if (maxExpandedNodes < 1) {
+            throw new IllegalArgumentException("The solver must be allowed to expand at least one node, but the limit was: " + maxExpandedNodes);
+        }
+        this.maxExpandedNodes = maxExpandedNodes;
+    }
+
+    //A state in the search, linked to the state it was reached from so the solution can be traced back once a goal is found.
+    private static class Node {
+        private final int[] state;
+        private final Node parent;
+        private final SolverAction action;
+        private final int moveCount;
+
+        private Node(int[] state, Node parent, SolverAction action, int moveCount) {
+            this.state = state;
+            this.parent = parent;
+            this.action = action;
+            this.moveCount = moveCount;
+        }
+        private boolean isGameOver() {
+            return (this.state[0] & 1) == 1;
+        }
+    }
+
+    //Wraps a compact state so it can be used as a hash map key.
+    private static class StateKey {
+        private final int[] state;
+        private final int hashCode;
+
+        private StateKey(int[] state) {
+            this.state = state;
+            this.hashCode = Arrays.hashCode(state);
+        }
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateKey && Arrays.equals(this.state, ((StateKey) other).state);
+        }
+    }
+
+    //Searches for a solution from the current state of the given game. The given game is left unchanged.
+    public SolverResult solve(PushRock pushRock) {
+        long startTime = System.nanoTime();
+        PushRock simulator = pushRock.getCopy();
+        simulator.setDiagnosticsSink(IDiagnosticsSink.silent());
+        simulator.setGravityApplicationMoveInput();
+        int startMoveCount = pushRock.getMoveCount();
+
+        Deque<Node> frontier = new ArrayDeque<>();
+        Map<StateKey, Integer> bestMoveCounts = new HashMap<>();
+        Node start = new Node(simulator.getSearchState(), null, null, startMoveCount);
+        frontier.add(start);
+        bestMoveCounts.put(new StateKey(start.state), startMoveCount);
+        long nodesExpanded = 0;
+        long duplicateNodes = 0;
+
+        while (!frontier.isEmpty()) {
+            Node node = frontier.pollFirst();
+            //A state can be queued more than once if a cheaper path to it was found later, only the cheapest entry is expanded.
+            if (bestMoveCounts.get(new StateKey(node.state)) < node.moveCount) {
+                duplicateNodes++;
+                continue;
+            }
+            if (node.isGameOver()) {
+                return new SolverResult(this.traceSolution(node), node.moveCount, nodesExpanded, System.nanoTime() - startTime, false, duplicateNodes, 1);
+            }
+            if (nodesExpanded >= this.maxExpandedNodes) {
+                return new SolverResult(null, -1, nodesExpanded, System.nanoTime() - startTime, false, duplicateNodes, 1);
+            }
+            nodesExpanded++;
+            for (SolverAction action : SolverAction.values()) {
+                simulator.setCompactState(node.state);
+                //Portal placements the game would reject are skipped without trying them.
+                if (!action.isMove() && !simulator.canPlacePortal()) {
+                    continue;
+                }
+                int moveCountBefore = simulator.getMoveCount();
+                action.apply(simulator);
+                int[] nextState = simulator.getSearchState();
+                if (Arrays.equals(nextState, node.state)) {
+                    continue;
+                }
+                boolean hasMoved = simulator.getMoveCount() != moveCountBefore;
+                int nextMoveCount = node.moveCount + (hasMoved ? 1 : 0);
+                StateKey nextKey = new StateKey(nextState);
+                Integer bestMoveCount = bestMoveCounts.get(nextKey);
+                if (bestMoveCount != null && bestMoveCount <= nextMoveCount) {
+                    duplicateNodes++;
+                    continue;
+                }
+                bestMoveCounts.put(nextKey, nextMoveCount);
+                Node next = new Node(nextState, node, action, nextMoveCount);
+                if (hasMoved) {
+                    frontier.addLast(next);
+                }
+                else {
+                    frontier.addFirst(next);
+                }
+            }
+        }
+        return new SolverResult(null, -1, nodesExpanded, System.nanoTime() - startTime, true, duplicateNodes, 1);
+    }
+
+    private List<SolverAction> traceSolution(Node goal) {
+        LinkedList<SolverAction> solution = new LinkedList<>();
+        for (Node node = goal; node.parent != null; node = node.parent) {
+            solution.addFirst(node.action);
+        }
+        return solution;
+    }
+
+    //Solves each of the given levels from the levels resource folder and prints the results, e.g. to check that shipped levels are
+    //solvable and to compute their par scores. The option --parallel solves with ParallelPushRockSolver on the common pool, and
+    //--parallel=N on a pool of N workers.
+    public static void main(String[] args) throws IOException {
+        PushRock.setDefaultDiagnosticsSink(IDiagnosticsSink.silent());
+        SaveHandler saveHandler = new SaveHandler();
+        List<String> levelNames = new ArrayList<>();
+        Function<PushRock, SolverResult> solver = new PushRockSolver()::solve;
+        for (String argument : args) {
+            if (argument.equals("--parallel")) {
+                solver = new ParallelPushRockSolver()::solve;
+            }
+            else if (argument.startsWith("--parallel=")) {
+                ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(argument.substring("--parallel=".length())));
+                solver = new ParallelPushRockSolver(pool, DEFAULT_MAX_EXPANDED_NODES)::solve;
+            }
+            else {
+                levelNames.add(argument);
+            }
+        }
+        if (levelNames.isEmpty()) {
+            levelNames = saveHandler.getLevelNames();
+        }
+        for (String levelName : levelNames) {
+            try {
+                PushRock pushRock = saveHandler.loadGame(levelName, false);
+                System.out.println(levelName + ": " + solver.apply(pushRock));
+            } catch (IllegalArgumentException e) {
+                System.out.println(levelName + ": could not be loaded, " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package pushrock.solver;
+
+import pushrock.model.Direction;
+import pushrock.model.PushRock;
+
+//The inputs a player can give a game, and thus the edges of the search graph explored by the solver.
+public enum SolverAction {
+    UP(Direction.UP),
+    DOWN(Direction.DOWN),
+    LEFT(Direction.LEFT),
+    RIGHT(Direction.RIGHT),
+    PORTAL_ONE(null),
+    PORTAL_TWO(null);
+
+    private final Direction direction;
+
+    private SolverAction(Direction direction) {
+        this.direction = direction;
+    }
+
+    //Returns the direction given to PushRock.movePlayer(..) for move actions, and null for portal placements.
+    public Direction getDirection() {
+        return this.direction;
+    }
+    public boolean isMove() {
+        return this.direction != null;
+    }
+
+    //Applies this action to the given game the same way the game's controller would. Inputs the game rejects by throwing
+    //IllegalStateException (moving or aiming out of bounds, aiming at a teleporter) are swallowed, as the controller does the same
+    //and any change made before the rejection, such as the player turning, remains.
+    public void apply(PushRock pushRock) {
+        try {
+            switch (this) {
+                case PORTAL_ONE:
+                    pushRock.placePortal(true);
+                    break;
+                case PORTAL_TWO:
+                    pushRock.placePortal(false);
+                    break;
+                default:
+                    pushRock.movePlayer(this.direction);
+                    break;
+            }
+        } catch (IllegalStateException e) {
+            //The input was rejected by the game.
+        }
+    }
+}
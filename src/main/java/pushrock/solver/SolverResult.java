@@ -0,0 +1,77 @@
+package pushrock.solver;
+
+import java.util.Collections;
+import java.util.List;
+
+//The outcome of a solver run: the solution if one was found, and statistics about the search.
+public class SolverResult {
+
+    private final List<SolverAction> solution;
+    private final int moveCount;
+    private final long nodesExpanded;
+    private final long elapsedNanos;
+    private final boolean isSearchExhausted;
+    private final long duplicateNodes;
+    private final int parallelism;
+
+    public SolverResult(List<SolverAction> solution, int moveCount, long nodesExpanded, long elapsedNanos, boolean isSearchExhausted, long duplicateNodes, int parallelism) {
+        this.solution = solution == null ? null : Collections.unmodifiableList(solution);
+        this.moveCount = moveCount;
+        this.nodesExpanded = nodesExpanded;
+        this.elapsedNanos = elapsedNanos;
+        this.isSearchExhausted = isSearchExhausted;
+        this.duplicateNodes = duplicateNodes;
+        this.parallelism = parallelism;
+    }
+
+    public boolean isSolved() {
+        return this.solution != null;
+    }
+    //Returns the sequence of actions that completes the level, or null if no solution was found.
+    public List<SolverAction> getSolution() {
+        return this.solution;
+    }
+    //Returns the move count the solution ends with, which is the par score of the level, or -1 if no solution was found.
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+    public long getNodesExpanded() {
+        return this.nodesExpanded;
+    }
+    //Returns the number of states that were reached, but thrown away without being expanded, as the same state had already been
+    //reached by a path at least as short. This is the work spent on finding states more than once.
+    public long getDuplicateNodes() {
+        return this.duplicateNodes;
+    }
+    //Returns the duplicate nodes as a fraction of all nodes reached, expanded or not.
+    public double getDuplicateRatio() {
+        long nodesReached = this.nodesExpanded + this.duplicateNodes;
+        return nodesReached == 0 ? 0 : (double) this.duplicateNodes / nodesReached;
+    }
+    //Returns the number of workers the search ran on, which is 1 for PushRockSolver.
+    public int getParallelism() {
+        return this.parallelism;
+    }
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+    public double getNodesPerSecond() {
+        if (this.elapsedNanos == 0) {
+            return 0;
+        }
+        return this.nodesExpanded * 1_000_000_000.0 / this.elapsedNanos;
+    }
+    //Returns true if every reachable state was explored, in which case an unsolved result proves the level is unsolvable.
+    //Returns false if the search was cut short by its node limit.
+    public boolean isSearchExhausted() {
+        return this.isSearchExhausted;
+    }
+
+    @Override
+    public String toString() {
+        String outcome = this.isSolved() ? "solved in " + this.moveCount + " moves (" + this.solution.size() + " actions)" 
+                       : (this.isSearchExhausted ? "unsolvable" : "no solution within node limit");
+        return String.format("%s, %d nodes expanded in %.3f s (%.0f nodes/s, %d workers), %d duplicate nodes (%.1f%%)", outcome, this.nodesExpanded,
+            this.elapsedNanos / 1e9, this.getNodesPerSecond(), this.parallelism, this.duplicateNodes, this.getDuplicateRatio() * 100);
+    }
+}
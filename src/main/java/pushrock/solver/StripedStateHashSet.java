@@ -0,0 +1,104 @@
+package pushrock.solver;
+
+//A concurrent set of 64-bit state hashes (see PushRock.stateHash()), used as the visited set shared by the workers of
+//ParallelPushRockSolver.
+//The set is split into stripes by the high bits of the hash, and each stripe is an open addressing table of longs guarded by its own
+//lock, so two workers only wait on each other when they touch the same stripe at the same time. With many more stripes than workers
+//that is rare, and a visited state takes up 8 bytes rather than a boxed key holding the whole compact state.
+class StripedStateHashSet {
+
+    //Free slots hold 0, so a hash that happens to be 0 is stored as another value instead.
+    private static final long EMPTY = 0;
+    private static final long ZERO_HASH = 0x9E3779B97F4A7C15L;
+    private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    //Creates a set with at least the given number of stripes, rounded up to a power of two.
+    StripedStateHashSet(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("The set must have at least one stripe, but was given: " + stripeCount);
+        }
+        int stripeBits = 32 - Integer.numberOfLeadingZeros(stripeCount - 1);
+        this.stripes = new Stripe[1 << stripeBits];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        //The stripe is picked by the top stripeBits bits of the hash. A shift by 64 leaves a long unchanged rather than making it 0,
+        //so a set with a single stripe does not shift at all, see stripeOf(..).
+        this.stripeShift = 64 - stripeBits;
+    }
+
+    private static class Stripe {
+        private long[] table = new long[INITIAL_STRIPE_CAPACITY];
+        private int size;
+
+        //Zobrist hashes are evenly spread over all their bits, so the low bits are used as the slot without mixing them first.
+        private int indexOf(long hash) {
+            int mask = this.table.length - 1;
+            int index = (int) hash & mask;
+            while (this.table[index] != EMPTY && this.table[index] != hash) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+        private synchronized boolean add(long hash) {
+            int index = this.indexOf(hash);
+            if (this.table[index] == hash) {
+                return false;
+            }
+            this.table[index] = hash;
+            this.size++;
+            //The table is kept at most half full, so that probes stay short.
+            if (this.size * 2 > this.table.length) {
+                this.grow();
+            }
+            return true;
+        }
+        private synchronized boolean contains(long hash) {
+            return this.table[this.indexOf(hash)] == hash;
+        }
+        private synchronized int size() {
+            return this.size;
+        }
+        private void grow() {
+            long[] oldTable = this.table;
+            this.table = new long[oldTable.length * 2];
+            for (long hash : oldTable) {
+                if (hash != EMPTY) {
+                    this.table[this.indexOf(hash)] = hash;
+                }
+            }
+        }
+    }
+
+    private Stripe stripeOf(long hash) {
+        return this.stripes.length == 1 ? this.stripes[0] : this.stripes[(int) (hash >>> this.stripeShift)];
+    }
+
+    //Adds the hash to the set, and returns true if it was not already in the set. Of several workers adding the same hash, exactly one
+    //gets true.
+    boolean add(long hash) {
+        if (hash == EMPTY) {
+            hash = ZERO_HASH;
+        }
+        return this.stripeOf(hash).add(hash);
+    }
+    boolean contains(long hash) {
+        if (hash == EMPTY) {
+            hash = ZERO_HASH;
+        }
+        return this.stripeOf(hash).contains(hash);
+    }
+    int size() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+    int getStripeCount() {
+        return this.stripes.length;
+    }
+}
@@ -0,0 +1,176 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pushrock.fxui.BatchValidator;
+import pushrock.fxui.BinarySaveHandler;
+import pushrock.fxui.LevelPack;
+import pushrock.fxui.SaveHandler;
+import pushrock.fxui.ValidationReport;
+import pushrock.fxui.ValidationResult;
+import pushrock.model.PushRock;
+
+public class BatchValidatorTest {
+
+    private static final String VALID_LEVEL = """
+        #File type:
+        Level
+
+        #Level name:
+        Valid level
+
+        #Level map layout:
+        p r d@
+        w    @
+
+        #Level direction layout:
+        rrg
+        """;
+    //The direction layout holds fewer directions than there are blocks, which is only found when the game is built.
+    private static final String INVALID_LAYOUT_LEVEL = """
+        #File type:
+        Level
+
+        #Level name:
+        Invalid layout
+
+        #Level map layout:
+        p r d@
+
+        #Level direction layout:
+        rg
+        """;
+
+    @TempDir
+    Path folder;
+
+    private Map<String, ValidationResult> byPath(ValidationReport report) {
+        Map<String, ValidationResult> results = new HashMap<>();
+        for (ValidationResult result : report.getResults()) {
+            results.put(result.getPath().replace('\\', '/'), result);
+        }
+        return results;
+    }
+
+    private void writeFixtures() throws IOException {
+        Files.writeString(this.folder.resolve("valid.txt"), VALID_LEVEL);
+        Files.writeString(this.folder.resolve("invalid layout.txt"), INVALID_LAYOUT_LEVEL);
+        Files.writeString(this.folder.resolve("no sections.txt"), "Just some text");
+        Path community = Files.createDirectory(this.folder.resolve("community"));
+        Files.writeString(community.resolve("nested.txt"), VALID_LEVEL);
+
+        PushRock pushRock = new SaveHandler().loadGame(new ByteArrayInputStream(VALID_LEVEL.getBytes(StandardCharsets.UTF_8)));
+        pushRock.movePlayer("right");
+        try (OutputStream outputStream = Files.newOutputStream(community.resolve("save.txt"))) {
+            new SaveHandler().saveGame(pushRock, outputStream);
+        }
+        try (OutputStream outputStream = Files.newOutputStream(this.folder.resolve("unknown level.sav"))) {
+            new BinarySaveHandler().saveGame(pushRock, outputStream);
+        }
+        try (OutputStream outputStream = Files.newOutputStream(this.folder.resolve("levels.pack"))) {
+            LevelPack.write(List.of(this.folder.resolve("valid.txt"), community.resolve("nested.txt")), outputStream);
+        }
+        Files.writeString(this.folder.resolve("broken.pack"), "not a pack");
+    }
+
+    @Test
+    @DisplayName("Check that every file in the folder tree is validated, with the type, error and timings of each file.")
+    public void testValidateFolder() throws IOException {
+        this.writeFixtures();
+        ValidationReport report = new BatchValidator(new ForkJoinPool(4)).validate(this.folder);
+        Map<String, ValidationResult> results = this.byPath(report);
+        assertEquals(9, report.getResults().size(), "Every file, and every level of the pack, should be validated: " + results.keySet());
+
+        ValidationResult valid = results.get("valid.txt");
+        assertTrue(valid.isValid());
+        assertEquals("level", valid.getType());
+        assertEquals("Valid level", valid.getLevelName());
+        assertEquals(5, valid.getWidth());
+        assertEquals(2, valid.getHeight());
+        assertTrue(valid.getParseNanos() > 0 && valid.getBuildNanos() > 0, "Both parsing and building should be timed.");
+
+        assertTrue(results.get("community/nested.txt").isValid());
+        assertTrue(results.get("community/save.txt").isValid());
+        assertEquals("save", results.get("community/save.txt").getType());
+        assertTrue(results.get("levels.pack!valid").isValid());
+        assertEquals("pack level", results.get("levels.pack!nested").getType());
+
+        ValidationResult invalidLayout = results.get("invalid layout.txt");
+        assertFalse(invalidLayout.isValid());
+        assertEquals("level", invalidLayout.getType(), "A file that parses should have its type, even if its layouts are invalid.");
+        assertTrue(invalidLayout.getError().contains("direction layout"), invalidLayout.getError());
+        assertTrue(invalidLayout.getBuildNanos() > 0);
+
+        ValidationResult noSections = results.get("no sections.txt");
+        assertFalse(noSections.isValid());
+        assertEquals("unknown", noSections.getType());
+        assertEquals(0, noSections.getBuildNanos());
+
+        assertFalse(results.get("unknown level.sav").isValid(), "A binary save of a level that can not be found should be invalid.");
+        assertEquals("binary save", results.get("unknown level.sav").getType());
+        assertFalse(results.get("broken.pack").isValid());
+        assertEquals("pack", results.get("broken.pack").getType());
+
+        assertEquals(5, report.getValidCount());
+        assertEquals(4, report.getInvalidCount());
+        assertEquals(4, report.getParallelism());
+    }
+
+    @Test
+    @DisplayName("Check that the report is written as a JSON line per file followed by a summary line.")
+    public void testWriteJson() throws IOException {
+        Files.writeString(this.folder.resolve("valid.txt"), VALID_LEVEL);
+        Files.writeString(this.folder.resolve("unknown section.txt"), "#File type:\nLevel\n#Unknown:\n");
+        ValidationReport report = new BatchValidator().validate(this.folder);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        report.writeJson(new PrintStream(outputStream, true, StandardCharsets.UTF_8));
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"path\":\"unknown section.txt\",\"type\":\"unknown\",\"valid\":false,\"error\":\"File is not formated correctly at line 3"), lines[0]);
+        assertTrue(lines[1].startsWith("{\"path\":\"valid.txt\",\"type\":\"level\",\"valid\":true,\"error\":null,\"parseNanos\":"), lines[1]);
+        assertTrue(lines[2].startsWith("{\"summary\":{\"files\":2,\"valid\":1,\"invalid\":1,"), lines[2]);
+
+        ValidationResult result = new ValidationResult("a\\b", "level", "\"quoted\"\nnext line", 1, 2, null, 0, 0);
+        assertEquals("{\"path\":\"a\\\\b\",\"type\":\"level\",\"valid\":false,\"error\":\"\\\"quoted\\\"\\nnext line\",\"parseNanos\":1,\"buildNanos\":2,\"levelName\":null,\"width\":0,\"height\":0}", result.toJson());
+    }
+
+    @Test
+    @DisplayName("Check that the shipped levels and saves are validated, and that the levels known to be valid or invalid are reported as such.")
+    public void testValidateResources() throws IOException {
+        Map<String, ValidationResult> results = this.byPath(new BatchValidator().validateResources());
+        //These tests assume that the files "TestLevel-DoNotDelete.txt" and "TestSave-DoNotDelete.txt" exist and are valid.
+        ValidationResult level = results.get("levels/TestLevel-DoNotDelete.txt");
+        assertNotNull(level);
+        assertTrue(level.isValid(), String.valueOf(level.getError()));
+        assertTrue(results.get("saves/TestSave-DoNotDelete.txt").isValid());
+        assertFalse(results.get("levels/Level Wrong formating.txt").isValid());
+    }
+
+    @Test
+    @DisplayName("Check that validating a folder that does not exist throws IllegalArgumentException.")
+    public void testMissingFolder() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchValidator().validate(this.folder.resolve("missing")));
+        assertThrows(IllegalArgumentException.class, () -> new BatchValidator(null));
+    }
+}
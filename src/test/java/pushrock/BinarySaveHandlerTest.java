@@ -0,0 +1,130 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import pushrock.fxui.BinarySaveHandler;
+import pushrock.model.PushRock;
+
+public class BinarySaveHandlerTest {
+
+    private BinarySaveHandler binarySaveHandler;
+
+    private byte[] save(BinarySaveHandler saveHandler, PushRock pushRock) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        saveHandler.saveGame(pushRock, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @BeforeEach
+    public void setup() {
+        binarySaveHandler = new BinarySaveHandler();
+    }
+
+    @Test
+    @DisplayName("Check that a saved game is loaded with the same state, move count and level as it was saved with.")
+    public void testSaveAndLoad() {
+        PushRock pushRock = new PushRock("Level test", "vp rd@t  t @", "rlrg");
+        pushRock.placePortal(true);
+        pushRock.movePlayer("right");
+        byte[] save = this.save(binarySaveHandler, pushRock);
+        assertTrue(save.length < 1024, "A save of a small level should be less than 1 KB, but was " + save.length + " bytes.");
+
+        PushRock loaded = binarySaveHandler.loadGame(new ByteArrayInputStream(save));
+        assertArrayEquals(pushRock.getCompactState(), loaded.getCompactState());
+        assertEquals(pushRock.stateHash(), loaded.stateHash());
+        assertEquals(pushRock.getMoveCount(), loaded.getMoveCount());
+        assertEquals(pushRock.getLevelName(), loaded.getLevelName());
+        assertEquals(pushRock.getLevelMapLayout(), loaded.getLevelMapLayout());
+    }
+
+    @Test //This test assumes that the file "TestLevel-DoNotDelete.txt" exists in the levels resource folder, and that it is of a valid format.
+    @DisplayName("Check that a save of a level from the levels folder can be loaded by a handler that has not seen the level before.")
+    public void testLoadLevelFromLevelsFolder() throws Exception {
+        PushRock pushRock = binarySaveHandler.loadGame("TestLevel-DoNotDelete", false);
+        pushRock.movePlayer("right");
+        byte[] save = this.save(binarySaveHandler, pushRock);
+
+        PushRock loaded = new BinarySaveHandler().loadGame(new ByteArrayInputStream(save));
+        assertArrayEquals(pushRock.getCompactState(), loaded.getCompactState());
+        assertEquals(pushRock.getMoveCount(), loaded.getMoveCount());
+    }
+
+    @Test
+    @DisplayName("Check that loading a save of an unknown level throws IllegalArgumentException.")
+    public void testLoadUnknownLevel() {
+        byte[] save = this.save(binarySaveHandler, new PushRock("Unknown level", "pd @", "rg"));
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new BinarySaveHandler().loadGame(new ByteArrayInputStream(save)),
+            "A save of a level that is neither known to the handler nor in the levels folder should throw IllegalArgumentException.");
+    }
+
+    @Test
+    @DisplayName("Check that loading a save with a wrong header, a wrong checksum or missing bytes throws IllegalArgumentException.")
+    public void testLoadCorruptedSave() {
+        byte[] save = this.save(binarySaveHandler, new PushRock("Level test", "prd@", "rrg"));
+
+        byte[] wrongHeader = save.clone();
+        wrongHeader[0] = '#';
+        byte[] wrongChecksum = save.clone();
+        wrongChecksum[save.length - 5] ^= 1;
+        byte[] truncated = new byte[save.length - 1];
+        System.arraycopy(save, 0, truncated, 0, truncated.length);
+        for (byte[] corruptedSave : new byte[][] {wrongHeader, wrongChecksum, truncated}) {
+            assertThrows(
+                IllegalArgumentException.class,
+                () -> binarySaveHandler.loadGame(new ByteArrayInputStream(corruptedSave)),
+                "A corrupted save should throw IllegalArgumentException.");
+        }
+    }
+
+    //Returns a copy of the save with one value of its compact state replaced, and the checksum made to match again.
+    private byte[] withStateValue(byte[] save, int stateLength, int index, int value) {
+        byte[] changed = save.clone();
+        ByteBuffer.wrap(changed).putInt(save.length - 4 - 4 * (stateLength - index), value);
+        CRC32 checksum = new CRC32();
+        checksum.update(changed, 0, changed.length - 4);
+        ByteBuffer.wrap(changed).putInt(changed.length - 4, (int) checksum.getValue());
+        return changed;
+    }
+
+    @Test
+    @DisplayName("Check that loading a save with a matching checksum but a state the level can not be in throws IllegalArgumentException.")
+    public void testLoadInvalidState() {
+        //The cells are numbered row by row: portal wall 0, player 1, rock 3, pressure plate 4, and teleporters 5 and 8.
+        PushRock pushRock = new PushRock("Level test", "vp rd@t  t @", "rlrg");
+        int[] state = pushRock.getCompactState();
+        byte[] save = this.save(binarySaveHandler, pushRock);
+        assertArrayEquals(state, binarySaveHandler.loadGame(new ByteArrayInputStream(this.withStateValue(save, state.length, 1, state[1]))).getCompactState());
+        int[][] invalidValues = {
+            {1, 10 << 3},       //the player outside the map
+            {2, 0 << 3},        //a rock on the portal wall
+            {2, 5 << 3},        //a rock on a teleporter
+            {2, state[1]},      //a rock on the player
+            {3, 2 << 2},        //portal one on the ground
+            {4, -2},            //portal two with a negative cell
+            {5, 1},             //a teleporter connected to itself
+            {5, 7},             //a teleporter connected to a teleporter that does not exist
+            {0, 4},             //an unknown flag
+        };
+        for (int[] invalidValue : invalidValues) {
+            byte[] invalidSave = this.withStateValue(save, state.length, invalidValue[0], invalidValue[1]);
+            assertThrows(
+                IllegalArgumentException.class,
+                () -> binarySaveHandler.loadGame(new ByteArrayInputStream(invalidSave)),
+                "A save with the value " + invalidValue[1] + " at index " + invalidValue[0] + " of its state should throw IllegalArgumentException.");
+        }
+    }
+}
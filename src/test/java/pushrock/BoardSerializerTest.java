@@ -0,0 +1,45 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import pushrock.model.BoardSerializer;
+import pushrock.model.PushRock;
+
+public class BoardSerializerTest {
+
+    @Test
+    @DisplayName("Check that the display form of the map layout marks connected transporters.")
+    public void testMapLayoutDisplayForm() {
+        PushRock pushRock = new PushRock("test", "rqtrtowuvd @\n           @", "rrlrlug");
+        assertEquals("rqṭrṭowụṿd @\n           @\n", BoardSerializer.mapLayoutToString(pushRock, false));
+        assertEquals(pushRock.toString(), BoardSerializer.mapLayoutToString(pushRock, false));
+    }
+    @Test
+    @DisplayName("Check that the save form of the map layout only uses the characters the layout format accepts.")
+    public void testMapLayoutSaveForm() {
+        PushRock pushRock = new PushRock("test", "rqtrtowuvd @\n           @", "rrlrlug");
+        assertEquals("rqtrtowuvd @\n           @\n", BoardSerializer.mapLayoutToString(pushRock, true));
+        assertEquals(BoardSerializer.getMapLayoutLength(pushRock), BoardSerializer.mapLayoutToString(pushRock, true).length());
+    }
+    @Test
+    @DisplayName("Check that the direction layout lists the directions of players, rocks and portals in map order and ends with the gravity direction.")
+    public void testDirectionLayout() {
+        PushRock pushRock = new PushRock("test", "rqtrtowuvd @\n           @", "rrlrlug");
+        assertEquals("rrlrlug", BoardSerializer.directionLayoutToString(pushRock));
+        pushRock.movePlayer("down");
+        assertEquals("rlrludg", BoardSerializer.directionLayoutToString(pushRock));
+    }
+    @Test
+    @DisplayName("Check that a serialized save can be used to rebuild an identical game.")
+    public void testRoundTrip() {
+        PushRock pushRock = new PushRock("test", " pr  d @\n w   uv@", "rrlug");
+        pushRock.movePlayer("right");
+        PushRock rebuilt = new PushRock("test", pushRock.getLevelMapLayout(), pushRock.getLevelDirectionLayout(),
+            BoardSerializer.mapLayoutToString(pushRock, true), BoardSerializer.directionLayoutToString(pushRock), pushRock.getMoveCount());
+        assertEquals(pushRock.toString(), rebuilt.toString());
+        assertEquals(BoardSerializer.directionLayoutToString(pushRock), BoardSerializer.directionLayoutToString(rebuilt));
+    }
+}
@@ -0,0 +1,49 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import pushrock.model.Direction;
+
+public class DirectionTest {
+
+    @Test
+    @DisplayName("Check that every direction has the expected coordinate change, and that its opposite cancels it out.")
+    public void testCoordinateChangeAndOpposite() {
+        assertArrayEquals(new int[]{0, 1}, new int[]{Direction.UP.getDX(), Direction.UP.getDY()});
+        assertArrayEquals(new int[]{0, -1}, new int[]{Direction.DOWN.getDX(), Direction.DOWN.getDY()});
+        assertArrayEquals(new int[]{-1, 0}, new int[]{Direction.LEFT.getDX(), Direction.LEFT.getDY()});
+        assertArrayEquals(new int[]{1, 0}, new int[]{Direction.RIGHT.getDX(), Direction.RIGHT.getDY()});
+        for (Direction direction : Direction.values()) {
+            assertEquals(direction, direction.getOpposite().getOpposite());
+            assertEquals(0, direction.getDX() + direction.getOpposite().getDX());
+            assertEquals(0, direction.getDY() + direction.getOpposite().getDY());
+        }
+    }
+    @Test
+    @DisplayName("Check that directions are converted to and from their names and layout characters.")
+    public void testConversions() {
+        for (Direction direction : Direction.values()) {
+            assertEquals(direction, Direction.fromString(direction.toString()));
+            assertEquals(direction, Direction.fromString(direction.toString().toUpperCase()));
+            assertEquals(direction, Direction.fromLayoutCharacter(direction.getLayoutCharacter()));
+        }
+        assertEquals("up", Direction.UP.toString());
+        assertEquals('l', Direction.LEFT.getLayoutCharacter());
+        assertNull(Direction.fromString(null));
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> Direction.fromString("north"),
+            "A name that is not a direction should throw IllegalArgumentException.");
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> Direction.fromString(""),
+            "An empty name should throw IllegalArgumentException.");
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> Direction.fromLayoutCharacter('g'),
+            "A layout character that is not a direction should throw IllegalArgumentException.");
+    }
+}
@@ -0,0 +1,47 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import pushrock.model.IDiagnosticsSink;
+import pushrock.model.PushRock;
+import pushrock.solver.SolverAction;
+import pushrock.solver.SolverResult;
+
+//Levels and helpers shared by the test classes that need a game to drive rather than a particular board to check.
+final class GameFixtures {
+
+    //A level with rocks, portal walls and room to walk around, for tests that apply many commands to a game.
+    static final String SAMPLE_LEVEL_MAP_LAYOUT = """
+          p   r  u @
+        w   r   w  @
+           wwvww   @
+          r     r d@
+        """;
+    static final String SAMPLE_LEVEL_DIRECTION_LAYOUT = "rrdrurrg";
+
+    private GameFixtures() {
+    }
+
+    //Builds a game of the given level that logs nothing.
+    static PushRock createGame(String levelMapLayout, String levelDirectionLayout) {
+        PushRock pushRock = new PushRock("test", levelMapLayout, levelDirectionLayout);
+        pushRock.setDiagnosticsSink(IDiagnosticsSink.silent());
+        return pushRock;
+    }
+    static PushRock createSampleGame() {
+        return createGame(SAMPLE_LEVEL_MAP_LAYOUT, SAMPLE_LEVEL_DIRECTION_LAYOUT);
+    }
+
+    //Replays the given solution on the given game and checks that it completes the level with the reported move count.
+    static void checkSolutionCompletesLevel(PushRock pushRock, SolverResult result) {
+        assertTrue(result.isSolved());
+        for (SolverAction action : result.getSolution()) {
+            assertFalse(pushRock.isGameOver(), "The level should not be completed before the last action of the solution.");
+            action.apply(pushRock);
+        }
+        assertTrue(pushRock.isGameOver(), "Replaying the solution should complete the level.");
+        assertEquals(result.getMoveCount(), pushRock.getMoveCount(), "The reported move count should match the move count after replaying the solution.");
+    }
+}
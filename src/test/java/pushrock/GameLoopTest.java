@@ -0,0 +1,213 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import pushrock.model.Direction;
+import pushrock.model.GameCommand;
+import pushrock.model.GameLoop;
+import pushrock.model.GameSnapshot;
+import pushrock.model.IntervalNotifier;
+import pushrock.model.PushRock;
+
+public class GameLoopTest {
+
+    private PushRock pushRock;
+    private GameLoop gameLoop;
+
+    @BeforeEach
+    public void setup() {
+        this.pushRock = GameFixtures.createSampleGame();
+        this.gameLoop = new GameLoop(this.pushRock);
+    }
+
+    @Test
+    @DisplayName("Check that the timestep must be within bounds and the game can not be null.")
+    public void testConstructor() {
+        assertThrows(IllegalArgumentException.class, () -> new GameLoop(null), "A game loop should not be created without a game.");
+        assertThrows(IllegalArgumentException.class, () -> new GameLoop(GameFixtures.createSampleGame(), 0), "The timestep should be at least 1 millisecond.");
+        assertThrows(IllegalArgumentException.class, () -> new GameLoop(GameFixtures.createSampleGame(), 1001), "The timestep should be at most 1000 milliseconds.");
+        assertEquals(GameLoop.DEFAULT_TIMESTEP, this.gameLoop.getTimestep());
+        assertEquals(0, this.gameLoop.getSnapshot().getStep(), "The first snapshot should hold the state the game was given in.");
+        assertEquals(this.pushRock.stateHash(), this.gameLoop.getSnapshot().stateHash());
+    }
+
+    @Test
+    @DisplayName("Check that submitted commands are only applied by the next step, in the order they were submitted.")
+    public void testCommandsAppliedInOrderAtStep() {
+        PushRock expected = GameFixtures.createSampleGame();
+        GameSnapshot firstSnapshot = this.gameLoop.getSnapshot();
+        this.gameLoop.submit(GameCommand.move(Direction.RIGHT));
+        this.gameLoop.submit(GameCommand.move(Direction.DOWN));
+        this.gameLoop.submit(GameCommand.placePortal(true));
+        assertSame(firstSnapshot, this.gameLoop.getSnapshot(), "Submitting commands should not change the game before the next step.");
+        assertEquals(0, this.pushRock.getMoveCount());
+
+        this.gameLoop.step();
+        expected.movePlayer(Direction.RIGHT);
+        expected.movePlayer(Direction.DOWN);
+        expected.placePortal(true);
+        GameSnapshot snapshot = this.gameLoop.getSnapshot();
+        assertEquals(1, snapshot.getStep());
+        assertArrayEquals(expected.getCompactState(), snapshot.getCompactState());
+        assertEquals(expected.stateHash(), snapshot.stateHash());
+        assertEquals(expected.getMoveCount(), snapshot.getMoveCount());
+        assertTrue(snapshot.canUndo());
+        assertFalse(snapshot.canRedo());
+        assertNull(snapshot.getErrorMessage());
+    }
+
+    @Test
+    @DisplayName("Check that a new snapshot is only published when a step changes the game or has a command refused.")
+    public void testSnapshotOnlyPublishedOnChange() {
+        GameSnapshot firstSnapshot = this.gameLoop.getSnapshot();
+        this.gameLoop.step();
+        assertSame(firstSnapshot, this.gameLoop.getSnapshot(), "A step without commands should not publish a snapshot.");
+        //The level is in the bird view, so interval ticks leave it unchanged.
+        this.gameLoop.update(new IntervalNotifier(1000));
+        this.gameLoop.step();
+        assertSame(firstSnapshot, this.gameLoop.getSnapshot(), "A step that leaves the game unchanged should not publish a snapshot.");
+        assertEquals(2, this.gameLoop.getStepCount());
+    }
+
+    @Test
+    @DisplayName("Check that a refused command is reported through the snapshot and does not stop the commands after it.")
+    public void testRefusedCommand() {
+        this.gameLoop.submit(GameCommand.undo());
+        this.gameLoop.step();
+        assertEquals("There is no move to undo.", this.gameLoop.getSnapshot().getErrorMessage());
+
+        this.gameLoop.submit(GameCommand.undo());
+        this.gameLoop.submit(GameCommand.move(Direction.RIGHT));
+        this.gameLoop.step();
+        assertNotNull(this.gameLoop.getSnapshot().getErrorMessage(), "The refused undo should be reported.");
+        assertEquals(1, this.gameLoop.getSnapshot().getMoveCount(), "The move after the refused undo should still be made.");
+
+        this.gameLoop.submit(GameCommand.undo());
+        this.gameLoop.step();
+        assertNull(this.gameLoop.getSnapshot().getErrorMessage());
+        assertEquals(GameFixtures.createSampleGame().stateHash(), this.gameLoop.getSnapshot().stateHash());
+    }
+
+    @Test
+    @DisplayName("Check that the loop refuses to be started twice, to be stepped by hand while started and to be submitted null.")
+    public void testIllegalUse() {
+        assertThrows(IllegalArgumentException.class, () -> this.gameLoop.submit(null));
+        assertThrows(IllegalArgumentException.class, () -> GameCommand.move(null));
+        this.gameLoop.start();
+        try {
+            assertTrue(this.gameLoop.isActive());
+            assertThrows(IllegalStateException.class, () -> this.gameLoop.start(), "A started game loop should not be started again.");
+            assertThrows(IllegalStateException.class, () -> this.gameLoop.step(), "A started game loop should not be stepped by hand.");
+        }
+        finally {
+            this.gameLoop.stop();
+        }
+        assertFalse(this.gameLoop.isActive());
+        this.gameLoop.step();
+    }
+
+    @Test
+    @DisplayName("Check that a stopped interval notifier does not make the loop tick.")
+    public void testIgnoreStoppedIntervalNotifier() {
+        List<GameCommand> appliedCommands = new ArrayList<GameCommand>();
+        this.gameLoop.addCommandObserver((step, command) -> appliedCommands.add(command));
+        this.gameLoop.update(null);
+        this.gameLoop.update(new IntervalNotifier(1000));
+        this.gameLoop.step();
+        assertEquals(List.of(GameCommand.intervalTick()), appliedCommands);
+    }
+
+    @Test
+    @DisplayName("Check that commands submitted from many threads to a started loop are all applied, and replay to the same state.")
+    public void testConcurrentSubmitReplay() throws InterruptedException {
+        List<GameCommand> appliedCommands = new ArrayList<GameCommand>();
+        this.gameLoop.addCommandObserver((step, command) -> appliedCommands.add(command));
+        int threadCount = 4;
+        int commandsPerThread = 500;
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch doneSignal = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            Random random = new Random(i);
+            Thread thread = new Thread(() -> {
+                try {
+                    startSignal.await();
+                    for (int j = 0; j < commandsPerThread; j++) {
+                        int choice = random.nextInt(8);
+                        if (choice < 4) {
+                            this.gameLoop.submit(GameCommand.move(Direction.values()[choice]));
+                        }
+                        else if (choice < 6) {
+                            this.gameLoop.submit(GameCommand.placePortal(choice == 4));
+                        }
+                        else {
+                            this.gameLoop.submit(choice == 6 ? GameCommand.undo() : GameCommand.redo());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                doneSignal.countDown();
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        this.gameLoop.start();
+        startSignal.countDown();
+        assertTrue(doneSignal.await(10, TimeUnit.SECONDS), "The submitting threads should finish.");
+        this.gameLoop.stop();
+        //Commands left in the queue when the loop was stopped are applied by a step made by hand.
+        this.gameLoop.step();
+        assertEquals(threadCount * commandsPerThread, appliedCommands.size(), "Every submitted command should be applied exactly once.");
+
+        PushRock replay = GameFixtures.createSampleGame();
+        for (GameCommand command : appliedCommands) {
+            try {
+                command.applyTo(replay);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                //Commands refused by the loop's game are refused by the replay as well.
+            }
+        }
+        GameSnapshot snapshot = this.gameLoop.getSnapshot();
+        assertArrayEquals(replay.getCompactState(), snapshot.getCompactState());
+        assertEquals(replay.stateHash(), snapshot.stateHash());
+        assertEquals(replay.getMoveCount(), snapshot.getMoveCount());
+    }
+
+    @Test
+    @DisplayName("Check that applying a snapshot to a mirror game gives the same state, and only marks the changed cells.")
+    public void testSnapshotAppliedToMirror() {
+        PushRock mirror = this.pushRock.getCopy();
+        List<Boolean> everyCellChanged = new ArrayList<Boolean>();
+        List<Integer> changedCellCounts = new ArrayList<Integer>();
+        mirror.addObserver(observable -> {
+            everyCellChanged.add(observable.isEveryCellChanged());
+            changedCellCounts.add(observable.getChangedCellCount());
+        });
+        this.gameLoop.submit(GameCommand.move(Direction.RIGHT));
+        this.gameLoop.step();
+        this.gameLoop.getSnapshot().applyTo(mirror);
+
+        assertEquals(this.pushRock.toString(), mirror.toString());
+        assertEquals(this.pushRock.stateHash(), mirror.stateHash());
+        assertEquals(1, mirror.getMoveCount());
+        assertFalse(everyCellChanged.get(everyCellChanged.size() - 1), "Restoring a state should not have the whole map drawn again.");
+        assertTrue(changedCellCounts.get(changedCellCounts.size() - 1) > 0);
+    }
+}
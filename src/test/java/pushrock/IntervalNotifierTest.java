@@ -1,7 +1,15 @@
 package pushrock;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -91,4 +99,31 @@ public class IntervalNotifierTest {
         //The observer should no longer be notified by the interval notifier once it was removed as an observer.
         assertEquals(1, testObserver.getUpdateCount(), "the observer should not have kept getting notified after it was removed as an observer.");
     }
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Check that a started interval notifier keeps notifying its observers until it is stopped, after which the observers are notified with null and removed.")
+    public void testStartAndStop() throws InterruptedException {
+        IntervalNotifier intervalNotifier = new IntervalNotifier(500);
+        CountDownLatch notifications = new CountDownLatch(2);
+        List<IObservableIntervalNotifier> updates = new CopyOnWriteArrayList<>();
+        intervalNotifier.addObserver(observable -> {
+            updates.add(observable);
+            notifications.countDown();
+        });
+        assertFalse(intervalNotifier.isActive());
+        intervalNotifier.start();
+        assertTrue(intervalNotifier.isActive());
+        assertThrows(
+            IllegalStateException.class,
+            () -> intervalNotifier.start(),
+            "Starting an interval notifier that is already started should throw IllegalStateException.");
+        assertTrue(notifications.await(5, TimeUnit.SECONDS), "the observer should have been notified twice within five seconds.");
+        intervalNotifier.stop();
+        assertFalse(intervalNotifier.isActive());
+        assertNull(updates.get(updates.size() - 1), "the observer should have been notified with null once the notifier was stopped.");
+        assertTrue(updates.subList(0, updates.size() - 1).stream().allMatch(observable -> observable == intervalNotifier));
+        //The observer was removed once the notifier was stopped.
+        int updateCount = updates.size();
+        intervalNotifier.notifyObservers();
+        assertEquals(updateCount, updates.size());
+    }
+}
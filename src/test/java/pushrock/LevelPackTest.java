@@ -0,0 +1,127 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pushrock.fxui.LevelPack;
+import pushrock.fxui.SaveHandler;
+import pushrock.model.PushRock;
+
+public class LevelPackTest {
+
+    @TempDir
+    Path folder;
+
+    private Path packPath;
+    private Path levelOnePath;
+    private Path levelTwoPath;
+
+    private Path writeLevelFile(String fileName, String levelName, String mapLayout, String directionLayout) throws IOException {
+        Path levelFilePath = this.folder.resolve(fileName);
+        Files.writeString(levelFilePath, "#File type:\nLevel\n\n#Level name:\n" + levelName + "\n\n#Level map layout:\n" + mapLayout + "\n\n#Level direction layout:\n" + directionLayout + "\n");
+        return levelFilePath;
+    }
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.levelOnePath = this.writeLevelFile("Level one.txt", "First level", "prd@", "rrg");
+        this.levelTwoPath = this.writeLevelFile("Level two.txt", "Second level", "p  @ rd@", "rrg");
+        this.packPath = this.folder.resolve("levels" + LevelPack.FILE_EXTENSION);
+        try (OutputStream outputStream = Files.newOutputStream(this.packPath)) {
+            LevelPack.write(List.of(this.levelOnePath, this.levelTwoPath), outputStream);
+        }
+    }
+
+    @Test
+    @DisplayName("Check that a level pack lists its levels with their metadata, and loads them as their level files are loaded.")
+    public void testOpenAndLoad() throws IOException {
+        LevelPack levelPack = LevelPack.open(this.packPath);
+        assertEquals(List.of("Level one", "Level two"), levelPack.getNames());
+        assertTrue(levelPack.containsLevel("Level two"));
+        assertFalse(levelPack.containsLevel("Level three"));
+        assertEquals("Second level", levelPack.getLevelName("Level two"));
+        assertEquals(3, levelPack.getWidth("Level two"));
+        assertEquals(2, levelPack.getHeight("Level two"));
+
+        SaveHandler saveHandler = new SaveHandler();
+        for (Path levelFilePath : List.of(this.levelOnePath, this.levelTwoPath)) {
+            PushRock expected;
+            try (InputStream inputStream = Files.newInputStream(levelFilePath)) {
+                expected = saveHandler.loadGame(inputStream);
+            }
+            String name = levelFilePath.getFileName().toString().replace(".txt", "");
+            PushRock actual = levelPack.loadLevel(name);
+            assertEquals(expected.getLevelName(), actual.getLevelName());
+            assertEquals(expected.getLevelMapLayout(), actual.getLevelMapLayout());
+            assertEquals(expected.getLevelDirectionLayout(), actual.getLevelDirectionLayout());
+            assertEquals(expected.stateHash(), actual.stateHash());
+        }
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> levelPack.loadLevel("Level three"),
+            "Loading a level that is not in the pack should throw IllegalArgumentException.");
+    }
+
+    @Test
+    @DisplayName("Check that opening a file that is not a level pack, or a pack that has been cut short, throws IllegalArgumentException.")
+    public void testOpenInvalidPack() throws IOException {
+        byte[] pack = Files.readAllBytes(this.packPath);
+        Path truncatedPackPath = this.folder.resolve("truncated" + LevelPack.FILE_EXTENSION);
+        Files.write(truncatedPackPath, Arrays.copyOf(pack, 20));
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> LevelPack.open(truncatedPackPath),
+            "A pack that ends within its table of contents should throw IllegalArgumentException.");
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> LevelPack.open(this.levelOnePath),
+            "A file that is not a level pack should throw IllegalArgumentException.");
+    }
+
+    @Test
+    @DisplayName("Check that a level pack that can not be opened is left out of the level names and reported to the diagnostics sink.")
+    public void testListLevelsWithInvalidPack() throws IOException {
+        Path invalidPackPath = this.folder.resolve("invalid" + LevelPack.FILE_EXTENSION);
+        Files.writeString(invalidPackPath, "Not a level pack");
+        SaveHandler saveHandler = new SaveHandler() {
+            @Override
+            public Path getResourceFoldersPath(String folderName) {
+                return LevelPackTest.this.folder;
+            }
+        };
+        List<String> messages = new ArrayList<>();
+        saveHandler.setDiagnosticsSink(messageSupplier -> messages.add(messageSupplier.get()));
+        List<String> levelNames = saveHandler.getLevelNames();
+        assertEquals(2, levelNames.size(), "The levels of the folder and of the valid pack should each be listed once, but were: " + levelNames);
+        assertTrue(levelNames.containsAll(List.of("Level one", "Level two")));
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains(invalidPackPath.toString()), "The report should name the pack that could not be opened.");
+        assertThrows(IllegalArgumentException.class, () -> saveHandler.setDiagnosticsSink(null));
+    }
+
+    @Test
+    @DisplayName("Check that writing a pack of an invalid level file throws IllegalArgumentException.")
+    public void testWriteInvalidLevel() throws IOException {
+        Path invalidLevelPath = this.writeLevelFile("Invalid.txt", "Invalid level", "prd", "rrg");
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> LevelPack.write(List.of(invalidLevelPath), OutputStream.nullOutputStream()),
+            "A pack should only be written of valid levels.");
+    }
+}
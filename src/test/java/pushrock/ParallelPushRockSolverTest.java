@@ -0,0 +1,101 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import pushrock.model.PushRock;
+import pushrock.solver.ParallelPushRockSolver;
+import pushrock.solver.PushRockSolver;
+import pushrock.solver.SolverResult;
+
+public class ParallelPushRockSolverTest {
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setup() {
+        //More workers than the machine may have cores, so that the workers interleave even on a single core.
+        this.pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Check that the parallel solver finds a solution with the same lowest possible move count as the sequential solver.")
+    public void testSolveOptimalMoveCount() {
+        String[][] levels = {
+            {"dprd@", "rrg"},
+            {"w p wud@", "rrg"},
+            {"o prt   t  d@", "rllg"},
+            {GameFixtures.SAMPLE_LEVEL_MAP_LAYOUT, GameFixtures.SAMPLE_LEVEL_DIRECTION_LAYOUT},
+            {"R--@---@D-P@", "rrg"},
+        };
+        for (String[] level : levels) {
+            SolverResult expected = new PushRockSolver().solve(GameFixtures.createGame(level[0], level[1]));
+            PushRock pushRock = GameFixtures.createGame(level[0], level[1]);
+            //Both solvers apply gravity on move input, and the solution is replayed the same way.
+            pushRock.setGravityApplicationMoveInput();
+            SolverResult result = new ParallelPushRockSolver(this.pool, PushRockSolver.DEFAULT_MAX_EXPANDED_NODES).solve(pushRock);
+            assertEquals(expected.getMoveCount(), result.getMoveCount(), "The move count should be optimal for the level: " + level[0]);
+            GameFixtures.checkSolutionCompletesLevel(pushRock, result);
+            assertEquals(4, result.getParallelism());
+        }
+    }
+
+    @Test
+    @DisplayName("Check that an exhausted search expands every reachable state exactly once, as the sequential solver does.")
+    public void testSolveUnsolvable() {
+        String levelMapLayout = "p r  w d@  r  w  @";
+        SolverResult expected = new PushRockSolver().solve(GameFixtures.createGame(levelMapLayout, "rrrg"));
+        SolverResult result = new ParallelPushRockSolver(this.pool, PushRockSolver.DEFAULT_MAX_EXPANDED_NODES).solve(GameFixtures.createGame(levelMapLayout, "rrrg"));
+        assertTrue(expected.isSearchExhausted());
+        assertFalse(result.isSolved());
+        assertNull(result.getSolution());
+        assertEquals(-1, result.getMoveCount());
+        assertTrue(result.isSearchExhausted());
+        assertEquals(expected.getNodesExpanded(), result.getNodesExpanded(), "No state should be expanded more than once.");
+        assertTrue(result.getDuplicateNodes() > 0, "States reached by more than one path should be counted as duplicate nodes.");
+        assertTrue(result.getDuplicateRatio() > 0 && result.getDuplicateRatio() < 1);
+    }
+
+    @Test
+    @DisplayName("Check that the parallel solver stops once the node limit is reached.")
+    public void testSolveNodeLimit() {
+        SolverResult result = new ParallelPushRockSolver(this.pool, 2).solve(GameFixtures.createGame("p          d@", "rg"));
+        assertFalse(result.isSolved());
+        assertFalse(result.isSearchExhausted());
+        assertEquals(2, result.getNodesExpanded());
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new ParallelPushRockSolver(this.pool, 0),
+            "A node limit below one should throw IllegalArgumentException.");
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new ParallelPushRockSolver(null, 1),
+            "A missing pool should throw IllegalArgumentException.");
+    }
+
+    @Test
+    @DisplayName("Check that solving a game in parallel does not change the state of that game.")
+    public void testSolveLeavesGameUnchanged() {
+        PushRock pushRock = GameFixtures.createGame("dprd@", "rrg");
+        pushRock.movePlayer("right");
+        String expected = pushRock.toString();
+        long stateHash = pushRock.stateHash();
+        SolverResult result = new ParallelPushRockSolver(this.pool, PushRockSolver.DEFAULT_MAX_EXPANDED_NODES).solve(pushRock);
+        assertEquals(expected, pushRock.toString());
+        assertEquals(stateHash, pushRock.stateHash());
+        assertEquals(1, pushRock.getMoveCount());
+        //The search continues from the current state, so the move count includes the move already made.
+        assertEquals(3, result.getMoveCount());
+    }
+}
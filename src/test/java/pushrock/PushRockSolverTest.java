@@ -0,0 +1,96 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import pushrock.model.PushRock;
+import pushrock.solver.PushRockSolver;
+import pushrock.solver.SolverAction;
+import pushrock.solver.SolverResult;
+
+public class PushRockSolverTest {
+
+    @Test
+    @DisplayName("Check that the solver finds a solution with the lowest possible move count.")
+    public void testSolveOptimalMoveCount() {
+        PushRock pushRock = new PushRock("test", "dprd@", "rrg");
+        SolverResult result = new PushRockSolver().solve(pushRock);
+        assertEquals(3, result.getMoveCount());
+        assertEquals(List.of(SolverAction.RIGHT, SolverAction.LEFT, SolverAction.LEFT), result.getSolution());
+        GameFixtures.checkSolutionCompletesLevel(pushRock, result);
+    }
+    @Test
+    @DisplayName("Check that the solver places portals when the level can not be completed without them.")
+    public void testSolveWithPortalPlacement() {
+        PushRock pushRock = new PushRock("test", "w p wud@", "rrg");
+        SolverResult result = new PushRockSolver().solve(pushRock);
+        assertEquals(2, result.getMoveCount());
+        assertTrue(result.getSolution().contains(SolverAction.PORTAL_ONE), "The only way to reach the pressure plate is through a placed portal one.");
+        GameFixtures.checkSolutionCompletesLevel(pushRock, result);
+    }
+    @Test
+    @DisplayName("Check that the solver finds solutions that rely on teleporters being connected by pressure plates.")
+    public void testSolveWithTeleporters() {
+        PushRock pushRock = new PushRock("test", "o prt   t  d@", "rllg");
+        SolverResult result = new PushRockSolver().solve(pushRock);
+        GameFixtures.checkSolutionCompletesLevel(pushRock, result);
+    }
+    @Test
+    @DisplayName("Check that the solver applies gravity to the blocks in the gravity plane, as a game that applies gravity on move input does.")
+    public void testSolveWithGravity() {
+        //The rock falls onto the pressure plate after two gravity steps, which turning on the spot is enough to make. A search without
+        //gravity would have the player walk onto the pressure plate instead, in two moves.
+        String levelMapLayout = """
+            R--@
+            ---@
+            D-P@
+            """;
+        PushRock pushRock = new PushRock("test", levelMapLayout, "rrg");
+        SolverResult result = new PushRockSolver().solve(pushRock);
+        assertEquals(0, result.getMoveCount());
+        assertTrue(pushRock.isGravityApplicationInterval(), "Solving should not change how the given game applies gravity.");
+        pushRock.setGravityApplicationMoveInput();
+        GameFixtures.checkSolutionCompletesLevel(pushRock, result);
+    }
+    @Test
+    @DisplayName("Check that the solver reports an exhausted search without a solution for an unsolvable level.")
+    public void testSolveUnsolvable() {
+        PushRock pushRock = new PushRock("test", "pw d@", "rg");
+        SolverResult result = new PushRockSolver().solve(pushRock);
+        assertFalse(result.isSolved());
+        assertNull(result.getSolution());
+        assertEquals(-1, result.getMoveCount());
+        assertTrue(result.isSearchExhausted());
+    }
+    @Test
+    @DisplayName("Check that the solver stops once the node limit is reached.")
+    public void testSolveNodeLimit() {
+        PushRock pushRock = new PushRock("test", "p          d@", "rg");
+        SolverResult result = new PushRockSolver(2).solve(pushRock);
+        assertFalse(result.isSolved());
+        assertFalse(result.isSearchExhausted());
+        assertEquals(2, result.getNodesExpanded());
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new PushRockSolver(0),
+            "A node limit below one should throw IllegalArgumentException.");
+    }
+    @Test
+    @DisplayName("Check that solving a game does not change the state of that game.")
+    public void testSolveLeavesGameUnchanged() {
+        PushRock pushRock = new PushRock("test", "dprd@", "rrg");
+        pushRock.movePlayer("right");
+        String expected = pushRock.toString();
+        SolverResult result = new PushRockSolver().solve(pushRock);
+        assertEquals(expected, pushRock.toString());
+        assertEquals(1, pushRock.getMoveCount());
+        //The search continues from the current state, so the move count includes the move already made.
+        assertEquals(3, result.getMoveCount());
+        assertTrue(result.getNodesExpanded() > 0);
+        assertTrue(result.getNodesPerSecond() > 0);
+    }
+}
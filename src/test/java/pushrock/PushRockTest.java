@@ -3,6 +3,9 @@ package pushrock;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,11 +15,16 @@ import org.junit.jupiter.api.Test;
 
 import pushrock.model.AbstractObservablePushRock;
 import pushrock.model.BlockAbstract;
+import pushrock.model.BoardView;
+import pushrock.model.DirectedBlock;
+import pushrock.model.Direction;
+import pushrock.model.IDiagnosticsSink;
 import pushrock.model.IObserverPushRock;
 import pushrock.model.IntervalNotifier;
 import pushrock.model.MoveableBlock;
 import pushrock.model.PortalWallBlock;
 import pushrock.model.PushRock;
+import pushrock.model.PushRockEvent;
 import pushrock.model.TraversableBlock;
 
 public class PushRockTest {
@@ -225,6 +233,23 @@ public class PushRockTest {
         }
     }
 
+    @Test
+    @DisplayName("Check that map layouts are read the same regardless of wether their rows are separated by '\\n' or '\\r\\n', and that a save layout may use either.")
+    public void testConstructorLineSeparators() {
+        String levelLayoutLF = "wwwww@\nwprdd@\nwwwww@";
+        String levelLayoutCRLF = "wwwww@\r\nwprdd@\r\nwwwww@\r\n";
+        PushRock pushRockLF = new PushRock("Test", levelLayoutLF, "rrg");
+        PushRock pushRockCRLF = new PushRock("Test", levelLayoutCRLF, "rrg");
+        assertEqualsNoLineSeparator(pushRockLF.toString(), pushRockCRLF.toString());
+        assertArrayEquals(pushRockLF.getCompactState(), pushRockCRLF.getCompactState());
+
+        PushRock save = new PushRock("Test", levelLayoutLF, "rrg", "wwwww@\r\nw pod@\r\nwwwww@", "rrg", 1);
+        assertEqualsNoLineSeparator("wwwww@\nw pod@\nwwwww@", save.toString());
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new PushRock("Test", levelLayoutLF, "rrg", "wwwww@\r\nw pdd@\r\nwwwww@", "rrg", 1),
+            "A save layout with fewer rocks than the level should throw IllegalArgumentException.");
+    }
     @Test
     @DisplayName("Check that a too short map layout results in IllegalArgumentException being thrown.")
     public void testConstructorMapLayoutTooShort() {
@@ -624,6 +649,164 @@ public class PushRockTest {
                 "Attempting to place a portal through a teleporter should throw IllegalStateException.");
     }
 
+    @Test
+    @DisplayName("Check that getPortalWallCell(..) returns the cell of the wall a portal would be placed at from any position and direction, and -1 when no portal could be placed.")
+    public void testPortalWallCell() {
+        PushRock pushRock = new PushRock("Test", " w  @\nwp t@\n r d@", "rrg");
+        int width = pushRock.getWidth();
+        assertEquals(1 * width + 0, pushRock.getPortalWallCell(1, -1, Direction.LEFT));
+        assertEquals(0 * width + 1, pushRock.getPortalWallCell(1, -1, Direction.UP));
+        assertEquals(-1, pushRock.getPortalWallCell(1, -1, Direction.RIGHT), "A portal can not be placed through a teleporter.");
+        assertEquals(-1, pushRock.getPortalWallCell(1, -1, Direction.DOWN), "A portal can not be placed out of bounds, even when aimed through a rock.");
+        assertEquals(0 * width + 1, pushRock.getPortalWallCell(3, 0, Direction.LEFT));
+        assertEquals(1 * width + 0, pushRock.getPortalWallCell(0, 0, Direction.DOWN));
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> pushRock.getPortalWallCell(4, 0, Direction.LEFT),
+            "Coordinates out of bounds should throw IllegalArgumentException.");
+
+        //The player faces the teleporter, and then turns towards the wall above when trying to move into it.
+        assertFalse(pushRock.canPlacePortal());
+        pushRock.movePlayer("up");
+        assertTrue(pushRock.canPlacePortal());
+        pushRock.placePortal(true);
+        assertEquals('v', pushRock.getTopBlockCopy(1, 0).getType());
+    }
+
+    @Test
+    @DisplayName("Check that observers are told which cells changed since the last notification, and only those cells.")
+    public void testChangedCells() {
+        PushRock pushRock = new PushRock("Test", "w pr d@", "rrg");
+        List<List<Integer>> changedCells = new ArrayList<>();
+        pushRock.addObserver(observable -> {
+            List<Integer> cells = new ArrayList<>();
+            if (observable.isEveryCellChanged()) {
+                cells.add(-1);
+            }
+            for (int i = 0; i < observable.getChangedCellCount(); i++) {
+                cells.add(observable.getChangedCell(i));
+            }
+            cells.sort(null);
+            changedCells.add(cells);
+        });
+        //The first notification after an observer is added counts every cell as changed.
+        pushRock.movePlayer("right");
+        pushRock.movePlayer("left");
+        pushRock.placePortal(true);
+        pushRock.undo();
+        pushRock.movePlayer("right");
+        assertEquals(List.of(List.of(-1), List.of(2, 3), List.of(0), List.of(0), List.of(2, 3)), changedCells);
+        pushRock.resetLevel();
+        assertEquals(List.of(-1), changedCells.get(changedCells.size() - 1));
+    }
+
+    @Test
+    @DisplayName("Check that the board view reads the same values as the block copies, and throws IllegalArgumentException for coordinates out of bounds.")
+    public void testBoardView() {
+        PushRock pushRock = new PushRock("Test", "wo p rt td@", "rrrg");
+        BoardView boardView = pushRock.getBoardView();
+        assertSame(boardView, pushRock.getBoardView(), "The board view of a game should always be the same object.");
+        pushRock.movePlayer("right");
+        for (int y = 0; y > -boardView.getHeight(); y--) {
+            for (int x = 0; x < boardView.getWidth(); x++) {
+                BlockAbstract blockCopy = pushRock.getTopBlockCopy(x, y);
+                assertEquals(blockCopy.getType(), boardView.typeAt(x, y));
+                assertEquals(blockCopy.getState(), boardView.stateAt(x, y));
+                assertEquals(blockCopy instanceof DirectedBlock ? ((DirectedBlock) blockCopy).getDirectionValue() : null, boardView.directionAt(x, y));
+                assertEquals(pushRock.getTraversableBlockCopy(x, y).getType(), boardView.groundTypeAt(x, y));
+            }
+        }
+        //With the rock on the pressure plate, the teleporters are connected to each other, given as row * width + column.
+        assertEquals(8, boardView.connectionAt(6, 0));
+        assertEquals(6, boardView.connectionAt(8, 0));
+        assertEquals(-1, boardView.connectionAt(5, 0));
+        //The view reads the game directly, so it shows the rock that was pushed onto the pressure plate through the teleporters.
+        pushRock.movePlayer("right");
+        assertEquals('r', boardView.typeAt(9, 0));
+        assertEquals('d', boardView.groundTypeAt(9, 0));
+        assertThrows(IllegalArgumentException.class, () -> boardView.typeAt(boardView.getWidth(), 0));
+        assertThrows(IllegalArgumentException.class, () -> boardView.groundTypeAt(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> boardView.stateAt(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> boardView.directionAt(0, -boardView.getHeight()));
+    }
+
+    @Test
+    @DisplayName("Check that event observers get one batch of typed events for every operation, holding only what the operation changed.")
+    public void testChangeEvents() {
+        PushRock pushRock = new PushRock("Test", "w pr d@", "rrg");
+        List<String> batches = new ArrayList<>();
+        pushRock.addEventObserver((observable, events) -> batches.add(events.toString()));
+        //The first batch after an event observer is added is a reset, as the observer has not seen the game yet.
+        pushRock.movePlayer("right");
+        pushRock.movePlayer("left");
+        pushRock.placePortal(true);
+        pushRock.undo();
+        pushRock.movePlayer("right");
+        pushRock.movePlayer("right");
+        pushRock.undo();
+        assertEquals(List.of(
+            "[RESET]",
+            "[BLOCK_MOVED 'p' (3, 0) -> (2, 0) left, MOVE_COUNT_CHANGED 2]",
+            "[PORTAL_PLACED 'v' (0, 0) right]",
+            "[PORTAL_CLEARED 'v' (0, 0)]",
+            "[BLOCK_MOVED 'p' (2, 0) -> (3, 0) right, MOVE_COUNT_CHANGED 3]",
+            "[BLOCK_MOVED 'p' (3, 0) -> (4, 0) right, BLOCK_MOVED 'r' (4, 0) -> (5, 0) right active, MOVE_COUNT_CHANGED 4, GAME_OVER true]",
+            "[BLOCK_MOVED 'p' (4, 0) -> (3, 0) right, BLOCK_MOVED 'r' (5, 0) -> (4, 0) right, MOVE_COUNT_CHANGED 3, GAME_OVER false]"), batches);
+        pushRock.resetLevel();
+        assertEquals("[RESET]", batches.get(batches.size() - 1));
+    }
+
+    @Test
+    @DisplayName("Check that every teleporter connection an operation makes or breaks gets its own event, also with several pairs connected.")
+    public void testTeleporterEvents() {
+        //Eight rocks are pushed onto pressure plates one at a time. With four teleporters, the eighth connects the first and third
+        //teleporter while the second and fourth are still connected.
+        String map = """
+                prd d@
+                 rd  @
+                 rd  @
+                 rd  @
+                 rd  @
+                 rd  @
+                 rd  @
+                 rd  @
+                tt tt@
+                """;
+        PushRock pushRock = new PushRock("Test", map, "rrrrrrrrrg");
+        pushRock.setDiagnosticsSink(IDiagnosticsSink.silent());
+        List<List<String>> batches = new ArrayList<>();
+        pushRock.addEventObserver((observable, events) -> {
+            List<String> teleporterEvents = new ArrayList<>();
+            events.forEach(event -> {
+                if (event.getType() == PushRockEvent.Type.TELEPORTER_REPAIRED) {
+                    teleporterEvents.add(event.toString());
+                }
+            });
+            batches.add(teleporterEvents);
+        });
+        pushRock.movePlayer(Direction.RIGHT);
+        for (int row = 1; row < 8; row++) {
+            pushRock.movePlayer(Direction.LEFT);
+            pushRock.movePlayer(Direction.DOWN);
+            pushRock.movePlayer(Direction.RIGHT);
+        }
+        BoardView boardView = pushRock.getBoardView();
+        assertEquals(8 * 5 + 4, boardView.connectionAt(1, -8), "The second and fourth teleporter should still be connected.");
+        assertEquals(8 * 5 + 3, boardView.connectionAt(0, -8), "The first and third teleporter should be connected.");
+        assertEquals(List.of("TELEPORTER_REPAIRED (1, -8) -/- (3, -8)", "TELEPORTER_REPAIRED (1, -8) <-> (4, -8)"), batches.get(batches.size() - 4),
+            "Connecting the second teleporter to the fourth should break its connection to the third.");
+        assertEquals(List.of("TELEPORTER_REPAIRED (3, -8) <-> (0, -8)"), batches.get(batches.size() - 1),
+            "Only the connection that was made should be told about, not the one that was already there.");
+        pushRock.undo();
+        assertEquals(List.of("TELEPORTER_REPAIRED (3, -8) -/- (0, -8)"), batches.get(batches.size() - 1));
+        assertEquals(8 * 5 + 4, boardView.connectionAt(1, -8));
+        assertEquals(-1, boardView.connectionAt(0, -8));
+        pushRock.redo();
+        assertEquals(List.of("TELEPORTER_REPAIRED (3, -8) <-> (0, -8)"), batches.get(batches.size() - 1));
+        pushRock.movePlayer(Direction.LEFT);
+        assertEquals(List.of(), batches.get(batches.size() - 1), "A move that leaves the pressure plates as they were should change no connections.");
+    }
+
     @DisplayName("Check that both portal types get placed at correct coordinates and with correct directions when placed at walls.")
     private void testPortalPlacementAndDirection(String portalType) {
         String map = """
@@ -829,13 +1012,15 @@ public class PushRockTest {
         assertEqualsNoLineSeparator(expected, pushRock.toString());
     }
     @Test
-    @DisplayName("Check that a the player can not push more than one rock.")
+    @DisplayName("Check that a the player can push two rocks at once, but not more than two.")
     public void testPushMoreThanOneRock() {
-        String expected = " prr d@";
-        PushRock pushRock = new PushRock("Test", expected, "rlrg");
-        assertEqualsNoLineSeparator(expected, pushRock.toString());
+        PushRock pushRock = new PushRock("Test", " prr d@", "rlrg");
+        pushRock.movePlayer("right");
+        assertEqualsNoLineSeparator("  prrd@", pushRock.toString());
+        String expected = " prrr d@";
+        pushRock = new PushRock("Test", expected, "rlrrg");
         pushRock.movePlayer("right");
-        //It should not be possible for a player to push more than one rock, thus the expected map remains the same.
+        //It should not be possible for a player to push more than two rocks, thus the expected map remains the same.
         assertEqualsNoLineSeparator(expected, pushRock.toString());
     }
     @Test
@@ -1291,6 +1476,71 @@ public class PushRockTest {
         assertFalse(pushRock.isGravityInverted(), "Gravity should no longer be inverted after another gravityInverter() method call.");
         }
 
+    @Test
+    @DisplayName("Check that inverting gravity can be undone, and that the inversion is part of the state hash and compact state.")
+    public void testGravityInverterUndo() {
+        PushRock pushRock = new PushRock("Test", "pd@", "rg");
+        long startHash = pushRock.stateHash();
+        pushRock.gravityInverter();
+        assertNotEquals(startHash, pushRock.stateHash(), "Inverting gravity should change the state hash.");
+        PushRock copy = pushRock.getCopy();
+        assertTrue(copy.isGravityInverted(), "A copy should keep the gravity direction of the game it was copied from.");
+        assertEquals(pushRock.stateHash(), copy.stateHash());
+        pushRock.undo();
+        assertFalse(pushRock.isGravityInverted(), "Undoing the inversion should restore the gravity direction.");
+        assertEquals(startHash, pushRock.stateHash());
+        pushRock.redo();
+        assertTrue(pushRock.isGravityInverted());
+    }
+    @Test
+    @DisplayName("Check that a copy of a game applies gravity the same way as the game it was copied from.")
+    public void testCopyKeepsGravityApplication() {
+        PushRock pushRock = new PushRock("Test", "pd@", "rg");
+        pushRock.setGravityApplicationMoveInput();
+        assertTrue(pushRock.getCopy().isGravityApplicationMoveInput());
+        pushRock.setGravityApplicationManual();
+        assertTrue(pushRock.getCopy().isGravityApplicationManual());
+        pushRock.setGravityApplicationInterval();
+        pushRock.pauseIntervalGravity(true);
+        PushRock copy = pushRock.getCopy();
+        assertTrue(copy.isGravityApplicationInterval());
+        assertTrue(copy.isIntervalGravityPaused(), "A copy of a game with interval gravity paused should have it paused as well.");
+    }
+    @Test
+    @DisplayName("Check that a block falls once the block supporting it is moved away, also when the support is moved by a move in bird view.")
+    public void testGravityAfterSupportMovedAway() {
+        String mapLevelLayout = """
+            ---R--D@
+              pr   @
+                   @
+            """;
+        PushRock pushRock = new PushRock("Test", mapLevelLayout, "rrrg");
+        pushRock.setGravityApplicationManual();
+        pushRock.movePlayer("right");
+        String expected = """
+            ---R--D@
+               pr  @
+                   @
+            """;
+        assertEqualsNoLineSeparator(expected, pushRock.toString());
+        long supportedHash = pushRock.stateHash();
+        //The player now holds up the rock, which thus should not fall.
+        pushRock.gravityStep();
+        assertEqualsNoLineSeparator(expected, pushRock.toString());
+        pushRock.movePlayer("down");
+        pushRock.gravityStep();
+        expected = """
+            ------D@
+               rr  @
+               p   @
+            """;
+        assertEqualsNoLineSeparator(expected, pushRock.toString());
+        //A gravity step is undone on its own, separately from the move before it.
+        pushRock.undo();
+        pushRock.undo();
+        assertEquals(supportedHash, pushRock.stateHash());
+    }
+
     @Test
     @DisplayName("Check that gravity is only applied to airborne moveable blocks according to the current gravity direction.")
     public void testGravityAppliedToAllMoveableBlocks() {
@@ -2221,6 +2471,289 @@ public class PushRockTest {
     // }
 
 
+    @Test
+    @DisplayName("Check that a rock pushed through portals back into its own cell refuses the push, so no two blocks share a cell.")
+    public void testPushRockLoopingIntoOwnCell() {
+        PushRock pushRock = new PushRock("test", "p  @ rw@ wd@", "rrg");
+        //Portal two is placed on the wall below the rock, facing up, and portal one on the wall right of the rock, facing left. A rock
+        //pushed right into portal one thus comes out of portal two into the cell it was pushed from.
+        pushRock.movePlayer("right");
+        pushRock.movePlayer("down");
+        pushRock.placePortal(false);
+        pushRock.movePlayer("left");
+        pushRock.movePlayer("down");
+        pushRock.movePlayer("right");
+        pushRock.placePortal(true);
+        String expected = pushRock.toString();
+        int[] expectedState = pushRock.getCompactState();
+        assertFalse(pushRock.movePlayer("right"), "The player should not be able to push the rock into the cell the rock is looped back to.");
+        assertEqualsNoLineSeparator(expected, pushRock.toString());
+        assertArrayEquals(expectedState, pushRock.getCompactState());
+        assertEqualsNoLineSeparator(expected, pushRock.getCopy().toString());
+        while (pushRock.canUndo()) {
+            pushRock.undo();
+        }
+        while (pushRock.canRedo()) {
+            pushRock.redo();
+        }
+        assertEqualsNoLineSeparator(expected, pushRock.toString());
+    }
+
+    @Test
+    @DisplayName("Check that restoring a compact state brings back the blocks, portals and teleporter connections of that state.")
+    public void testCompactStateRestore() {
+        PushRock pushRock = new PushRock("test", "ttttprdd   d@\nwwwwwwwwwwww@", "rrg");
+        int[] startState = pushRock.getCompactState();
+        assertEquals(pushRock.getCompactStateLength(), startState.length);
+        String startMap = pushRock.toString();
+        pushRock.movePlayer("right");
+        pushRock.movePlayer("right");
+        pushRock.movePlayer("down");
+        pushRock.placePortal(true);
+        pushRock.movePlayer("left");
+        pushRock.movePlayer("down");
+        pushRock.placePortal(false);
+        int[] movedState = pushRock.getCompactState();
+        String movedMap = pushRock.toString();
+        assertNotEquals(startMap, movedMap);
+        pushRock.movePlayer("right");
+        String movedMapAfterMove = pushRock.toString();
+
+        pushRock.setCompactState(startState);
+        assertEqualsNoLineSeparator(startMap, pushRock.toString());
+        assertArrayEquals(startState, pushRock.getCompactState());
+        pushRock.setCompactState(movedState);
+        assertEqualsNoLineSeparator(movedMap, pushRock.toString());
+        assertArrayEquals(movedState, pushRock.getCompactState());
+        //The restored game should keep playing the same way as the original did from that state.
+        pushRock.movePlayer("right");
+        assertEqualsNoLineSeparator(movedMapAfterMove, pushRock.toString());
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> pushRock.setCompactState(new int[1]),
+            "Restoring a compact state of the wrong length should throw IllegalArgumentException.");
+        //A state with the rock on a wall is rejected before anything is restored, so the game is left as it was.
+        int[] invalidState = pushRock.getCompactState();
+        invalidState[2] = 12 << 3;
+        long stateHash = pushRock.stateHash();
+        assertThrows(IllegalArgumentException.class, () -> pushRock.setCompactState(invalidState));
+        assertThrows(IllegalArgumentException.class, () -> pushRock.stateHashOf(invalidState));
+        assertEqualsNoLineSeparator(movedMapAfterMove, pushRock.toString());
+        assertEquals(stateHash, pushRock.stateHash());
+        assertEquals(stateHash, pushRock.stateHashOf(pushRock.getCompactState()));
+        assertEquals(stateHash, pushRock.getCopy().stateHash());
+    }
+    @Test
+    @DisplayName("Check that states which only differ in how the rocks face have the same search state and state hash, but not the same compact state.")
+    public void testSearchStateIgnoresRockDirection() {
+        PushRock facingRight = new PushRock("test", "p r d@", "rrg");
+        PushRock facingLeft = new PushRock("test", "p r d@", "rlg");
+        assertFalse(Arrays.equals(facingRight.getCompactState(), facingLeft.getCompactState()), "The compact state should keep the direction of the rocks.");
+        assertArrayEquals(facingRight.getSearchState(), facingLeft.getSearchState());
+        assertEquals(facingRight.stateHash(), facingLeft.stateHash());
+        //Pushing the rock turns it the way it was pushed, which changes the search state only because the rock moved.
+        facingLeft.movePlayer("right");
+        facingLeft.movePlayer("right");
+        facingLeft.movePlayer("left");
+        facingLeft.movePlayer("right");
+        assertNotEquals(facingRight.stateHash(), facingLeft.stateHash());
+        facingRight.movePlayer("right");
+        facingRight.movePlayer("right");
+        assertArrayEquals(facingRight.getSearchState(), facingLeft.getSearchState());
+        assertEquals(facingRight.stateHash(), facingLeft.stateHash());
+        //A search state can be restored, and plays the same as the compact state it was taken from.
+        int[] searchState = facingLeft.getSearchState();
+        facingLeft.setCompactState(searchState);
+        assertArrayEquals(searchState, facingLeft.getSearchState());
+        assertEquals(facingRight.stateHash(), facingLeft.stateHash());
+    }
+    @Test
+    @DisplayName("Check that the incrementally updated state hash matches the hash of the same state restored from scratch.")
+    public void testStateHash() {
+        PushRock pushRock = new PushRock("test", "o prt   t  d@\nwwwwwwwwwwww@", "rllg");
+        long startHash = pushRock.stateHash();
+        assertEquals(startHash, pushRock.getCopy().stateHash());
+        //Walking away and back to the same cell leads to the same state as a level where the player starts out facing right.
+        pushRock.movePlayer("left");
+        assertNotEquals(startHash, pushRock.stateHash());
+        pushRock.movePlayer("right");
+        assertNotEquals(startHash, pushRock.stateHash());
+        assertEquals(new PushRock("test", "o prt   t  d@\nwwwwwwwwwwww@", "rrlg").stateHash(), pushRock.stateHash());
+
+        pushRock.movePlayer("down");
+        pushRock.placePortal(true);
+        assertEquals(pushRock.getCopy().stateHash(), pushRock.stateHash(), "The hash should match a copy after placing a portal.");
+        pushRock.movePlayer("left");
+        pushRock.movePlayer("down");
+        pushRock.placePortal(false);
+        assertEquals(pushRock.getCopy().stateHash(), pushRock.stateHash(), "The hash should match a copy after placing a second portal.");
+        //Pushing the rock through the teleporters and onto the last pressure plate changes the teleporter connections and ends the game.
+        while (!pushRock.isGameOver()) {
+            pushRock.movePlayer("right");
+            assertEquals(pushRock.getCopy().stateHash(), pushRock.stateHash(), "The hash should match a copy after every move.");
+            assertEquals(pushRock.stateHashOf(pushRock.getCompactState()), pushRock.stateHash(), "The hash should match the hash of the compact state after every move.");
+        }
+        //The move count is not part of the state.
+        PushRock fresh = new PushRock("test", "o prt   t  d@\nwwwwwwwwwwww@", "rllg");
+        assertEquals(startHash, fresh.stateHash());
+    }
+    @Test
+    @DisplayName("Check that the game still ends once every pressure plate is covered after moves onto plates have been undone or restored.")
+    public void testGameOverAfterUndoAndRestore() {
+        PushRock pushRock = new PushRock("test", "prdd@", "rrg");
+        int[] startState = pushRock.getCompactState();
+        pushRock.movePlayer("right");
+        assertFalse(pushRock.isGameOver());
+        pushRock.movePlayer("right");
+        assertTrue(pushRock.isGameOver());
+
+        pushRock.undo();
+        pushRock.undo();
+        assertFalse(pushRock.isGameOver());
+        pushRock.movePlayer("right");
+        assertFalse(pushRock.isGameOver(), "The game should not end while a pressure plate is still uncovered.");
+        pushRock.movePlayer("right");
+        assertTrue(pushRock.isGameOver());
+
+        pushRock.setCompactState(startState);
+        assertFalse(pushRock.isGameOver());
+        pushRock.movePlayer("right");
+        assertFalse(pushRock.isGameOver(), "The game should not end while a pressure plate is still uncovered.");
+        pushRock.movePlayer("right");
+        assertTrue(pushRock.isGameOver());
+    }
+    @Test
+    @DisplayName("Check that the undo journal keeps the last UNDO_LIMIT actions, and forgets the older ones.")
+    public void testUndoLimit() {
+        PushRock pushRock = new PushRock("test", "p  d@", "rg");
+        int extraMoves = 10;
+        for (int i = 0; i < PushRock.UNDO_LIMIT + extraMoves; i++) {
+            assertTrue(pushRock.movePlayer(i % 2 == 0 ? "right" : "left"));
+        }
+        for (int i = 0; i < PushRock.UNDO_LIMIT; i++) {
+            pushRock.undo();
+        }
+        assertFalse(pushRock.canUndo());
+        assertEquals(extraMoves, pushRock.getMoveCount());
+        assertEqualsNoLineSeparator("p  d@", pushRock.toString());
+        while (pushRock.canRedo()) {
+            pushRock.redo();
+        }
+        assertEquals(PushRock.UNDO_LIMIT + extraMoves, pushRock.getMoveCount());
+        assertEqualsNoLineSeparator("p  d@", pushRock.toString());
+    }
+    @Test
+    @DisplayName("Check that moves and portal placements can be undone and redone, restoring the map, move count and state hash.")
+    public void testUndoRedo() {
+        PushRock pushRock = new PushRock("test", "o prt   t  d@\nwwwwwwwwwwww@", "rllg");
+        assertFalse(pushRock.canUndo());
+        assertFalse(pushRock.canRedo());
+        assertThrows(
+            IllegalStateException.class,
+            () -> pushRock.undo(),
+            "Undoing without any moves made should throw IllegalStateException.");
+
+        List<String> maps = new ArrayList<>();
+        List<int[]> states = new ArrayList<>();
+        List<Long> hashes = new ArrayList<>();
+        List<Integer> moveCounts = new ArrayList<>();
+        Runnable record = () -> {
+            maps.add(pushRock.toString());
+            states.add(pushRock.getCompactState());
+            hashes.add(pushRock.stateHash());
+            moveCounts.add(pushRock.getMoveCount());
+        };
+        record.run();
+        pushRock.movePlayer("down");
+        record.run();
+        pushRock.placePortal(true);
+        record.run();
+        pushRock.movePlayer("left");
+        record.run();
+        pushRock.movePlayer("down");
+        record.run();
+        pushRock.placePortal(false);
+        record.run();
+        //Placing a portal where it already is changes nothing, and is thus not an action that can be undone.
+        pushRock.placePortal(false);
+        //Pushing the rock through the teleporters and onto the last pressure plate changes the teleporter connections and ends the game.
+        while (!pushRock.isGameOver()) {
+            pushRock.movePlayer("right");
+            record.run();
+        }
+        int actionCount = maps.size();
+
+        for (int i = actionCount - 2; i >= 0; i--) {
+            assertTrue(pushRock.canUndo());
+            pushRock.undo();
+            assertEqualsNoLineSeparator(maps.get(i), pushRock.toString());
+            assertArrayEquals(states.get(i), pushRock.getCompactState());
+            assertEquals(hashes.get(i), pushRock.stateHash());
+            assertEquals(moveCounts.get(i), pushRock.getMoveCount());
+        }
+        assertFalse(pushRock.canUndo());
+        for (int i = 1; i < actionCount; i++) {
+            assertTrue(pushRock.canRedo());
+            pushRock.redo();
+            assertEqualsNoLineSeparator(maps.get(i), pushRock.toString());
+            assertArrayEquals(states.get(i), pushRock.getCompactState());
+            assertEquals(hashes.get(i), pushRock.stateHash());
+            assertEquals(moveCounts.get(i), pushRock.getMoveCount());
+        }
+        assertFalse(pushRock.canRedo());
+        assertTrue(pushRock.isGameOver());
+
+        //A new action after an undo discards the actions that could be redone.
+        pushRock.undo();
+        pushRock.undo();
+        assertTrue(pushRock.canRedo());
+        pushRock.movePlayer("left");
+        assertFalse(pushRock.canRedo());
+        assertThrows(
+            IllegalStateException.class,
+            () -> pushRock.redo(),
+            "Redoing without any undone moves should throw IllegalStateException.");
+        pushRock.resetLevel();
+        assertFalse(pushRock.canUndo());
+    }
+    @Test
+    @DisplayName("Check that a copy of a game has the same state and move count, but does not share blocks with the original.")
+    public void testGetCopy() {
+        PushRock pushRock = new PushRock("test", "dprd@", "rrg");
+        pushRock.movePlayer("right");
+        PushRock copy = pushRock.getCopy();
+        assertEquals(pushRock.toString(), copy.toString());
+        assertEquals(1, copy.getMoveCount());
+        copy.movePlayer("left");
+        assertEqualsNoLineSeparator("dp o@", copy.toString());
+        assertEqualsNoLineSeparator("d po@", pushRock.toString());
+    }
+    @Test
+    @DisplayName("Check that diagnostic output is written to the diagnostics sink the game was given.")
+    public void testDiagnosticsSink() {
+        PushRock pushRock = new PushRock("test", "dp   @", "rg");
+        List<String> messages = new ArrayList<>();
+        pushRock.setDiagnosticsSink(messageSupplier -> messages.add(messageSupplier.get()));
+        pushRock.movePlayer("right");
+        assertEquals(1, messages.size(), "A move should write the rendered board to the diagnostics sink once.");
+        assertTrue(messages.get(0).contains("Score:1"));
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> pushRock.setDiagnosticsSink(null),
+            "Setting the diagnostics sink to null should throw IllegalArgumentException.");
+    }
+    @Test
+    @DisplayName("Check that a silent diagnostics sink never evaluates the messages it is given.")
+    public void testDiagnosticsSinkSilent() {
+        IDiagnosticsSink silentSink = IDiagnosticsSink.silent();
+        silentSink.log(() -> fail("A silent diagnostics sink should not evaluate its messages."));
+        PushRock pushRock = new PushRock("test", "dp   @", "rg");
+        pushRock.setDiagnosticsSink(silentSink);
+        pushRock.movePlayer("right");
+        assertEqualsNoLineSeparator("d p  @", pushRock.toString());
+    }
+
+
     //TestObserverPushRock is a simple class implementing IObserverPushRock only as a tool to test that the methods PushRock
     //inherits from AbstractObservablePushRock behave as expected.
     class TestObserverPushRock implements IObserverPushRock {
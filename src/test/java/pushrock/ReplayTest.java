@@ -0,0 +1,247 @@
+package pushrock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import pushrock.model.Direction;
+import pushrock.model.GameCommand;
+import pushrock.model.GameLoop;
+import pushrock.model.PushRock;
+import pushrock.replay.HeadlessReplayPlayer;
+import pushrock.replay.Replay;
+import pushrock.replay.ReplayRecorder;
+import pushrock.replay.ReplayResult;
+
+public class ReplayTest {
+
+    private PushRock pushRock;
+    private ReplayRecorder recorder;
+
+    //Applies the command to the game and records it, as a game loop with the recorder as command observer would.
+    private void applyAndRecord(GameCommand command) {
+        try {
+            command.applyTo(this.pushRock);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            //Refused commands are recorded as well.
+        }
+        this.recorder.record(command);
+    }
+
+    private Replay writeAndRead(Replay replay) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        replay.write(outputStream);
+        return Replay.read(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    @BeforeEach
+    public void setup() {
+        this.pushRock = GameFixtures.createSampleGame();
+        this.recorder = new ReplayRecorder(this.pushRock);
+    }
+
+    @Test
+    @DisplayName("Check that a replay decodes to the exact commands that were recorded, in order, also after being written and read.")
+    public void testCommandsDecodedInOrder() {
+        List<GameCommand> recorded = new ArrayList<GameCommand>();
+        Random random = new Random(1);
+        GameCommand[] otherCommands = {GameCommand.resetLevel(), GameCommand.undo(), GameCommand.redo(), GameCommand.invertGravity(),
+            GameCommand.intervalTick(), GameCommand.pauseIntervalGravity(true), GameCommand.pauseIntervalGravity(false)};
+        for (int i = 0; i < 10000; i++) {
+            int choice = random.nextInt(20);
+            GameCommand command;
+            if (choice < 14) {
+                command = GameCommand.move(Direction.values()[choice % 4]);
+            }
+            else if (choice < 17) {
+                command = GameCommand.placePortal(choice == 14);
+            }
+            else {
+                command = otherCommands[random.nextInt(otherCommands.length)];
+            }
+            this.recorder.record(command);
+            recorded.add(command);
+        }
+        Replay replay = this.writeAndRead(this.recorder.toReplay(this.pushRock));
+        List<GameCommand> decoded = new ArrayList<GameCommand>();
+        replay.forEachCommand(decoded::add);
+        assertEquals(recorded, decoded);
+        assertEquals(recorded.size(), replay.getCommandCount());
+    }
+
+    @Test
+    @DisplayName("Check that moves take up a quarter of a byte each when they are not interrupted by other commands.")
+    public void testMovesEncodedInTwoBits() {
+        for (int i = 0; i < 10000; i++) {
+            this.recorder.record(GameCommand.move(Direction.values()[i % 4]));
+        }
+        Replay replay = this.recorder.toReplay(this.pushRock);
+        assertTrue(replay.getEncodedCommandsLength() < 2600, "10000 moves should take up about 2500 bytes, but took " + replay.getEncodedCommandsLength() + " bytes.");
+    }
+
+    @Test
+    @DisplayName("Check that playing a replay ends in the state it was recorded to end in, and leaves the level unchanged.")
+    public void testPlayReplay() {
+        this.applyAndRecord(GameCommand.move(Direction.RIGHT));
+        this.applyAndRecord(GameCommand.placePortal(true));
+        this.applyAndRecord(GameCommand.move(Direction.DOWN));
+        this.applyAndRecord(GameCommand.undo());
+        this.applyAndRecord(GameCommand.move(Direction.LEFT));
+        this.applyAndRecord(GameCommand.redo());
+        this.applyAndRecord(GameCommand.resetLevel());
+        this.applyAndRecord(GameCommand.move(Direction.RIGHT));
+        this.applyAndRecord(GameCommand.move(Direction.RIGHT));
+        Replay replay = this.writeAndRead(this.recorder.toReplay(this.pushRock));
+
+        PushRock level = GameFixtures.createSampleGame();
+        long levelStateHash = level.stateHash();
+        ReplayResult result = new HeadlessReplayPlayer().play(replay, level);
+        assertTrue(result.isMatch(), "The replay should end in the recorded state, but was: " + result);
+        assertEquals(9, result.getCommandCount());
+        assertEquals(5, result.getMoveCommandCount());
+        assertEquals(1, result.getRefusedCommandCount(), "The redo after a new move should be refused.");
+        assertEquals(this.pushRock.stateHash(), result.getFinalStateHash());
+        assertEquals(this.pushRock.getMoveCount(), result.getFinalMoveCount());
+        assertEquals(levelStateHash, level.stateHash(), "The level the replay is played on should be left unchanged.");
+    }
+
+    @Test
+    @DisplayName("Check that a replay recorded from a game loop plays back to the state of the loop's last snapshot.")
+    public void testRecordGameLoop() {
+        GameLoop gameLoop = new GameLoop(this.pushRock);
+        gameLoop.addCommandObserver(this.recorder);
+        Random random = new Random(2);
+        for (int step = 0; step < 50; step++) {
+            for (int i = 0; i < 10; i++) {
+                int choice = random.nextInt(7);
+                gameLoop.submit(choice < 4 ? GameCommand.move(Direction.values()[choice]) : choice < 6 ? GameCommand.placePortal(choice == 4) : GameCommand.undo());
+            }
+            gameLoop.step();
+        }
+        Replay replay = this.recorder.toReplay(gameLoop.getSnapshot());
+        ReplayResult result = new HeadlessReplayPlayer().play(replay, GameFixtures.createSampleGame());
+        assertTrue(result.isMatch(), "The replay should end in the state of the last snapshot, but was: " + result);
+        assertEquals(500, result.getCommandCount());
+    }
+
+    @Test
+    @DisplayName("Check that a replay started from a game in progress starts playing from that state.")
+    public void testRecordFromGameInProgress() {
+        this.pushRock.movePlayer(Direction.RIGHT);
+        this.pushRock.setGravityApplicationManual();
+        this.recorder = new ReplayRecorder(this.pushRock);
+        this.applyAndRecord(GameCommand.move(Direction.DOWN));
+        Replay replay = this.writeAndRead(this.recorder.toReplay(this.pushRock));
+        assertEquals(1, replay.getInitialMoveCount());
+        ReplayResult result = new HeadlessReplayPlayer().play(replay, GameFixtures.createSampleGame());
+        assertTrue(result.isMatch(), "The replay should end in the recorded state, but was: " + result);
+        assertEquals(2, result.getFinalMoveCount());
+    }
+
+    @Test
+    @DisplayName("Check that a recording started while interval gravity is paused, or while a pause is requested, plays back with the same pause.")
+    public void testRecordWithIntervalGravityPaused() {
+        //A level where the player and the rock fall three cells before landing, one for each interval tick that is not paused.
+        String mapLayout = """
+            P--R--D@
+            -------@
+            -------@
+            -------@
+            WWWWWWW@
+            """;
+        for (int ticksBeforeRecording = 0; ticksBeforeRecording < 2; ticksBeforeRecording++) {
+            this.pushRock = GameFixtures.createGame(mapLayout, "rrg");
+            this.pushRock.setGravityApplicationInterval();
+            this.pushRock.pauseIntervalGravity(true);
+            for (int i = 0; i < ticksBeforeRecording; i++) {
+                this.pushRock.intervalTick();
+            }
+            this.recorder = new ReplayRecorder(this.pushRock);
+            for (int i = 0; i < 3; i++) {
+                this.applyAndRecord(GameCommand.intervalTick());
+            }
+            //The interval in progress when the pause was requested still makes its gravity step, so the blocks fall one cell in all.
+            String expected = """
+                ------D@
+                P--R---@
+                -------@
+                -------@
+                WWWWWWW@
+                """;
+            assertEquals(expected.replace("\n", ""), this.pushRock.toString().replaceAll("\\R", ""));
+            Replay replay = this.writeAndRead(this.recorder.toReplay(this.pushRock));
+            ReplayResult result = new HeadlessReplayPlayer().play(replay, GameFixtures.createGame(mapLayout, "rrg"));
+            assertTrue(result.isMatch(), "The replay should end in the recorded state, but was: " + result);
+        }
+    }
+
+    @Test
+    @DisplayName("Check that a recording started after a move can not undo that move, so the replay plays back the same way.")
+    public void testRecordingClearsUndoHistory() {
+        this.pushRock.movePlayer(Direction.RIGHT);
+        this.pushRock.movePlayer(Direction.RIGHT);
+        this.pushRock.undo();
+        assertTrue(this.pushRock.canUndo());
+        assertTrue(this.pushRock.canRedo());
+        this.recorder = new ReplayRecorder(this.pushRock);
+        assertFalse(this.pushRock.canUndo(), "Starting a recording should clear the undo history of the game.");
+        assertFalse(this.pushRock.canRedo(), "Starting a recording should clear the redo history of the game.");
+        this.applyAndRecord(GameCommand.undo());
+        this.applyAndRecord(GameCommand.redo());
+        this.applyAndRecord(GameCommand.move(Direction.DOWN));
+        this.applyAndRecord(GameCommand.undo());
+        this.applyAndRecord(GameCommand.undo());
+        Replay replay = this.writeAndRead(this.recorder.toReplay(this.pushRock));
+        ReplayResult result = new HeadlessReplayPlayer().play(replay, GameFixtures.createSampleGame());
+        assertTrue(result.isMatch(), "The replay should end in the recorded state, but was: " + result);
+        assertEquals(1, result.getFinalMoveCount());
+        assertEquals(3, result.getRefusedCommandCount(), "The undo and redo of actions made before the recording, and the second undo, should be refused.");
+    }
+
+    @Test
+    @DisplayName("Check that a replay that ends elsewhere than it was recorded to is reported as a mismatch.")
+    public void testMismatch() {
+        this.applyAndRecord(GameCommand.move(Direction.RIGHT));
+        //The replay is made to end in the state of a game that moved down instead, as an engine that behaves differently would.
+        PushRock other = GameFixtures.createSampleGame();
+        other.movePlayer(Direction.DOWN);
+        Replay replay = this.recorder.toReplay(other);
+        assertFalse(new HeadlessReplayPlayer().play(replay, GameFixtures.createSampleGame()).isMatch());
+    }
+
+    @Test
+    @DisplayName("Check that playing a replay on another level, or reading a corrupted replay, throws IllegalArgumentException.")
+    public void testIllegalReplays() {
+        this.applyAndRecord(GameCommand.move(Direction.RIGHT));
+        Replay replay = this.recorder.toReplay(this.pushRock);
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new HeadlessReplayPlayer().play(replay, new PushRock("other", "pd @", "rg")),
+            "A replay should not be played on a level it was not recorded on.");
+        assertThrows(IllegalArgumentException.class, () -> this.recorder.record(null));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        replay.write(outputStream);
+        byte[] bytes = outputStream.toByteArray();
+        byte[] wrongChecksum = bytes.clone();
+        wrongChecksum[bytes.length - 5] ^= 1;
+        byte[] missingBytes = Arrays.copyOf(bytes, bytes.length - 3);
+        byte[] wrongHeader = bytes.clone();
+        wrongHeader[0] = '#';
+        assertThrows(IllegalArgumentException.class, () -> Replay.read(new ByteArrayInputStream(wrongChecksum)));
+        assertThrows(IllegalArgumentException.class, () -> Replay.read(new ByteArrayInputStream(missingBytes)));
+        assertThrows(IllegalArgumentException.class, () -> Replay.read(new ByteArrayInputStream(wrongHeader)));
+    }
+}
@@ -358,6 +358,37 @@ public class SaveHandlerTest {
         }
     
 
+        @Test
+        @DisplayName("Check that a save is loaded the same regardless of wether its lines are separated by '\\n' or '\\r\\n'.")
+        public void testLoadLineSeparators() throws UnsupportedEncodingException {
+            String saveLF = this.validSaveString.replaceAll("\\r\\n", "\n");
+            String saveCRLF = saveLF.replaceAll("\n", "\r\n");
+            PushRock pushRockLF = saveHandler.loadGame(new ByteArrayInputStream(saveLF.getBytes("UTF-8")));
+            PushRock pushRockCRLF = saveHandler.loadGame(new ByteArrayInputStream(saveCRLF.getBytes("UTF-8")));
+            checkThatExpectedAndActualPushRocksAreEqual(pushRockLF, pushRockCRLF);
+            assertEquals("Level test", pushRockLF.getLevelName());
+        }
+
+        @Test
+        @DisplayName("Check that format errors are reported with the line and column they were found at.")
+        public void testErrorPosition() throws UnsupportedEncodingException {
+            String[] invalidSaveStrings = new String[] {
+                this.validSaveString.replace("#Level name:", "#Level nome:"),
+                this.validSaveString.replace("#Level name:", "#Level name"),
+                this.validSaveString.replace("#Level name:", "#Level name: Level test"),
+                "Level test\n" + this.validSaveString
+            };
+            String[] expectedPositions = new String[] {"line 4, column 2", "line 4, column 12", "line 4, column 14", "line 1, column 1"};
+            for (int i = 0; i < invalidSaveStrings.length; i++) {
+                InputStream inputStream = new ByteArrayInputStream(invalidSaveStrings[i].getBytes("UTF-8"));
+                IllegalArgumentException exception = assertThrows(
+                    IllegalArgumentException.class,
+                    () -> saveHandler.loadGame(inputStream),
+                    "An invalid title should throw IllegalArgumentException.");
+                assertTrue(exception.getMessage().contains(expectedPositions[i]), "Expected the error to be reported at " + expectedPositions[i] + ", but the message was: " + exception.getMessage());
+            }
+        }
+
         @Test
         @DisplayName("Check that loading a save from an inputstream that is has letters instead integers in the 'Sove move count' content field throws NumberFormatException.")
         public void testInvalidMoveCountContentInputStream() throws UnsupportedEncodingException {